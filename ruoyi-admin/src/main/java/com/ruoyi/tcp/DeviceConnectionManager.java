@@ -1,23 +1,25 @@
 package com.ruoyi.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import com.ruoyi.business.domain.DeviceInfo.DeviceInfo;
 import com.ruoyi.business.enums.DeviceStatus;
 import com.ruoyi.business.service.DeviceInfo.IDeviceInfoService;
 import com.ruoyi.business.service.TaskInfo.DeviceDataHandlerService;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceEvent;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceMessageDispatcher;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceResponseParser;
+import com.ruoyi.business.service.TaskInfo.inbound.StxEtxFrameDecoder;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.string.StringEncoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.AttributeKey;
-import java.util.List;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.ObjectUtils;
@@ -46,32 +48,59 @@ public class DeviceConnectionManager {
     @Autowired
     private DeviceDataHandlerService deviceDataHandlerService;
 
+    @Autowired
+    private DeviceMessageDispatcher deviceMessageDispatcher;
+
     @Value("${device.connection.timeout:5000}")
     private int connectionTimeout;
 
     @Value("${device.connection.retry-interval:30000}")
     private int retryInterval;
 
-    private final EventLoopGroup workerGroup = new NioEventLoopGroup();
+    /** 出站缓冲高水位（字节），超过后通道不可写，发送端暂停向该设备写出 */
+    @Value("${device.connection.write-buffer-high-water-mark:65536}")
+    private int writeBufferHighWaterMark;
+
+    /** 出站缓冲低水位（字节），降到该值以下恢复可写 */
+    @Value("${device.connection.write-buffer-low-water-mark:32768}")
+    private int writeBufferLowWaterMark;
+
+    /** 设备上报数据帧最大长度（字节），超过仍无帧尾时丢弃该帧 */
+    @Value("${device.connection.max-frame-length:4096}")
+    private int maxFrameLength;
+
+    // 共享传输线程组
+    @Autowired
+    private NettyTransport nettyTransport;
+
     private final Bootstrap bootstrap = new Bootstrap();
 
+    // 应用退出中，不再安排重连（线程组为共享资源，不能靠关闭线程组终止重连）
+    private volatile boolean shuttingDown;
+
     @PostConstruct
     public void init() {
         // 配置Bootstrap
-        bootstrap.group(workerGroup)
-                .channel(NioSocketChannel.class)
+        bootstrap.group(nettyTransport.workerGroup())
+                .channel(nettyTransport.socketChannelClass())
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectionTimeout)
+                // 出站缓冲高/低水位：isWritable() 驱动发送端背压，避免出站缓冲无限堆积
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(Math.min(writeBufferLowWaterMark, writeBufferHighWaterMark), writeBufferHighWaterMark))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
                         ch.pipeline()
+                                // 合并刷新：读处理期间及跨线程的多次 flush 合并为一次系统调用
+                                .addLast(new FlushConsolidationHandler(
+                                        FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true))
                                 // 空闲状态检测
                                 // writer idle 20s -> trigger ping; no reader/all idle close
                                 .addLast(new IdleStateHandler(0, 20, 0, TimeUnit.SECONDS))
                                 // STX/ETX协议解码器
-                                .addLast(new StxEtxFrameDecoder())
+                                .addLast(new StxEtxFrameDecoder(maxFrameLength))
                                 // 字符串编解码器
                                 .addLast(new StringEncoder(StandardCharsets.UTF_8))
                                 // 设备数据处理器
@@ -245,7 +274,10 @@ public class DeviceConnectionManager {
      * 延迟重连设备
      */
     private void scheduleReconnect(DeviceInfo device) {
-        workerGroup.schedule(() -> {
+        if (shuttingDown) {
+            return;
+        }
+        nettyTransport.workerGroup().schedule(() -> {
             log.info("尝试重新连接设备: {} ({}:{})", device.getName(), device.getIpAddress(), device.getPort());
             connectDevice(device);
         }, retryInterval, TimeUnit.MILLISECONDS);
@@ -258,7 +290,7 @@ public class DeviceConnectionManager {
         try {
             if (channel != null && channel.isActive()) {
                 // 延迟1秒后发送ping，确保连接稳定
-                workerGroup.schedule(() -> {
+                nettyTransport.workerGroup().schedule(() -> {
                     if (channel.isActive()) {
                         String pingCommand = "ping\n";
                         channel.writeAndFlush(pingCommand);
@@ -288,6 +320,7 @@ public class DeviceConnectionManager {
 //            log.warn("设备通道断开: {}", deviceId);
 
             if (deviceId != null) {
+                deviceMessageDispatcher.release(deviceId);
 //                // 更新设备状态为离线
 //                try {
 //                    deviceInfoService.updateDeviceStatus(Long.valueOf(deviceId), "OFFLINE");
@@ -305,11 +338,27 @@ public class DeviceConnectionManager {
 
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf frame = (ByteBuf) msg;
+            try {
+                String deviceId = getDeviceIdFromChannel(ctx.channel());
+                if (deviceId != null) {
+                    // IO线程只负责拆帧与识别消息类型，数据处理交给该设备的串行执行器
+                    DeviceEvent event = DeviceResponseParser.parse(frame, frame.readerIndex(), frame.readableBytes());
+                    deviceMessageDispatcher.dispatch(deviceId, () -> deviceDataHandlerService.handleDeviceEvent(deviceId, event));
+                }
+            } finally {
+                // 解码器输出的是保留引用的切片
+                frame.release();
+            }
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
             String deviceId = getDeviceIdFromChannel(ctx.channel());
             if (deviceId != null) {
-                // 处理设备数据
-                deviceDataHandlerService.handleDeviceData(deviceId, (String) msg);
+                deviceDataHandlerService.handleWritabilityChanged(deviceId, ctx.channel().isWritable());
             }
+            super.channelWritabilityChanged(ctx);
         }
 
         @Override
@@ -318,7 +367,8 @@ public class DeviceConnectionManager {
             log.error("设备通道异常: {}", deviceId, cause);
 
             if (deviceId != null) {
-                deviceDataHandlerService.handleError(deviceId, "通道异常: " + cause.getMessage());
+                String error = "通道异常: " + cause.getMessage();
+                deviceMessageDispatcher.dispatch(deviceId, () -> deviceDataHandlerService.handleError(deviceId, error));
             }
             // 不主动关闭通道，避免短暂异常引发断开
         }
@@ -355,81 +405,7 @@ public class DeviceConnectionManager {
     @PreDestroy
     public void destroy() {
         log.info("关闭设备连接管理器");
-        workerGroup.shutdownGracefully();
+        shuttingDown = true;
     }
     
-    /**
-     * STX/ETX协议帧解码器
-     * 协议格式：STX (0x02) + 0x06 + 数据 + ETX (0x03)
-     */
-    private static class StxEtxFrameDecoder extends ByteToMessageDecoder {
-        private static final byte STX = 0x02;
-        private static final byte ETX = 0x03;
-        private static final byte RECV_MARKER = 0x06;
-        
-        @Override
-        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-            while (in.readableBytes() >= 4) { // 至少需要STX + 0x06 + 数据 + ETX
-                // 查找STX
-                int stxIndex = -1;
-                for (int i = 0; i < in.readableBytes(); i++) {
-                    if (in.getByte(in.readerIndex() + i) == STX) {
-                        stxIndex = i;
-                        break;
-                    }
-                }
-                
-                if (stxIndex == -1) {
-                    // 没有找到STX，丢弃所有数据
-                    in.skipBytes(in.readableBytes());
-                    break;
-                }
-                
-                // 跳过STX之前的数据
-                if (stxIndex > 0) {
-                    in.skipBytes(stxIndex);
-                }
-                
-                // 检查是否有足够的数据
-                if (in.readableBytes() < 4) {
-                    break;
-                }
-                
-                // 检查STX
-                if (in.readByte() != STX) {
-                    continue;
-                }
-                
-                // 检查接收标记
-                if (in.readByte() != RECV_MARKER) {
-                    continue;
-                }
-                
-                // 查找ETX
-                int etxIndex = -1;
-                for (int i = 0; i < in.readableBytes(); i++) {
-                    if (in.getByte(in.readerIndex() + i) == ETX) {
-                        etxIndex = i;
-                        break;
-                    }
-                }
-                
-                if (etxIndex == -1) {
-                    // 没有找到ETX，等待更多数据
-                    break;
-                }
-                
-                // 提取数据部分
-                byte[] data = new byte[etxIndex];
-                in.readBytes(data);
-                
-                // 跳过ETX
-                in.readByte();
-                
-                // 将数据转换为字符串并输出
-                String message = new String(data, StandardCharsets.UTF_8);
-                out.add(message);
-            }
-        }
-    }
 }
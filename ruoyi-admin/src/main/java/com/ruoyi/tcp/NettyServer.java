@@ -1,20 +1,17 @@
 package com.ruoyi.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.string.StringDecoder;
 import io.netty.handler.codec.string.StringEncoder;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.CharsetUtil;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
@@ -47,12 +44,10 @@ public class NettyServer {
     @Autowired
     private NettyServerHandler nettyServerHandler;
 
-    private final EventLoopGroup bossGroup = new NioEventLoopGroup(1,new DefaultThreadFactory("netty-boss"));
-    // --- 核心修改 开始 ---
-    // 为100个连接，明确分配16个I/O处理线程。
-    // 这意味着16个线程会共同处理这100条连接上的数据读写事件。
-    private final EventLoopGroup workerGroup = new NioEventLoopGroup(16,new DefaultThreadFactory("netty-worker"));
-    // --- 核心修改 结束 ---
+    // 共享传输线程组，与设备连接、数据池连接共用
+    @Autowired
+    private NettyTransport nettyTransport;
+
     private ChannelFuture channelFuture;
 
     @PostConstruct
@@ -61,8 +56,8 @@ public class NettyServer {
         new Thread(() -> {
             try {
                 ServerBootstrap bootstrap = new ServerBootstrap();
-                bootstrap.group(bossGroup, workerGroup)
-                        .channel(NioServerSocketChannel.class)
+                bootstrap.group(nettyTransport.bossGroup(), nettyTransport.workerGroup())
+                        .channel(nettyTransport.serverSocketChannelClass())
                         .option(ChannelOption.SO_BACKLOG, maxConnections)
                         .option(ChannelOption.SO_REUSEADDR, true)
                         .childOption(ChannelOption.SO_KEEPALIVE, true)
@@ -96,9 +91,7 @@ public class NettyServer {
                 log.error("[Netty-Server] 服务器启动时发生异常!", e);
                 Thread.currentThread().interrupt();
             } finally {
-                log.info("[Netty-Server] 服务器正在关闭...");
-                bossGroup.shutdownGracefully();
-                workerGroup.shutdownGracefully();
+                // 共享线程组由 NettyTransport 在应用退出时关闭
                 log.info("[Netty-Server] 服务器已关闭。");
             }
         }, "Netty-Server-Thread").start();
@@ -109,7 +102,5 @@ public class NettyServer {
         if (channelFuture != null) {
             channelFuture.channel().close();
         }
-        bossGroup.shutdownGracefully();
-        workerGroup.shutdownGracefully();
     }
 }
@@ -5,9 +5,11 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ruoyi.business.domain.DataInspect.DataInspect;
 import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
+import com.ruoyi.business.enums.CommandPriority;
 import com.ruoyi.business.enums.ItemStatus;
 import com.ruoyi.business.service.DataInspect.IDataInspectService;
 import com.ruoyi.business.service.DataPoolItem.IDataPoolItemService;
+import com.ruoyi.business.service.TaskInfo.DataPoolProducerService;
 import com.ruoyi.common.core.TcpResponse;
 import com.ruoyi.common.core.page.PageQuery;
 import com.ruoyi.common.core.page.PageResult;
@@ -40,6 +42,9 @@ public class DataInspectManagementHandler {
     @Resource
     private IDataPoolItemService dataPoolItemService;
 
+    @Resource
+    private DataPoolProducerService dataPoolProducerService;
+
     /**
      * 质检接口统一入口，根据 path 分派到具体方法。
      */
@@ -179,6 +184,11 @@ public class DataInspectManagementHandler {
             throw new RuntimeException(e);
         }
 
+        //回收的数据作为质检补码插队补打
+        if (itemIdList != null) {
+            dataPoolProducerService.expediteItems(null, itemIdList, CommandPriority.REPRINT);
+        }
+
 
         return  TcpResponse.success("回收成功！");
     }
@@ -11,6 +11,7 @@ import com.ruoyi.business.domain.ArchivedDataPoolItem.ArchivedDataPoolItem;
 import com.ruoyi.business.domain.DataPoolTemplate.DataPoolTemplate;
 import com.ruoyi.business.domain.config.TriggerConfig;
 import com.ruoyi.business.domain.config.UDiskSourceConfig;
+import com.ruoyi.business.enums.CommandPriority;
 import com.ruoyi.business.enums.SourceType;
 import com.ruoyi.business.enums.PoolStatus;
 import com.ruoyi.business.service.DataPool.DataPoolConfigValidationService;
@@ -28,6 +29,7 @@ import com.ruoyi.business.service.DataPool.type.Http.HttpManager;
 import com.ruoyi.business.service.DataPool.type.Mqtt.MqttManager;
 import com.ruoyi.business.service.DataPool.DataSourceLifecycleService;
 import com.ruoyi.business.service.DataPoolTemplate.IDataPoolTemplateService;
+import com.ruoyi.business.service.TaskInfo.DataPoolProducerService;
 import com.ruoyi.common.core.TcpResponse;
 import com.ruoyi.common.utils.DateUtils;
 import com.ruoyi.common.utils.StringUtils;
@@ -67,6 +69,9 @@ public class DataPoolManagementHandler
     @Resource
     private IDataPoolItemService dataPoolItemService;
 
+    @Resource
+    private DataPoolProducerService dataPoolProducerService;
+
     @Resource
     private IArchivedDataPoolItemService archivedDataPoolItemService;
 
@@ -637,6 +642,9 @@ public class DataPoolManagementHandler
          //对待扫描与总数进行加一，并更新数据库
         dataPoolService.updateDataPoolCountNumber(poolId, 1, 1);
 
+        //正在打印该数据池的任务插队发送录入数据
+        dataPoolProducerService.expediteItems(poolId, List.of(item.getId()), CommandPriority.MANUAL);
+
         return  TcpResponse.success("录入成功");
     }
 
@@ -0,0 +1,137 @@
+package com.ruoyi.business.config;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享 Netty 传输资源
+ * 上位机服务端、设备连接、各数据池的 TCP 客户端/服务端共用一组 accept 线程和一组 IO 线程，
+ * 线程数由配置决定，不再随数据池数量增长；各组件只关闭自己的通道，线程组在应用退出时统一关闭。
+ * 数据池连接上直接写库的处理器放到单独的处理线程组执行，避免阻塞共享 IO 线程上的设备读写。
+ * Linux 上可开启原生 epoll 传输（边沿触发，减少每次读写的系统调用与对象分配），不可用时回退到 NIO
+ */
+@Component
+public class NettyTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(NettyTransport.class);
+
+    /** 是否启用原生 epoll 传输（仅 Linux 有效） */
+    @Value("${netty.transport.native-epoll:false}")
+    private boolean nativeEpoll;
+
+    /** accept 线程数 */
+    @Value("${netty.transport.boss-threads:1}")
+    private int bossThreads;
+
+    /** IO 线程数，0 表示按 CPU 核数 */
+    @Value("${netty.transport.worker-threads:0}")
+    private int workerThreads;
+
+    /** 数据池处理器线程数（同一连接固定在一个线程上，保持顺序） */
+    @Value("${netty.transport.blocking-handler-threads:2}")
+    private int blockingHandlerThreads;
+
+    private boolean epoll;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventExecutorGroup blockingHandlerGroup;
+
+    public NettyTransport() {
+    }
+
+    /**
+     * 不经 Spring 创建时使用（测试等场景），创建后需调用 init
+     */
+    public NettyTransport(boolean nativeEpoll, int bossThreads, int workerThreads, int blockingHandlerThreads) {
+        this.nativeEpoll = nativeEpoll;
+        this.bossThreads = bossThreads;
+        this.workerThreads = workerThreads;
+        this.blockingHandlerThreads = blockingHandlerThreads;
+    }
+
+    @PostConstruct
+    public void init() {
+        int bosses = Math.max(1, bossThreads);
+        int workers = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        if (nativeEpoll && !Epoll.isAvailable()) {
+            log.warn("原生 epoll 传输不可用，回退到 NIO，原因: {}", String.valueOf(Epoll.unavailabilityCause()));
+        }
+        epoll = nativeEpoll && Epoll.isAvailable();
+        if (epoll) {
+            bossGroup = new EpollEventLoopGroup(bosses, new DefaultThreadFactory("netty-boss"));
+            workerGroup = new EpollEventLoopGroup(workers, new DefaultThreadFactory("netty-io"));
+        } else {
+            bossGroup = new NioEventLoopGroup(bosses, new DefaultThreadFactory("netty-boss"));
+            workerGroup = new NioEventLoopGroup(workers, new DefaultThreadFactory("netty-io"));
+        }
+        int handlers = Math.max(1, blockingHandlerThreads);
+        blockingHandlerGroup = new DefaultEventExecutorGroup(handlers, new DefaultThreadFactory("netty-pool-handler"));
+        log.info("Netty 共享传输已创建，类型: {}，accept 线程: {}，IO 线程: {}，数据池处理线程: {}",
+                epoll ? "epoll" : "nio", bosses, workers, handlers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+        if (blockingHandlerGroup != null) {
+            blockingHandlerGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 服务端 accept 线程组
+     */
+    public EventLoopGroup bossGroup() {
+        return bossGroup;
+    }
+
+    /**
+     * 连接读写线程组（客户端连接与服务端子连接共用）
+     */
+    public EventLoopGroup workerGroup() {
+        return workerGroup;
+    }
+
+    /**
+     * 会执行阻塞操作（写库等）的处理器所用线程组，添加处理器时指定
+     */
+    public EventExecutorGroup blockingHandlerGroup() {
+        return blockingHandlerGroup;
+    }
+
+    public Class<? extends SocketChannel> socketChannelClass() {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public Class<? extends ServerSocketChannel> serverSocketChannelClass() {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public boolean isEpoll() {
+        return epoll;
+    }
+}
@@ -3,6 +3,10 @@ package com.ruoyi.business.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 任务调度配置属性
  */
@@ -25,14 +29,150 @@ public class TaskDispatchProperties {
     /** 指令队列大小 */
     private Integer commandQueueSize = 2000;
 
-    /** 计划打印数量 */
-    private Integer planPrintCount = 0;
+    /** 指令队列水位配置 */
+    private QueueWatermarkConfig queueWatermark = new QueueWatermarkConfig();
+
+    /** 是否按设备并行发送（每台设备独立发送通道），关闭时每个任务单线程发送 */
+    private Boolean deviceLaneEnabled = false;
+
+    /** 发送端连续写出多少帧后强制刷新一次通道（其余在等待队列或设备余量前统一刷新） */
+    private Integer flushMaxFrames = 64;
+
+    /** 设备上报消息处理时，每台设备每次占用处理线程最多连续处理的消息数 */
+    private Integer inboundDrainBatch = 32;
 
-    /** 原已完成数量 */
-    private Integer originalCount = 0;
+    /** 设备分配策略：ROUND_ROBIN(轮询)、LEAST_IN_FLIGHT(最少在途)、THROUGHPUT_WEIGHTED(按吞吐率加权) */
+    private String assignStrategy = "ROUND_ROBIN";
     
     /** 线程池配置 */
     private ThreadPoolConfig threadPool = new ThreadPoolConfig();
+
+    @Data
+    public static class QueueWatermarkConfig {
+
+        /** 高水位占队列容量的比例，生产端写到该水位后停止 */
+        private Double highRatio = 0.9;
+
+        /** 低水位占队列容量的比例，队列消费到该水位及以下时唤醒生产端补货 */
+        private Double lowRatio = 0.5;
+
+        /** 按任务覆盖（任务ID -> 队列配置），出队快的产线可配置更深的缓冲 */
+        private Map<Long, TaskQueueConfig> tasks = new HashMap<>();
+    }
+
+    @Data
+    public static class TaskQueueConfig {
+
+        /** 队列容量，未配置时使用 command-queue-size */
+        private Integer capacity;
+
+        /** 高水位（条），未配置时按比例计算 */
+        private Integer highWatermark;
+
+        /** 低水位（条），未配置时按比例计算 */
+        private Integer lowWatermark;
+    }
+
+    /** 指令优先级通道配置 */
+    private PriorityLaneConfig priorityLane = new PriorityLaneConfig();
+
+    @Data
+    public static class PriorityLaneConfig {
+
+        /** 补打、人工录入通道各自的容量 */
+        private Integer capacity = 1024;
+
+        /** 每轮出队权重：补打/质检回收补码 */
+        private Integer reprintWeight = 8;
+
+        /** 每轮出队权重：人工扫描录入 */
+        private Integer manualWeight = 4;
+
+        /** 每轮出队权重：数据池批量数据（至少为1，保证不被饿死） */
+        private Integer normalWeight = 1;
+    }
+
+    /** 发送失败重试配置 */
+    private RetryConfig retry = new RetryConfig();
+
+    @Data
+    public static class RetryConfig {
+
+        /** 重试时间轮刻度（毫秒） */
+        private Long tickMs = 10L;
+
+        /** 首次重试延迟（毫秒），设备连续失败时按2的幂次退避 */
+        private Long baseDelayMs = 50L;
+
+        /** 最长重试延迟（毫秒） */
+        private Long maxDelayMs = 2000L;
+    }
+
+    /** 发送记录与计数落库配置 */
+    private PersistConfig persist = new PersistConfig();
+
+    @Data
+    public static class PersistConfig {
+
+        /** 最短落库间隔（毫秒），高负载时收敛到该值 */
+        private Long minIntervalMs = 200L;
+
+        /** 最长落库间隔（毫秒），空闲时放宽到该值 */
+        private Long maxIntervalMs = 2000L;
+
+        /** 单次落库最少发送记录数 */
+        private Integer minBatchSize = 500;
+
+        /** 单次落库最多发送记录数 */
+        private Integer maxBatchSize = 20000;
+
+        /** 目标单次落库耗时（毫秒），批次大小据此伸缩，避免长时间占用 SQLite 写锁 */
+        private Long targetFlushMs = 150L;
+
+        /** 单任务待落库已发送记录缓冲容量（2的幂），写满时发送端等待落库 */
+        private Integer sentBufferSize = 32768;
+    }
+
+    /** 发送日志配置 */
+    private JournalConfig journal = new JournalConfig();
+
+    @Data
+    public static class JournalConfig {
+
+        /** 是否启用发送日志（崩溃或断电后启动时回放未落库的发送/完成/失败事件） */
+        private Boolean enabled = true;
+
+        /** 日志目录 */
+        private String directory = System.getProperty("user.home") + "/UVControlSystem/journal";
+
+        /** 单个日志段大小（MB），写满后滚动到新段 */
+        private Integer segmentSizeMb = 8;
+
+        /** 刷盘间隔（毫秒），断电时最多丢失该间隔内的事件 */
+        private Long syncIntervalMs = 50L;
+    }
+
+    /** 设备通讯日志配置 */
+    private CommLogConfig commLog = new CommLogConfig();
+
+    @Data
+    public static class CommLogConfig {
+
+        /** 日志缓冲容量（2的幂），写满后丢弃新日志并计数，设备消息处理不等待 */
+        private Integer bufferSize = 8192;
+
+        /** 单次写库最多日志条数 */
+        private Integer batchSize = 500;
+
+        /** 缓冲未取满时写库线程的等待间隔（毫秒） */
+        private Long flushIntervalMs = 500L;
+
+        /** 按消息前缀采样（前缀 -> N）：每 N 条记录 1 条，0 表示不记录；未匹配的消息全部记录 */
+        private Map<String, Integer> sampleEvery = new LinkedHashMap<>();
+
+        /** 发送指令日志采样：每 N 条成功发送记录 1 条，0 表示不记录；发送失败全部记录 */
+        private Integer sendSampleEvery = 1;
+    }
     
     @Data
     public static class ThreadPoolConfig {
@@ -45,6 +185,15 @@ public class TaskDispatchProperties {
         
         /** 处理器线程池配置 */
         private PoolConfig handler = new PoolConfig();
+
+        /** 设备发送通道线程池配置（每台设备常驻一个线程） */
+        private PoolConfig lane = new PoolConfig();
+
+        /** 预取线程池配置（生产端后台认领并编码下一批数据） */
+        private PoolConfig prefetch = new PoolConfig();
+
+        /** 设备上报消息处理线程池配置（固定线程数，任务队列不限长度） */
+        private PoolConfig inbound = new PoolConfig();
         
         @Data
         public static class PoolConfig {
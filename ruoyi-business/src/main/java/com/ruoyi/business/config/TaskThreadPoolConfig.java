@@ -52,6 +52,44 @@ public class TaskThreadPoolConfig {
         return executor;
     }
     
+    /**
+     * 设备发送通道线程池
+     * 每个通道常驻占用一个线程，不能排队等待，因此不使用任务队列，超出最大线程数直接拒绝
+     */
+    @Bean("taskLaneExecutor")
+    public ThreadPoolTaskExecutor taskLaneExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreadPool().getLane().getCoreSize());
+        executor.setMaxPoolSize(properties.getThreadPool().getLane().getMaxSize());
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(properties.getThreadPool().getLane().getKeepAliveSeconds());
+        executor.setThreadNamePrefix("TaskLane-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * 预取线程池
+     * 生产端在后台认领并编码下一批待打印数据，线程不足时由生产线程同步执行
+     */
+    @Bean("taskPrefetchExecutor")
+    public ThreadPoolTaskExecutor taskPrefetchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreadPool().getPrefetch().getCoreSize());
+        executor.setMaxPoolSize(properties.getThreadPool().getPrefetch().getMaxSize());
+        executor.setQueueCapacity(properties.getThreadPool().getPrefetch().getQueueCapacity());
+        executor.setKeepAliveSeconds(properties.getThreadPool().getPrefetch().getKeepAliveSeconds());
+        executor.setThreadNamePrefix("TaskPrefetch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+
     @Bean("taskHandlerExecutor")
     public ThreadPoolTaskExecutor taskHandlerExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -66,4 +104,24 @@ public class TaskThreadPoolConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * 设备上报消息处理线程池
+     * 由 Netty IO 线程提交，处理任务（数据库更新、完成回调）不能回退到 IO 线程执行；
+     * 每台设备同时最多提交一个串行处理任务，排队任务数不超过设备数，因此使用不限长度的队列，仅在关闭后拒绝
+     */
+    @Bean("deviceInboundExecutor")
+    public ThreadPoolTaskExecutor deviceInboundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreadPool().getInbound().getCoreSize());
+        executor.setMaxPoolSize(properties.getThreadPool().getInbound().getCoreSize());
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setKeepAliveSeconds(properties.getThreadPool().getInbound().getKeepAliveSeconds());
+        executor.setThreadNamePrefix("DeviceInbound-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
 }
@@ -16,6 +16,9 @@ import java.util.Date;
 public class DataPoolItem extends BaseEntity {
     
     private static final long serialVersionUID = 1L;
+
+    /** 固定数据池生成的数据项ID起点：从 Long.MIN_VALUE 起递增，均为负数，不对应 data_pool_item 中的任何行 */
+    public static final long FIXED_DATA_ID_BASE = Long.MIN_VALUE;
     
     /** 主键 */
     private Long id;
@@ -48,6 +51,12 @@ public class DataPoolItem extends BaseEntity {
     /** 删除标志（0代表存在 2代表删除） */
     private String delFlag;
 
+    /**
+     * 是否为固定数据池生成的数据项ID（不存在于 data_pool_item 表中）
+     */
+    public static boolean isFixedDataId(Long id) {
+        return id != null && id < 0;
+    }
     
     @Override
     public String toString() {
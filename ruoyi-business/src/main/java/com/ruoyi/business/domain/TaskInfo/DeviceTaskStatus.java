@@ -65,4 +65,7 @@ public class DeviceTaskStatus {
 
     /** 当前设备缓存池中的实际数量（轮询geta获得） */
     private Integer deviceBufferCount;
+
+    /** 吞吐率（每秒完成数量，由定时持久化任务计算） */
+    private Integer throughput;
 }
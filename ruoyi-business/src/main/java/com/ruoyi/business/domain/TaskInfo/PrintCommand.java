@@ -1,6 +1,11 @@
 package com.ruoyi.business.domain.TaskInfo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.ruoyi.business.service.TaskInfo.template.CompiledCommandTemplate;
+import io.netty.buffer.ByteBuf;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 /**
  * 打印指令
@@ -9,13 +14,13 @@ import lombok.Data;
 @Data
 public class PrintCommand {
     
-    /** 指令唯一ID */
+    /** 指令唯一ID（数据项ID），补打等不对应数据项的指令为空 */
     private Long id;
     
     /** 目标设备ID - 由调度器动态分配 */
     private String deviceId;
     
-    /** 指令内容 */
+    /** 指令内容，设置了预编译模板时按需渲染 */
     private String command;
     
     /** 指令数据 */
@@ -47,4 +52,51 @@ public class PrintCommand {
     
     /** 发送时间 */
     private Long sentTime;
+
+    /** 预编码的协议帧（STX + 0x05 + 指令 + ETX），由生产端创建，发送成功、最终失败或丢弃时释放 */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient ByteBuf frame;
+
+    /** 预编译指令模板，指令文本仅在记录日志或短连接回退时由数据渲染 */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient CompiledCommandTemplate template;
+
+    public String getCommand() {
+        if (command == null && template != null && data != null) {
+            command = template.render(data);
+        }
+        return command;
+    }
+
+    /**
+     * 是否有可发送的内容（预编码帧或指令文本），不触发渲染
+     */
+    public boolean hasContent() {
+        if (frame != null || (command == null && template != null && data != null)) {
+            return true;
+        }
+        return command != null && !command.trim().isEmpty();
+    }
+
+    /**
+     * 是否对应数据池中的数据项：补打等指令ID为空，不参与数据项追踪、已发送记录、发送日志与任务进度计数
+     */
+    public boolean hasDataItem() {
+        return id != null;
+    }
+
+    /**
+     * 释放预编码帧，重复调用无副作用
+     */
+    public void releaseFrame() {
+        ByteBuf f = this.frame;
+        this.frame = null;
+        if (f != null && f.refCnt() > 0) {
+            f.release();
+        }
+    }
 }
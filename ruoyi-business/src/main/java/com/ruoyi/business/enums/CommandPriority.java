@@ -0,0 +1,55 @@
+package com.ruoyi.business.enums;
+
+/**
+ * 打印指令优先级
+ * NORMAL(数据池批量数据), MANUAL(人工扫描录入), REPRINT(补打/质检回收补码)
+ * 每个优先级在任务指令队列中对应一条独立通道，高优先级通道先出队
+ */
+public enum CommandPriority {
+
+    /** 数据池批量数据 */
+    NORMAL(1, "批量数据"),
+
+    /** 人工扫描录入 */
+    MANUAL(2, "人工录入"),
+
+    /** 补打/质检回收补码 */
+    REPRINT(3, "补打");
+
+    private final int code;
+    private final String info;
+
+    CommandPriority(int code, String info) {
+        this.code = code;
+        this.info = info;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * 队列通道下标，与 code 一一对应
+     */
+    public int lane() {
+        return code - 1;
+    }
+
+    /**
+     * 按指令上的优先级取值，未设置或未知时按批量数据处理
+     */
+    public static CommandPriority fromCode(Integer code) {
+        if (code != null) {
+            for (CommandPriority priority : CommandPriority.values()) {
+                if (priority.code == code) {
+                    return priority;
+                }
+            }
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ruoyi.business.enums;
+
+/**
+ * 设备分配策略
+ * ROUND_ROBIN(轮询), LEAST_IN_FLIGHT(最少在途), THROUGHPUT_WEIGHTED(按吞吐率加权)
+ */
+public enum DeviceAssignStrategyType {
+
+    /** 轮询 */
+    ROUND_ROBIN("ROUND_ROBIN", "轮询"),
+
+    /** 最少在途 */
+    LEAST_IN_FLIGHT("LEAST_IN_FLIGHT", "最少在途"),
+
+    /** 按吞吐率加权 */
+    THROUGHPUT_WEIGHTED("THROUGHPUT_WEIGHTED", "按吞吐率加权");
+
+    private final String code;
+    private final String info;
+
+    DeviceAssignStrategyType(String code, String info) {
+        this.code = code;
+        this.info = info;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    public static DeviceAssignStrategyType fromCode(String code) {
+        for (DeviceAssignStrategyType type : DeviceAssignStrategyType.values()) {
+            if (type.getCode().equalsIgnoreCase(code)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("未知的设备分配策略: " + code);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ruoyi.business.enums;
+
+/**
+ * 设备上报消息类型
+ * code 为消息前缀（DATA_ERROR 为完整消息），解析器按前缀识别
+ */
+public enum DeviceEventType {
+
+    /** system:N，system:2 为心跳兼打印完成 */
+    SYSTEM("system:", "系统信号"),
+
+    /** seta:N[:指令数据]，打印指令执行结果 */
+    SETA("seta:", "打印回执"),
+
+    /** geta:N，设备缓冲区数量 */
+    GETA("geta:", "缓冲区数量"),
+
+    /** data_error，数据错误 */
+    DATA_ERROR("data_error", "数据错误"),
+
+    /** ping:…，保活回复 */
+    PING("ping:", "保活回复"),
+
+    /** 无法识别或格式不完整的消息 */
+    OTHER("", "其他");
+
+    private final String code;
+    private final String info;
+
+    DeviceEventType(String code, String info) {
+        this.code = code;
+        this.info = info;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ruoyi.business.events;
+
+/**
+ * 任务元数据变更事件
+ * 数据池、数据池模板、设备文件配置或任务设备关联被修改/删除时发布，
+ * 生产端据此作废缓存的任务上下文快照，下一轮生产时重新加载；
+ * 所有ID均为空时表示作废全部任务的快照
+ */
+public class TaskMetadataChangedEvent {
+    private final Long poolId;
+    private final Long templateId;
+    private final Long fileConfigId;
+    private final Long taskId;
+
+    private TaskMetadataChangedEvent(Long poolId, Long templateId, Long fileConfigId, Long taskId) {
+        this.poolId = poolId;
+        this.templateId = templateId;
+        this.fileConfigId = fileConfigId;
+        this.taskId = taskId;
+    }
+
+    public static TaskMetadataChangedEvent ofDataPool(Long poolId) {
+        return new TaskMetadataChangedEvent(poolId, null, null, null);
+    }
+
+    public static TaskMetadataChangedEvent ofTemplate(Long templateId) {
+        return new TaskMetadataChangedEvent(null, templateId, null, null);
+    }
+
+    public static TaskMetadataChangedEvent ofFileConfig(Long fileConfigId) {
+        return new TaskMetadataChangedEvent(null, null, fileConfigId, null);
+    }
+
+    public static TaskMetadataChangedEvent ofTask(Long taskId) {
+        return new TaskMetadataChangedEvent(null, null, null, taskId);
+    }
+
+    public Long getPoolId() {
+        return poolId;
+    }
+
+    public Long getTemplateId() {
+        return templateId;
+    }
+
+    public Long getFileConfigId() {
+        return fileConfigId;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * 是否作废全部任务的快照
+     */
+    public boolean isGlobal() {
+        return poolId == null && templateId == null && fileConfigId == null && taskId == null;
+    }
+}
@@ -24,6 +24,10 @@ public interface DataInspectMapper {
 
     void batchInsertDataInspect(List<DataInspect> toInsert);
 
+    int insertPrintRecordFromItem(Long itemId, Long taskId, Long printDeviceId, String printTime);
+
+    int insertFixedPrintRecord(Long taskId, Long printDeviceId, String printTime);
+
     void deleteByIdList(List<Long> idList);
 }
 
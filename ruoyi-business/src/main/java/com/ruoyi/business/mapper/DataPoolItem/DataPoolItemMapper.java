@@ -52,6 +52,24 @@ public interface DataPoolItemMapper {
      */
     public List<DataPoolItem> selectPendingItems(Long poolId, Integer limit);
 
+    /**
+     * 认领待打印的数据项（PENDING -> PRINTING），单条语句更新并返回被认领的行
+     *
+     * @param poolId 数据池ID（可选）
+     * @param limit 限制数量
+     * @return 被认领的数据项（返回顺序不保证）
+     */
+    public List<DataPoolItem> claimPendingItems(Long poolId, Integer limit);
+
+    /**
+     * 按数据项ID认领待打印的数据项（PENDING -> PRINTING），仅认领仍为待打印的行
+     *
+     * @param poolId 数据池ID
+     * @param ids 数据项ID集合
+     * @return 被认领的数据项（返回顺序不保证）
+     */
+    public List<DataPoolItem> claimPendingItemsByIds(Long poolId, List<Long> ids);
+
     /**
      * 获取待打印的数据项（分页格式）
      * 
@@ -169,6 +187,34 @@ public interface DataPoolItemMapper {
      */
     public int updateDataPoolItemsStatus(List<Long> ids, String status,Long deviceId);
 
+    /**
+     * 按ID更新单个数据项状态与设备ID
+     *
+     * @param id 数据项ID
+     * @param status 新状态
+     * @param deviceId 设备ID
+     * @return 结果
+     */
+    public int updateItemStatusAndDevice(Long id, String status, Long deviceId);
+
+    /**
+     * 日志回放：未落库的已发送数据项标记为已打印（仅 PENDING/PRINTING 状态且属于任务的数据池）
+     *
+     * @param id 数据项ID
+     * @param taskId 任务ID
+     * @param deviceId 设备ID
+     * @return 结果
+     */
+    public int restorePrintedItem(Long id, Long taskId, Long deviceId);
+
+    /**
+     * 日志回放：最终发送失败的数据项恢复为待打印（仅 PRINTING 状态）
+     *
+     * @param id 数据项ID
+     * @return 结果
+     */
+    public int restorePendingItem(Long id);
+
     /**
      * 获取已打印的数据项数量
      * @param deviceId 设备ID
@@ -19,6 +19,12 @@ public interface TaskDeviceLinkMapper {
     /** 更新关联 */
     int updateTaskDeviceLink(TaskDeviceLink link);
 
+    /** 多行批量更新设备计数（按任务ID+设备ID匹配） */
+    int batchUpdateCounters(@Param("list") List<TaskDeviceLink> links);
+
+    /** 日志回放：设备累计数量取已持久化值与日志值中的较大者 */
+    int restoreCounters(@Param("list") List<TaskDeviceLink> links);
+
     /** 软删除（按任务ID） */
     int deleteByTaskId(@Param("taskId") Long taskId);
 
@@ -29,6 +29,9 @@ public interface TaskInfoMapper {
     /** 更新任务 */
     int updateTaskInfo(TaskInfo taskInfo);
 
+    /** 按设备关联汇总刷新任务的发送与接收数量 */
+    int refreshTaskQuantities(@Param("id") Long id);
+
     /** 批量软删除任务（del_flag=2） */
     int deleteTaskInfoByIds(@Param("ids") Long[] ids);
 
@@ -4,6 +4,7 @@ import com.ruoyi.business.domain.DataPool.DataPool;
 import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
 import com.ruoyi.business.enums.ConnectionState;
 import com.ruoyi.business.enums.PoolStatus;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
 import com.ruoyi.business.mapper.DataPool.DataPoolMapper;
 import com.ruoyi.business.mapper.DataPoolItem.DataPoolItemMapper;
 import com.ruoyi.business.service.DataPool.DataPoolSchedulerService;
@@ -11,6 +12,7 @@ import com.ruoyi.business.service.DataPool.IDataPoolService;
 import com.ruoyi.common.utils.DatabaseRetryUtil;
 import com.ruoyi.common.utils.DateUtils;
 import jakarta.annotation.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
@@ -32,6 +34,9 @@ public class DataPoolServiceImpl implements IDataPoolService
     @Resource
     private DataPoolItemMapper dataPoolItemMapper;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
 
     /**
      * 查询数据池列表
@@ -87,7 +92,9 @@ public class DataPoolServiceImpl implements IDataPoolService
     public int updateDataPool(DataPool dataPool)
     {
         dataPool.setUpdateTime(DateUtils.getNowDate());
-        return dataPoolMapper.updateDataPool(dataPool);
+        int rows = dataPoolMapper.updateDataPool(dataPool);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofDataPool(dataPool.getId()));
+        return rows;
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.ruoyi.business.service.DataPool.type.TcpClient.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import com.ruoyi.business.enums.PoolStatus;
 import com.ruoyi.business.service.DataPool.IDataPoolService;
 import com.ruoyi.business.service.DataPool.DataPoolConfigFactory;
@@ -38,6 +39,8 @@ public class TcpServerManager {
     private DataPoolConfigFactory configFactory;
     @Resource
     private ApplicationEventPublisher eventPublisher;
+    @Resource
+    private NettyTransport nettyTransport;
     
     // 缓存 TCP 服务端提供者实例
     private final Map<Long, TcpServerProvider> providers = new ConcurrentHashMap<>();
@@ -48,7 +51,7 @@ public class TcpServerManager {
     public TcpServerProvider getOrCreateProvider(Long poolId) {
         return providers.computeIfAbsent(poolId, id -> {
             log.info("创建新的 TCP 服务端提供者，数据池ID: {}", id);
-            TcpServerProvider provider = new TcpServerProvider(id, dataPoolService, configFactory, dataIngestionService, parsingRuleEngineService, eventPublisher);
+            TcpServerProvider provider = new TcpServerProvider(id, dataPoolService, configFactory, dataIngestionService, parsingRuleEngineService, eventPublisher, nettyTransport);
             provider.initialize();
             
             // 等待初始化完成，最多等待2秒
@@ -1,5 +1,6 @@
 package com.ruoyi.business.service.DataPool.type.TcpClient.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import com.ruoyi.business.domain.DataPool.DataPool;
 import com.ruoyi.business.domain.config.ParsingRuleConfig;
 import com.ruoyi.business.domain.config.TcpClientSourceConfig;
@@ -15,9 +16,7 @@ import com.ruoyi.business.enums.ConnectionState;
 import com.ruoyi.business.enums.PoolStatus;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.Delimiters;
 import io.netty.handler.codec.string.StringDecoder;
@@ -50,8 +49,8 @@ public class TcpServerProvider {
     private volatile TriggerConfig triggerConfig;
     private volatile ParsingRuleConfig parsingRuleConfig;
     
-    private EventLoopGroup bossGroup;
-    private EventLoopGroup workerGroup;
+    // 共享传输线程组，不随数据池单独创建
+    private final NettyTransport nettyTransport;
     private Channel serverChannel;
     
     // 守门员机制：只允许一个客户端连接
@@ -65,13 +64,15 @@ public class TcpServerProvider {
                              DataPoolConfigFactory configFactory,
                              DataIngestionService dataIngestionService,
                              ParsingRuleEngineService parsingRuleEngineService,
-                             ApplicationEventPublisher eventPublisher) {
+                             ApplicationEventPublisher eventPublisher,
+                             NettyTransport nettyTransport) {
         this.poolId = poolId;
         this.dataPoolService = dataPoolService;
         this.configFactory = configFactory;
         this.dataIngestionService = dataIngestionService;
         this.parsingRuleEngineService = parsingRuleEngineService;
         this.eventPublisher = eventPublisher;
+        this.nettyTransport = nettyTransport;
         reloadConfigs();
     }
 
@@ -133,12 +134,9 @@ public class TcpServerProvider {
         }
         
         try {
-            bossGroup = new NioEventLoopGroup(1);
-            workerGroup = new NioEventLoopGroup(1);
-            
             ServerBootstrap bootstrap = new ServerBootstrap();
-            bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+            bootstrap.group(nettyTransport.bossGroup(), nettyTransport.workerGroup())
+                    .channel(nettyTransport.serverSocketChannelClass())
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
@@ -149,8 +147,8 @@ public class TcpServerProvider {
                             pipeline.addLast(new StringDecoder(CharsetUtil.UTF_8));
                             pipeline.addLast(new StringEncoder(CharsetUtil.UTF_8));
                             
-                            // 自定义处理器
-                            pipeline.addLast(new TcpServerHandler(TcpServerProvider.this));
+                            // 自定义处理器：收到数据后直接写库，放到处理线程组执行，不占用共享 IO 线程
+                            pipeline.addLast(nettyTransport.blockingHandlerGroup(), new TcpServerHandler(TcpServerProvider.this));
                         }
                     })
                     .option(ChannelOption.SO_BACKLOG, 128)
@@ -169,15 +167,6 @@ public class TcpServerProvider {
         } catch (Exception e) {
             log.error("TCP 服务端启动失败，数据池ID: {}, 端口: {}", poolId, sourceConfig.getListenPort(), e);
             updateConnectionState(ConnectionState.ERROR);
-            
-            // 清理资源
-            if (bossGroup != null) {
-                bossGroup.shutdownGracefully();
-            }
-            if (workerGroup != null) {
-                workerGroup.shutdownGracefully();
-            }
-            
             return false;
         }
     }
@@ -315,14 +304,6 @@ public class TcpServerProvider {
             serverChannel.close();
         }
         
-        if (bossGroup != null) {
-            bossGroup.shutdownGracefully();
-        }
-        
-        if (workerGroup != null) {
-            workerGroup.shutdownGracefully();
-        }
-        
         updateConnectionState(ConnectionState.DISCONNECTED);
         log.info("TCP 服务端已关闭，数据池ID: {}", poolId);
     }
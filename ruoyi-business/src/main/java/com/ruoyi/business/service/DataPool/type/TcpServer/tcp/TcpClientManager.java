@@ -1,5 +1,6 @@
 package com.ruoyi.business.service.DataPool.type.TcpServer.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import com.ruoyi.business.enums.ConnectionState;
 import com.ruoyi.business.enums.PoolStatus;
 import com.ruoyi.business.service.DataPool.DataPoolConfigFactory;
@@ -33,12 +34,14 @@ public class TcpClientManager {
     private ParsingRuleEngineService parsingRuleEngineService;
     @Resource
     private ApplicationEventPublisher eventPublisher;
+    @Resource
+    private NettyTransport nettyTransport;
 
     private final Map<Long, TcpClientProvider> providers = new ConcurrentHashMap<>();
 
     public TcpClientProvider getOrCreateProvider(Long poolId) {
         return providers.computeIfAbsent(poolId, id -> {
-            TcpClientProvider provider = new TcpClientProvider(id, dataPoolService, configFactory, ingestionService, parsingRuleEngineService, eventPublisher);
+            TcpClientProvider provider = new TcpClientProvider(id, dataPoolService, configFactory, ingestionService, parsingRuleEngineService, eventPublisher, nettyTransport);
             provider.ensureConnected();
             
             // 等待连接完成，最多等待2秒
@@ -1,5 +1,6 @@
 package com.ruoyi.business.service.DataPool.type.TcpServer.tcp;
 
+import com.ruoyi.business.config.NettyTransport;
 import com.ruoyi.business.domain.DataPool.DataPool;
 import com.ruoyi.business.domain.config.ParsingRuleConfig;
 import com.ruoyi.business.domain.config.TcpServerSourceConfig;
@@ -15,8 +16,6 @@ import com.ruoyi.business.enums.ConnectionState;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.DelimiterBasedFrameDecoder;
 import io.netty.handler.codec.Delimiters;
 import io.netty.handler.codec.string.StringDecoder;
@@ -49,7 +48,8 @@ public class TcpClientProvider {
     private volatile TriggerConfig triggerConfig;
     private volatile ParsingRuleConfig parsingRuleConfig;
 
-    private final EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+    // 共享传输线程组，不随数据池单独创建
+    private final NettyTransport nettyTransport;
     private Bootstrap bootstrap;
     private volatile Channel channel;
     private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
@@ -60,13 +60,15 @@ public class TcpClientProvider {
                              DataPoolConfigFactory configFactory,
                              DataIngestionService ingestionService,
                              ParsingRuleEngineService parsingRuleEngineService,
-                             ApplicationEventPublisher eventPublisher) {
+                             ApplicationEventPublisher eventPublisher,
+                             NettyTransport nettyTransport) {
         this.poolId = poolId;
         this.dataPoolService = dataPoolService;
         this.configFactory = configFactory;
         this.ingestionService = ingestionService;
         this.parsingRuleEngineService = parsingRuleEngineService;
         this.eventPublisher = eventPublisher;
+        this.nettyTransport = nettyTransport;
         reloadConfigs();
         initBootstrap();
     }
@@ -99,8 +101,8 @@ public class TcpClientProvider {
 
     private void initBootstrap() {
         this.bootstrap = new Bootstrap();
-        bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
+        bootstrap.group(nettyTransport.workerGroup())
+                .channel(nettyTransport.socketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.SO_KEEPALIVE, true)
                 .handler(new ChannelInitializer<Channel>() {
@@ -110,7 +112,8 @@ public class TcpClientProvider {
                                 .addLast(new DelimiterBasedFrameDecoder(8192, Delimiters.lineDelimiter()))
                                 .addLast(new StringDecoder(StandardCharsets.UTF_8))
                                 .addLast(new StringEncoder(StandardCharsets.UTF_8))
-                                .addLast(new TcpClientHandler(TcpClientProvider.this));
+                                // 收到数据后直接写库，放到处理线程组执行，不占用共享 IO 线程
+                                .addLast(nettyTransport.blockingHandlerGroup(), new TcpClientHandler(TcpClientProvider.this));
                     }
                 });
     }
@@ -223,10 +226,6 @@ public class TcpClientProvider {
             channel = null;
         }
         
-        if (eventLoopGroup != null) {
-            eventLoopGroup.shutdownGracefully();
-        }
-        
         log.info("[TcpClientProvider] 连接已关闭");
     }
 
@@ -56,6 +56,24 @@ public interface IDataPoolItemService {
      */
     public List<DataPoolItem> selectPendingItems(Long poolId, Integer limit);
 
+    /**
+     * 认领待打印的数据项（PENDING -> PRINTING），查询与状态更新为同一条语句，不会重复认领
+     *
+     * @param poolId 数据池ID
+     * @param limit 限制数量
+     * @return 被认领的数据项（按ID升序）
+     */
+    public List<DataPoolItem> claimPendingItems(Long poolId, int limit);
+
+    /**
+     * 按数据项ID认领待打印的数据项（人工录入、质检回收补码插队时使用），已被认领或不属于该数据池的数据项跳过
+     *
+     * @param poolId 数据池ID
+     * @param ids 数据项ID集合
+     * @return 被认领的数据项（按ID升序）
+     */
+    public List<DataPoolItem> claimPendingItemsByIds(Long poolId, List<Long> ids);
+
     /**
      * 获取待打印的数据项（分页格式）
      * 
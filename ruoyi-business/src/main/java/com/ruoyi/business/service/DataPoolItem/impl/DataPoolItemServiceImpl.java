@@ -26,6 +26,11 @@ import java.util.stream.Collectors;
  */
 @Service
 public class DataPoolItemServiceImpl implements IDataPoolItemService {
+
+    // 单条认领语句最多认领的行数，控制每段写事务的时长
+    private static final int CLAIM_CHUNK_SIZE = 1000;
+    // 单条 IN 语句的最大ID数量，低于旧版 SQLite 绑定变量上限 999
+    private static final int IN_CHUNK_SIZE = 900;
     
     @Resource
     private DataPoolItemMapper dataPoolItemMapper;
@@ -86,6 +91,47 @@ public class DataPoolItemServiceImpl implements IDataPoolItemService {
         return dataPoolItemMapper.selectPendingItems(poolId, limit);
     }
 
+    /**
+     * 认领待打印的数据项
+     * 按 CLAIM_CHUNK_SIZE 分段执行 UPDATE ... RETURNING，每段只有两个绑定参数，且写锁持有时间短
+     *
+     * @param poolId 数据池ID
+     * @param limit 限制数量
+     * @return 被认领的数据项（按ID升序）
+     */
+    @Override
+    public List<DataPoolItem> claimPendingItems(Long poolId, int limit) {
+        List<DataPoolItem> claimed = new ArrayList<>(Math.min(Math.max(limit, 0), CLAIM_CHUNK_SIZE));
+        while (claimed.size() < limit) {
+            int chunk = Math.min(CLAIM_CHUNK_SIZE, limit - claimed.size());
+            List<DataPoolItem> rows = dataPoolItemMapper.claimPendingItems(poolId, chunk);
+            // RETURNING 不保证返回顺序，分段内按ID排序；各分段ID递增，整体保持先进先打
+            rows.sort(Comparator.comparing(DataPoolItem::getId));
+            claimed.addAll(rows);
+            if (rows.size() < chunk) {
+                break;
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 按数据项ID认领待打印的数据项
+     *
+     * @param poolId 数据池ID
+     * @param ids 数据项ID集合
+     * @return 被认领的数据项（按ID升序）
+     */
+    @Override
+    public List<DataPoolItem> claimPendingItemsByIds(Long poolId, List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<DataPoolItem> claimed = dataPoolItemMapper.claimPendingItemsByIds(poolId, ids);
+        claimed.sort(Comparator.comparing(DataPoolItem::getId));
+        return claimed;
+    }
+
     /**
      * 获取待打印的数据项（分页格式）
      * 
@@ -164,7 +210,11 @@ public void updateDataPoolItemsStatus(List<DataPoolItem> itemList, String status
                                             .map(DataPoolItem::getId)
                                             .toList();
 
-        dataPoolItemMapper.updateItemsStatus(idsInGroup, status);
+        // 分段更新，IN 列表参数数量不超过 SQLite 绑定变量上限
+        for (int from = 0; from < idsInGroup.size(); from += IN_CHUNK_SIZE) {
+            int to = Math.min(from + IN_CHUNK_SIZE, idsInGroup.size());
+            dataPoolItemMapper.updateItemsStatus(idsInGroup.subList(from, to), status);
+        }
     }
 
     /**
@@ -1,9 +1,11 @@
 package com.ruoyi.business.service.DataPoolTemplate.impl;
 
 import com.ruoyi.business.domain.DataPoolTemplate.DataPoolTemplate;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
 import com.ruoyi.business.mapper.DataPoolTemplate.DataPoolTemplateMapper;
 import com.ruoyi.business.service.DataPoolTemplate.IDataPoolTemplateService;
 import jakarta.annotation.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +16,9 @@ public class DataPoolTemplateServiceImpl implements IDataPoolTemplateService {
     @Resource
     private DataPoolTemplateMapper dataPoolTemplateMapper;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public DataPoolTemplate selectDataPoolTemplateById(Long id) {
         return dataPoolTemplateMapper.selectDataPoolTemplateById(id);
@@ -36,17 +41,25 @@ public class DataPoolTemplateServiceImpl implements IDataPoolTemplateService {
 
     @Override
     public int updateDataPoolTemplate(DataPoolTemplate template) {
-        return dataPoolTemplateMapper.updateDataPoolTemplate(template);
+        int rows = dataPoolTemplateMapper.updateDataPoolTemplate(template);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTemplate(template.getId()));
+        return rows;
     }
 
     @Override
     public int deleteDataPoolTemplateById(Long id) {
-        return dataPoolTemplateMapper.deleteDataPoolTemplateById(id);
+        int rows = dataPoolTemplateMapper.deleteDataPoolTemplateById(id);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTemplate(id));
+        return rows;
     }
 
     @Override
     public int deleteDataPoolTemplateByIds(Long[] ids) {
-        return dataPoolTemplateMapper.deleteDataPoolTemplateByIds(ids);
+        int rows = dataPoolTemplateMapper.deleteDataPoolTemplateByIds(ids);
+        for (Long id : ids) {
+            eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTemplate(id));
+        }
+        return rows;
     }
 }
 
@@ -3,6 +3,7 @@ package com.ruoyi.business.service.DeviceFileConfig.impl;
 import java.util.List;
 
 import com.ruoyi.business.domain.DeviceInfo.DeviceInfo;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
 import com.ruoyi.business.service.DeviceInfo.IDeviceInfoService;
 import com.ruoyi.business.service.DeviceInfo.impl.DeviceInfoServiceImpl;
 import com.ruoyi.common.core.TcpResponse;
@@ -10,6 +11,7 @@ import com.ruoyi.common.utils.DateUtils;
 import com.ruoyi.common.utils.StringUtils;
 import jakarta.annotation.Resource;
 import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import com.ruoyi.business.mapper.DeviceFileConfig.DeviceFileConfigMapper;
 import com.ruoyi.business.domain.DeviceFileConfig.DeviceFileConfig;
@@ -30,6 +32,9 @@ public class DeviceFileConfigServiceImpl implements IDeviceFileConfigService
     @Resource
     private IDeviceInfoService deviceInfoService;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * 查询设备文件配置
      * 
@@ -134,7 +139,9 @@ public class DeviceFileConfigServiceImpl implements IDeviceFileConfigService
     public int updateDeviceFileConfig(DeviceFileConfig deviceFileConfig)
     {
         deviceFileConfig.setUpdateTime(DateUtils.getNowDate());
-        return deviceFileConfigMapper.updateDeviceFileConfig(deviceFileConfig);
+        int rows = deviceFileConfigMapper.updateDeviceFileConfig(deviceFileConfig);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofFileConfig(deviceFileConfig.getId()));
+        return rows;
     }
 
     /**
@@ -146,7 +153,11 @@ public class DeviceFileConfigServiceImpl implements IDeviceFileConfigService
     @Override
     public int deleteDeviceFileConfigByIds(Long[] ids)
     {
-        return deviceFileConfigMapper.deleteDeviceFileConfigByIds(ids);
+        int rows = deviceFileConfigMapper.deleteDeviceFileConfigByIds(ids);
+        for (Long id : ids) {
+            eventPublisher.publishEvent(TaskMetadataChangedEvent.ofFileConfig(id));
+        }
+        return rows;
     }
 
     /**
@@ -158,7 +169,9 @@ public class DeviceFileConfigServiceImpl implements IDeviceFileConfigService
     @Override
     public int deleteDeviceFileConfigById(Long id)
     {
-        return deviceFileConfigMapper.deleteDeviceFileConfigById(id);
+        int rows = deviceFileConfigMapper.deleteDeviceFileConfigById(id);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofFileConfig(id));
+        return rows;
     }
 
     /**
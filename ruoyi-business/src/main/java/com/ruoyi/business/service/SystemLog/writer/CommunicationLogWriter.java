@@ -0,0 +1,217 @@
+package com.ruoyi.business.service.SystemLog.writer;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import com.ruoyi.business.domain.SystemLog.SystemLog;
+import com.ruoyi.business.service.SystemLog.ISystemLogService;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 设备通讯日志异步批量写入
+ * 设备消息处理线程只把日志放入有界无锁缓冲，由单个后台线程按批次调用 batchInsert 写库，
+ * 避免每条上报消息一次 SQLite 单行插入；缓冲写满时直接丢弃并计数，消息处理从不等待日志。
+ * 心跳/完成信号、缓冲查询回复等高频消息可按前缀配置采样或不记录，成功发送的指令按固定间隔采样，异常日志不采样
+ */
+@Component
+public class CommunicationLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(CommunicationLogWriter.class);
+
+    // 每行 10 个绑定变量，控制在 SQLite 旧版本 999 个变量上限以内
+    private static final int ROWS_PER_STATEMENT = 90;
+
+    @Autowired
+    private ISystemLogService systemLogService;
+
+    @Autowired
+    private TaskDispatchProperties properties;
+
+    private LogRingBuffer<SystemLog> buffer;
+    private int batchSize;
+    private long flushIntervalNanos;
+
+    // 按消息前缀采样的规则，按配置顺序匹配第一条
+    private byte[][] samplePrefixes = new byte[0][];
+    private int[] sampleEvery = new int[0];
+    private AtomicLong[] sampleCounters = new AtomicLong[0];
+    private int sendSampleEvery = 1;
+    private final AtomicLong sendSampleCounter = new AtomicLong(0);
+
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong skippedCount = new AtomicLong(0);
+    private final AtomicLong writtenCount = new AtomicLong(0);
+    // 上次输出告警时的丢弃数量
+    private long reportedDropped;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @PostConstruct
+    public void init() {
+        TaskDispatchProperties.CommLogConfig config = properties.getCommLog();
+        buffer = new LogRingBuffer<>(config.getBufferSize());
+        batchSize = Math.max(1, config.getBatchSize());
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10L, config.getFlushIntervalMs()));
+
+        Map<String, Integer> rules = config.getSampleEvery();
+        int n = rules == null ? 0 : rules.size();
+        samplePrefixes = new byte[n][];
+        sampleEvery = new int[n];
+        sampleCounters = new AtomicLong[n];
+        int i = 0;
+        if (rules != null) {
+            for (Map.Entry<String, Integer> rule : rules.entrySet()) {
+                samplePrefixes[i] = rule.getKey().getBytes(StandardCharsets.UTF_8);
+                sampleEvery[i] = rule.getValue() == null ? 1 : Math.max(0, rule.getValue());
+                sampleCounters[i] = new AtomicLong(0);
+                i++;
+            }
+        }
+
+        sendSampleEvery = config.getSendSampleEvery() == null ? 1 : Math.max(0, config.getSendSampleEvery());
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "comm-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("设备通讯日志异步写入已启动，缓冲容量: {}，批次大小: {}，采样规则: {}", buffer.getCapacity(), batchSize, rules);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            LockSupport.unpark(writerThread);
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 按采样规则判断该消息是否需要记录（先判断再组装日志，不记录的消息不查询任务与数据池）
+     *
+     * @param event 设备上报的消息
+     */
+    public boolean shouldRecord(DeviceEvent event) {
+        for (int i = 0; i < samplePrefixes.length; i++) {
+            if (event.startsWith(samplePrefixes[i])) {
+                int every = sampleEvery[i];
+                if (every > 0 && sampleCounters[i].getAndIncrement() % every == 0) {
+                    return true;
+                }
+                skippedCount.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按发送采样间隔判断本次成功发送是否需要记录（先判断再渲染指令文本）
+     */
+    public boolean shouldRecordSend() {
+        int every = sendSampleEvery;
+        if (every > 0 && sendSampleCounter.getAndIncrement() % every == 0) {
+            return true;
+        }
+        skippedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 放入一条日志，缓冲已满时丢弃
+     *
+     * @return 是否放入成功
+     */
+    public boolean offer(SystemLog systemLog) {
+        if (systemLog.getLogTime() == null) {
+            // 以接收时间入库，而不是写库时间
+            systemLog.setLogTime(new Date());
+        }
+        if (!running || !buffer.offer(systemLog)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<SystemLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            int drained = buffer.drainTo(batch, batchSize);
+            if (drained > 0) {
+                write(batch);
+                batch.clear();
+            }
+            reportDropped();
+            if (drained < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        // 停止前写完缓冲中剩余的日志
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<SystemLog> batch) {
+        for (int from = 0; from < batch.size(); from += ROWS_PER_STATEMENT) {
+            List<SystemLog> rows = batch.subList(from, Math.min(batch.size(), from + ROWS_PER_STATEMENT));
+            try {
+                systemLogService.batchInsert(rows);
+                writtenCount.addAndGet(rows.size());
+            } catch (Exception e) {
+                droppedCount.addAndGet(rows.size());
+                log.error("批量写入设备通讯日志失败，丢弃 {} 条", rows.size(), e);
+            }
+        }
+    }
+
+    private void reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped != reportedDropped) {
+            log.warn("设备通讯日志缓冲已满或写入失败，累计丢弃 {} 条（本次新增 {} 条）", dropped, dropped - reportedDropped);
+            reportedDropped = dropped;
+        }
+    }
+
+    /**
+     * 已丢弃的日志数量（缓冲已满或写库失败）
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 按采样规则未记录的消息数量
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public int getPendingCount() {
+        return buffer == null ? 0 : buffer.size();
+    }
+}
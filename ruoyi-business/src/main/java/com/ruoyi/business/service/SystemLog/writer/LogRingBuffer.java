@@ -0,0 +1,94 @@
+package com.ruoyi.business.service.SystemLog.writer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁日志环形缓冲（多写单读）
+ * 每个槽位带序号：写入方以 CAS 抢占写入位置后填充槽位并发布序号，读取方按序号判断槽位是否已写完；
+ * 缓冲写满时写入直接失败，由调用方计数丢弃，写入方从不等待
+ */
+public class LogRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    // 下一个写入位置，多个写入方竞争
+    private final AtomicLong tail = new AtomicLong(0);
+    // 下一个读取位置，仅读取方修改
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入一条记录
+     *
+     * @return 是否写入成功；缓冲已满时返回false
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long pos = tail.get();
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+            if (diff == 0L) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(slot, element);
+                    // 序号推进到 pos+1 表示槽位已写完，读取方可见
+                    sequences.lazySet(slot, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0L) {
+                // 槽位尚未被读取方释放，缓冲已满
+                return false;
+            }
+            // 其他写入方已抢占该位置，重新读取写入位置
+        }
+    }
+
+    /**
+     * 按写入顺序取出最多指定数量的记录（仅读取方调用）
+     *
+     * @return 取出的记录数
+     */
+    public int drainTo(List<T> target, int maxElements) {
+        long h = head;
+        int n = 0;
+        while (n < maxElements) {
+            int slot = (int) h & mask;
+            if (sequences.get(slot) != h + 1) {
+                // 该位置尚未写入或写入方仍在填充
+                break;
+            }
+            target.add(elements.get(slot));
+            elements.lazySet(slot, null);
+            // 释放槽位给下一轮写入
+            sequences.lazySet(slot, h + mask + 1);
+            h++;
+            n++;
+        }
+        head = h;
+        return n;
+    }
+
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
@@ -1,7 +1,9 @@
 package com.ruoyi.business.service.TaskInfo;
 
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import com.ruoyi.business.service.TaskInfo.queue.SentRecordBatch;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 指令队列服务接口
@@ -15,6 +17,35 @@ public interface CommandQueueService {
      * @param command 打印指令
      */
     void addCommandToQueue(PrintCommand command);
+
+    /**
+     * 将已取出的指令放回队列（暂存指令交还、延迟重试到期、补打），不做重复校验
+     *
+     * @param command 打印指令
+     */
+    void requeueCommand(PrintCommand command);
+
+    /**
+     * 发送失败的指令按设备退避延迟后放回队列
+     *
+     * @param command 打印指令（deviceId 为本次发送失败的设备）
+     * @return 重试延迟（毫秒）
+     */
+    long scheduleRetry(PrintCommand command);
+
+    /**
+     * 设备发送成功，清零该设备的重试退避
+     *
+     * @param deviceId 设备ID
+     */
+    void recordSendSuccess(String deviceId);
+
+    /**
+     * 指令最终失败，结束其数据项的追踪
+     *
+     * @param command 打印指令
+     */
+    void releaseCommand(PrintCommand command);
     
     /**
      * 获取下一个指令
@@ -24,6 +55,38 @@ public interface CommandQueueService {
      * @throws InterruptedException 中断异常
      */
     PrintCommand getNextCommand(Long taskId) throws InterruptedException;
+
+    /**
+     * 获取下一个指令，队列为空时阻塞等待新指令入队
+     *
+     * @param taskId 任务ID
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 打印指令，超时仍无指令时返回null
+     * @throws InterruptedException 中断异常
+     */
+    PrintCommand getNextCommand(Long taskId, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 等待任务队列被消费到低水位及以下
+     *
+     * @param taskId 任务ID
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否已降到低水位
+     * @throws InterruptedException 中断异常
+     */
+    boolean awaitLowWatermark(Long taskId, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 任务队列距高水位的余量，生产端本轮最多写入该数量
+     */
+    int getQueueHeadroom(Long taskId);
+
+    /**
+     * 任务队列高低水位之差，即每次补货的数量
+     */
+    int getRefillSize(Long taskId);
     
     /**
      * 获取队列大小
@@ -52,6 +115,11 @@ public interface CommandQueueService {
      */
     void removeTrackingQueue(Long taskId);
 
+    /**
+     * 指定任务正在追踪的数据项数量（队列中、发送中、已发送待落库）
+     */
+    int getTrackedItemCount(Long taskId);
+
     /**
      * 获取当前队列中所有指令的快照（不会移除）
      */
@@ -66,28 +134,26 @@ public interface CommandQueueService {
     boolean removeCommand(PrintCommand command);
     
     /**
-     * 记录已发送的数据项（轻量通道）
+     * 记录已发送的数据项，待落库的记录已达缓冲上限时阻塞等待落库
      *
      * @param taskId 任务ID
      * @param dataPoolItemId 数据项ID
-     * @param dataPoolItemData 数据内容
      * @param deviceId 设备ID
-     * @param poolId 数据项所属的池ID
      */
-    void addSentRecord(Long taskId, Long dataPoolItemId, String dataPoolItemData, String deviceId, Long poolId);
+    void addSentRecord(Long taskId, Long dataPoolItemId, String deviceId);
 
     /**
-     * 兼容方法（无设备ID），等价于 deviceId=null
+     * 针对指定任务，按发送顺序抽取并移除最多指定数量的已发送记录，追加到批次中
+     *
+     * @param taskId 任务ID
+     * @param batch 落库批次
+     * @param maxRecords 最多抽取数量
+     * @return 抽取的记录数
      */
-    default void addSentRecord(Long taskId, Long dataPoolItemId) {
-        addSentRecord(taskId, dataPoolItemId, null, null, null);
-    }
+    int drainSentRecordsForTask(Long taskId, SentRecordBatch batch, int maxRecords);
 
     /**
-     * 针对指定任务，获取并移除其已发送记录（原子方式抽取）
-     *
-     * @param taskId 任务ID
-     * @return 该任务的已发送记录（包含数据项ID与设备ID）
+     * 指定任务待落库的已发送记录数量
      */
-    List<SentRecord> drainSentRecordsForTask(Long taskId);
+    int getSentRecordCount(Long taskId);
 }
@@ -1,5 +1,8 @@
 package com.ruoyi.business.service.TaskInfo;
 
+import com.ruoyi.business.enums.CommandPriority;
+
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -13,8 +16,10 @@ public interface DataPoolProducerService {
      * 
      * @param taskId 任务ID
      * @param poolId 数据池ID
+     * @param planPrintCount 计划打印数量，-1 表示不限
+     * @param originalCount 启动时已完成的数量
      */
-    void startProduction(Long taskId, Long poolId);
+    void startProduction(Long taskId, Long poolId, int planPrintCount, int originalCount);
     
     /**
      * 停止数据生产
@@ -60,6 +65,16 @@ public interface DataPoolProducerService {
      */
     void resumeProduction(Long taskId);
     
+    /**
+     * 插队发送数据项（人工录入、质检回收补码）
+     * 正在生产的任务按ID认领这些数据项并以指定优先级入队，无运行中任务时数据项保持待打印，按批次正常发送
+     *
+     * @param poolId 数据池ID，为null时交给所有运行中的任务，由各任务只认领本数据池的数据项
+     * @param itemIds 数据项ID集合
+     * @param priority 指令优先级
+     */
+    void expediteItems(Long poolId, List<Long> itemIds, CommandPriority priority);
+    
     /**
      * 获取生产统计信息
      * 
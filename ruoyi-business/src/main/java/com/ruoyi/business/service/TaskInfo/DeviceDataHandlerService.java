@@ -1,5 +1,7 @@
 package com.ruoyi.business.service.TaskInfo;
 
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceEvent;
+
 /**
  * 设备数据处理服务接口
  * 负责处理设备上报的信息，监控设备状态
@@ -13,6 +15,14 @@ public interface DeviceDataHandlerService {
      * @param data 设备数据
      */
     void handleDeviceData(String deviceId, String data);
+
+    /**
+     * 处理已解析的设备消息 - 由拆帧后的分发线程调用
+     *
+     * @param deviceId 设备ID
+     * @param event 解析后的设备消息
+     */
+    void handleDeviceEvent(String deviceId, DeviceEvent event);
     
     /**
      * 处理打印完成信号
@@ -88,6 +98,14 @@ public interface DeviceDataHandlerService {
      */
     void handleBufferCountReport(String deviceId, Integer bufferCount);
     
+    /**
+     * 处理设备通道可写状态变化（出站缓冲越过高/低水位）
+     * 
+     * @param deviceId 设备ID
+     * @param writable 是否可写
+     */
+    void handleWritabilityChanged(String deviceId, boolean writable);
+    
     /**
      * 获取设备统计信息
      * 
@@ -4,6 +4,9 @@ import com.ruoyi.business.domain.TaskInfo.TaskDispatchRequest;
 import com.ruoyi.business.domain.TaskInfo.TaskDispatchStatus;
 import com.ruoyi.business.domain.TaskInfo.DeviceTaskStatus;
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * 任务调度服务接口
@@ -48,6 +51,14 @@ public interface TaskDispatcherService {
      * @param taskId 任务ID
      */
     void reportCommandCompleted(String deviceId, Long taskId);
+
+    /**
+     * 获取任务进度计数器（认领/发送/完成），任务未启动时返回null
+     *
+     * @param taskId 任务ID
+     * @return 任务进度计数器
+     */
+    TaskProgressCounter getTaskProgress(Long taskId);
     
     /**
      * 报告错误
@@ -67,6 +78,43 @@ public interface TaskDispatcherService {
      */
     boolean canDeviceReceiveCommand(String deviceId);
 
+    /**
+     * 占用设备一个在途额度（发送前调用，原子地检查并占用）
+     *
+     * @param deviceId 设备ID
+     * @return 是否占用成功
+     */
+    boolean tryAcquireDeviceCredit(String deviceId);
+
+    /**
+     * 归还设备一个在途额度（占用后未能发出时调用）
+     *
+     * @param deviceId 设备ID
+     */
+    void releaseDeviceCredit(String deviceId);
+
+    /**
+     * 等待设备出现缓存余量（指令完成或缓存池数量同步时唤醒）
+     *
+     * @param deviceId 设备ID
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否可以接收指令
+     * @throws InterruptedException 中断异常
+     */
+    boolean awaitDeviceCredit(String deviceId, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 等待任务内任一设备出现缓存余量（任务级发送器无可分配设备时使用）
+     *
+     * @param taskId 任务ID
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 是否有设备可以接收指令
+     * @throws InterruptedException 中断异常
+     */
+    boolean awaitAnyDeviceCredit(Long taskId, long timeout, TimeUnit unit) throws InterruptedException;
+
 
     /**
      * 请求设备缓冲区数量
@@ -84,11 +132,22 @@ public interface TaskDispatcherService {
     void updateDeviceBufferCount(String deviceId, Integer bufferCount);
 
     /**
-     * 报告指令已发送
+     * 报告指令已发送（在途额度已由 tryAcquireDeviceCredit 占用）
      * 
      * @param deviceId 设备ID
+     * @param taskId 任务ID
+     * @param dataPoolItemId 数据项ID（可为空）
      */
-    void reportCommandSent(String deviceId);
+    void reportCommandSent(String deviceId, Long taskId, Long dataPoolItemId);
+
+    /**
+     * 报告指令最终发送失败（重试次数用完），数据项未打印
+     *
+     * @param deviceId 设备ID
+     * @param taskId 任务ID
+     * @param dataPoolItemId 数据项ID（可为空）
+     */
+    void reportCommandFailed(String deviceId, Long taskId, Long dataPoolItemId);
     
     /**
      * 获取任务调度状态
@@ -169,6 +228,33 @@ public interface TaskDispatcherService {
      */
     boolean sendCommandToDevice(String deviceId, String command);
 
+    /**
+     * 发送打印指令
+     * 指令带有预编码协议帧时直接写出帧的保留副本（原帧留给重试复用），只写入通道出站缓冲不刷新，
+     * 由发送端在一批写出后或等待前调用 flushDevice 统一刷新；否则按指令内容发送。
+     *
+     * @param deviceId 设备ID
+     * @param command 打印指令
+     * @return 是否发送成功
+     */
+    boolean sendCommandToDevice(String deviceId, PrintCommand command);
+
+    /**
+     * 刷新设备通道中已写出但未刷新的数据
+     *
+     * @param deviceId 设备ID
+     */
+    void flushDevice(String deviceId);
+
+    /**
+     * 设备通道可写状态变化（出站缓冲越过高/低水位）
+     * 不可写时设备不再分配指令，恢复可写时唤醒等待该设备的发送通道
+     *
+     * @param deviceId 设备ID
+     * @param writable 是否可写
+     */
+    void onDeviceWritabilityChanged(String deviceId, boolean writable);
+
     /**
      * 获取任务的数据池poolId
      */
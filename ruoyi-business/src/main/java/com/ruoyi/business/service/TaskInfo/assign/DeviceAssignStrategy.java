@@ -0,0 +1,24 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+/**
+ * 设备分配策略
+ * 决定就绪设备在 ReadyDeviceIndex 中的排序键，键越小越先被分配
+ */
+public interface DeviceAssignStrategy {
+
+    /**
+     * 设备加入或重新回到就绪索引时的排序键
+     *
+     * @param slot 设备槽位
+     * @param load 设备负载视图
+     */
+    long readyKey(DeviceSlot slot, DeviceLoad load);
+
+    /**
+     * 设备被分配一条指令后的排序键
+     *
+     * @param slot 设备槽位
+     * @param load 设备负载视图
+     */
+    long assignedKey(DeviceSlot slot, DeviceLoad load);
+}
@@ -0,0 +1,22 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+/**
+ * 设备负载视图，由调度器提供给分配策略读取
+ */
+public interface DeviceLoad {
+
+    /**
+     * 设备是否可以接收指令（未故障且有在途额度）
+     */
+    boolean canReceive(String deviceId);
+
+    /**
+     * 设备当前在途指令数量
+     */
+    int inFlight(String deviceId);
+
+    /**
+     * 设备吞吐率（每秒完成数量），未统计时返回0
+     */
+    int throughput(String deviceId);
+}
@@ -0,0 +1,47 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 就绪索引中的设备槽位
+ * key/pass/indexed 只在 ReadyDeviceIndex 的选择锁内读写
+ */
+public class DeviceSlot {
+
+    private final String deviceId;
+    // 同键时的稳定排序依据
+    private final long order;
+    // 是否已登记到变化队列，避免重复登记
+    final AtomicBoolean changed = new AtomicBoolean(false);
+
+    long key;
+    // 加权策略的累计行程
+    long pass;
+    boolean indexed;
+    volatile boolean removed;
+
+    DeviceSlot(String deviceId, long order) {
+        this.deviceId = deviceId;
+        this.order = order;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public long getPass() {
+        return pass;
+    }
+
+    public void setPass(long pass) {
+        this.pass = pass;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    long getOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+/**
+ * 最少在途分配：优先分配给在途指令最少的设备
+ */
+public class LeastInFlightAssignStrategy implements DeviceAssignStrategy {
+
+    @Override
+    public long readyKey(DeviceSlot slot, DeviceLoad load) {
+        return load.inFlight(slot.getDeviceId());
+    }
+
+    @Override
+    public long assignedKey(DeviceSlot slot, DeviceLoad load) {
+        // 额度在分配之后才占用，这里按占用后的数量排序
+        return load.inFlight(slot.getDeviceId()) + 1L;
+    }
+}
@@ -0,0 +1,135 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 就绪设备索引
+ * 就绪设备按分配策略给出的键有序存放，选择设备 O(log n)；
+ * 选择时发现已满载或故障的设备移出索引，待额度释放/缓存同步通知后再放回，
+ * 通知方（指令完成线程）只做一次 CAS 与无锁入队，不持有选择锁
+ */
+public class ReadyDeviceIndex {
+
+    private static final Comparator<DeviceSlot> KEY_ORDER =
+            Comparator.comparingLong(DeviceSlot::getKey).thenComparingLong(DeviceSlot::getOrder);
+
+    private final DeviceAssignStrategy strategy;
+    private final DeviceLoad load;
+    private final Map<String, DeviceSlot> slots = new ConcurrentHashMap<>();
+    // 有变化待重新计算键的设备
+    private final ConcurrentLinkedQueue<DeviceSlot> changedSlots = new ConcurrentLinkedQueue<>();
+    private final TreeSet<DeviceSlot> ready = new TreeSet<>(KEY_ORDER);
+    private final ReentrantLock selectLock = new ReentrantLock();
+    private final AtomicLong orderSequence = new AtomicLong();
+
+    public ReadyDeviceIndex(DeviceAssignStrategy strategy, DeviceLoad load) {
+        this.strategy = strategy;
+        this.load = load;
+    }
+
+    /**
+     * 设备加入调度
+     */
+    public void addDevice(String deviceId) {
+        DeviceSlot slot = new DeviceSlot(deviceId, orderSequence.incrementAndGet());
+        DeviceSlot previous = slots.put(deviceId, slot);
+        if (previous != null) {
+            previous.removed = true;
+        }
+        markChanged(slot);
+    }
+
+    /**
+     * 设备退出调度
+     */
+    public void removeDevice(String deviceId) {
+        DeviceSlot slot = slots.remove(deviceId);
+        if (slot != null) {
+            slot.removed = true;
+            markChanged(slot);
+        }
+    }
+
+    /**
+     * 设备在途数量、状态等发生变化（额度释放、缓存同步），下次选择时重新计算其键
+     */
+    public void onDeviceChanged(String deviceId) {
+        DeviceSlot slot = slots.get(deviceId);
+        if (slot != null) {
+            markChanged(slot);
+        }
+    }
+
+    /**
+     * 选择一台可接收指令的设备
+     *
+     * @return 设备ID，无可用设备时返回null
+     */
+    public String select() {
+        selectLock.lock();
+        try {
+            applyChanges();
+            DeviceSlot slot;
+            while ((slot = ready.pollFirst()) != null) {
+                if (!load.canReceive(slot.getDeviceId())) {
+                    // 满载或故障：移出索引，等待变化通知
+                    slot.indexed = false;
+                    continue;
+                }
+                slot.key = strategy.assignedKey(slot, load);
+                ready.add(slot);
+                return slot.getDeviceId();
+            }
+            return null;
+        } finally {
+            selectLock.unlock();
+        }
+    }
+
+    /**
+     * 当前在索引中的就绪设备数量
+     */
+    public int readySize() {
+        selectLock.lock();
+        try {
+            applyChanges();
+            return ready.size();
+        } finally {
+            selectLock.unlock();
+        }
+    }
+
+    private void markChanged(DeviceSlot slot) {
+        if (slot.changed.compareAndSet(false, true)) {
+            changedSlots.offer(slot);
+        }
+    }
+
+    // 调用方需持有选择锁
+    private void applyChanges() {
+        DeviceSlot slot;
+        while ((slot = changedSlots.poll()) != null) {
+            slot.changed.set(false);
+            if (slot.indexed) {
+                ready.remove(slot);
+                slot.indexed = false;
+            }
+            if (slot.removed) {
+                continue;
+            }
+            // 回到索引的设备行程不落后于当前最小值，避免长时间离线的设备回来后独占分配
+            if (!ready.isEmpty()) {
+                slot.pass = Math.max(slot.pass, ready.first().pass);
+            }
+            slot.key = strategy.readyKey(slot, load);
+            ready.add(slot);
+            slot.indexed = true;
+        }
+    }
+}
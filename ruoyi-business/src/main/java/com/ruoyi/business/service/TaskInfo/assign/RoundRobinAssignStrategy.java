@@ -0,0 +1,21 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+/**
+ * 轮询分配：每次选中后排到所有就绪设备之后
+ */
+public class RoundRobinAssignStrategy implements DeviceAssignStrategy {
+
+    // 分配序号，仅在选择锁内递增
+    private long sequence;
+
+    @Override
+    public long readyKey(DeviceSlot slot, DeviceLoad load) {
+        // 回到就绪索引时保持原轮询位置
+        return slot.getKey();
+    }
+
+    @Override
+    public long assignedKey(DeviceSlot slot, DeviceLoad load) {
+        return ++sequence;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ruoyi.business.service.TaskInfo.assign;
+
+/**
+ * 按吞吐率加权分配（步幅调度）
+ * 每台设备被分配一次，累计行程增加 STRIDE / 吞吐率，行程最小者优先，
+ * 长期看各设备分到的指令数与其吞吐率成正比；未统计吞吐率的设备按权重1处理
+ */
+public class ThroughputWeightedAssignStrategy implements DeviceAssignStrategy {
+
+    private static final long STRIDE = 1L << 20;
+
+    @Override
+    public long readyKey(DeviceSlot slot, DeviceLoad load) {
+        return slot.getPass();
+    }
+
+    @Override
+    public long assignedKey(DeviceSlot slot, DeviceLoad load) {
+        int weight = Math.max(1, load.throughput(slot.getDeviceId()));
+        slot.setPass(slot.getPass() + STRIDE / weight);
+        return slot.getPass();
+    }
+}
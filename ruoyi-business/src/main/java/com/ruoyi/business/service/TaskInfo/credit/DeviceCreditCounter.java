@@ -0,0 +1,136 @@
+package com.ruoyi.business.service.TaskInfo.credit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备在途指令额度计数器
+ * 发送前以 CAS 占用额度（上限为设备缓存池大小），指令完成或发送回滚时释放，
+ * 设备 geta: 上报缓存数量时直接覆盖校准，计数路径不持有任何监视器锁；
+ * 仅当有发送通道在等待额度时，释放方才进入锁内唤醒
+ */
+public class DeviceCreditCounter {
+
+    // 当前在途指令数量
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    // 等待额度的线程数量，为0时释放方不加锁
+    private final AtomicInteger waiters = new AtomicInteger(0);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    /**
+     * 尝试占用一个额度
+     *
+     * @param limit 额度上限（设备缓存池大小）
+     * @return 是否占用成功
+     */
+    public boolean tryAcquire(int limit) {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个额度，计数不会小于0
+     *
+     * @return 释放后的在途数量
+     */
+    public int release() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current <= 0) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current - 1)) {
+                signalWaiters();
+                return current - 1;
+            }
+        }
+    }
+
+    /**
+     * 以设备上报的缓存数量校准在途计数
+     *
+     * @param reported 设备上报的缓存数量
+     * @return 校准前的在途数量
+     */
+    public int reconcile(int reported) {
+        int previous = inFlight.getAndSet(Math.max(0, reported));
+        signalWaiters();
+        return previous;
+    }
+
+    /**
+     * 是否还有可用额度
+     */
+    public boolean hasCredit(int limit) {
+        return inFlight.get() < limit;
+    }
+
+    /**
+     * 等待出现可用额度，最多等待指定时间
+     *
+     * @return 是否有可用额度
+     */
+    public boolean awaitCredit(int limit, long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitUntil(() -> inFlight.get() < limit, timeout, unit);
+    }
+
+    /**
+     * 等待条件成立，额度释放、校准或 wakeUp 时重新检查，最多等待指定时间
+     *
+     * @return 条件是否成立
+     */
+    public boolean awaitUntil(BooleanSupplier ready, long timeout, TimeUnit unit) throws InterruptedException {
+        if (ready.getAsBoolean()) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            // 先登记再检查，保证与释放方“先改计数再看等待者”的顺序不会丢失唤醒
+            waiters.incrementAndGet();
+            while (!ready.getAsBoolean()) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒等待中的发送通道重新检查（额度以外的条件变化，如通道恢复可写）
+     */
+    public void wakeUp() {
+        signalWaiters();
+    }
+
+    public int get() {
+        return inFlight.get();
+    }
+
+    private void signalWaiters() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
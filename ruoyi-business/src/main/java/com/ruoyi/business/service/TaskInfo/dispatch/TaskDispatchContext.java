@@ -0,0 +1,142 @@
+package com.ruoyi.business.service.TaskInfo.dispatch;
+
+import com.ruoyi.business.domain.TaskInfo.TaskInfo;
+import com.ruoyi.business.service.TaskInfo.assign.DeviceAssignStrategy;
+import com.ruoyi.business.service.TaskInfo.assign.DeviceLoad;
+import com.ruoyi.business.service.TaskInfo.assign.ReadyDeviceIndex;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单任务调度上下文
+ * 每个运行中的任务独立持有任务信息、参与设备与就绪设备索引，以及设备余量通知，
+ * 多条产线的任务在同一实例上并行调度时互不干扰：设备只分配给所属任务的指令，
+ * 某任务的设备释放额度也只唤醒该任务的发送器
+ */
+public class TaskDispatchContext {
+
+    private final Long taskId;
+    private final Set<String> deviceIds = ConcurrentHashMap.newKeySet();
+    private final ReadyDeviceIndex readyDevices;
+    private final DeviceLoad load;
+
+    // 任务信息，发送启动后设置，设置前不分配设备
+    private volatile TaskInfo taskInfo;
+
+    // 任一设备余量增加时的通知对象（任务级发送器等待用），仅在有等待者时加锁通知
+    private final Object creditMonitor = new Object();
+    private final AtomicInteger creditWaiters = new AtomicInteger(0);
+
+    public TaskDispatchContext(Long taskId, DeviceAssignStrategy strategy, DeviceLoad load) {
+        this.taskId = taskId;
+        this.load = load;
+        this.readyDevices = new ReadyDeviceIndex(strategy, load);
+    }
+
+    /**
+     * 设备加入任务调度
+     */
+    public void addDevice(String deviceId) {
+        deviceIds.add(deviceId);
+        readyDevices.addDevice(deviceId);
+    }
+
+    /**
+     * 设备退出任务调度
+     */
+    public void removeDevice(String deviceId) {
+        deviceIds.remove(deviceId);
+        readyDevices.removeDevice(deviceId);
+    }
+
+    /**
+     * 为本任务的指令选择一台可接收的设备
+     *
+     * @return 设备ID，任务尚未就绪或无可用设备时返回null
+     */
+    public String assignDevice() {
+        if (taskInfo == null) {
+            return null;
+        }
+        return readyDevices.select();
+    }
+
+    /**
+     * 设备额度增加：通知就绪索引重新计算该设备，并唤醒等待任一设备余量的发送器
+     */
+    public void onCreditAvailable(String deviceId) {
+        readyDevices.onDeviceChanged(deviceId);
+        if (creditWaiters.get() > 0) {
+            synchronized (creditMonitor) {
+                creditMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 等待本任务任一设备出现缓存余量
+     *
+     * @return 是否有设备可以接收指令
+     */
+    public boolean awaitAnyCredit(long timeout, TimeUnit unit) throws InterruptedException {
+        if (hasAssignableDevice()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (creditMonitor) {
+            // 先登记再检查，保证与释放方“先改计数再看等待者”的顺序不会丢失唤醒
+            creditWaiters.incrementAndGet();
+            try {
+                while (!hasAssignableDevice()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(creditMonitor, remaining);
+                }
+                return true;
+            } finally {
+                creditWaiters.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 是否存在可分配的设备（与 assignDevice 判定一致）
+     */
+    private boolean hasAssignableDevice() {
+        if (taskInfo == null) {
+            return false;
+        }
+        for (String deviceId : deviceIds) {
+            if (load.canReceive(deviceId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public TaskInfo getTaskInfo() {
+        return taskInfo;
+    }
+
+    public void setTaskInfo(TaskInfo taskInfo) {
+        this.taskInfo = taskInfo;
+    }
+
+    public Set<String> getDeviceIds() {
+        return Collections.unmodifiableSet(deviceIds);
+    }
+
+    public int getReadyDeviceCount() {
+        return readyDevices.readySize();
+    }
+}
@@ -1,131 +1,316 @@
 package com.ruoyi.business.service.TaskInfo.impl;
 
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import com.ruoyi.business.enums.CommandPriority;
 import com.ruoyi.business.service.TaskInfo.CommandQueueService;
 import com.ruoyi.business.config.TaskDispatchProperties;
-import com.ruoyi.business.service.TaskInfo.SentRecord;
+import com.ruoyi.business.service.TaskInfo.journal.DispatchJournal;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressTracker;
+import com.ruoyi.business.service.TaskInfo.queue.CommandRetryScheduler;
+import com.ruoyi.business.service.TaskInfo.queue.SentRecordBatch;
+import com.ruoyi.business.service.TaskInfo.queue.SentRecordRing;
+import com.ruoyi.business.service.TaskInfo.queue.TaskCommandQueue;
+import com.ruoyi.business.service.TaskInfo.queue.TaskItemTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 指令队列服务实现
- * 提供线程安全的指令队列管理
+ * 提供线程安全的指令队列管理，每个任务独立一个按ID有序的有界队列
  */
 @Service
 public class CommandQueueServiceImpl implements CommandQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandQueueServiceImpl.class);
     
     @Autowired
     private TaskDispatchProperties taskDispatchProperties;
+
+    @Autowired
+    private TaskProgressTracker taskProgressTracker;
+
+    @Autowired
+    private DispatchJournal dispatchJournal;
     
-    // 指令缓冲池 - 生成池消费者桥梁
-    private BlockingQueue<PrintCommand> commandQueue;
+    // 指令缓冲池 - 生成池消费者桥梁（按任务分桶，桶内按ID有序）
+    private final ConcurrentHashMap<Long, TaskCommandQueue> taskQueues = new ConcurrentHashMap<>();
 
-    // 新增：使用线程安全的Set来追踪已在队列中的指令数据，确保唯一性
-    private final Map<Long,String> queuedCommandDataSet = new ConcurrentHashMap<>();
+    // 数据项追踪（按任务分桶，基本类型 long 集合），从入队到落库期间去重
+    private final ConcurrentHashMap<Long, TaskItemTracker> itemTrackers = new ConcurrentHashMap<>();
     
-    // 已发送记录（轻量：按任务分桶，含deviceId）
-    private final ConcurrentHashMap<Long, BlockingQueue<SentRecord>> taskIdToSentRecords = new ConcurrentHashMap<>();
+    // 已发送记录（按任务分桶的基本类型环形缓冲，写满时阻塞发送端）
+    private final ConcurrentHashMap<Long, SentRecordRing> taskIdToSentRecords = new ConcurrentHashMap<>();
+
+    // 已发送记录缓冲已满时单次等待落库的时间，超时后检查缓冲是否已关闭再继续等待
+    private static final long SENT_RECORD_WAIT_MS = 200;
+
+    // 发送失败指令的延迟重试（时间轮）
+    private CommandRetryScheduler retryScheduler;
+
+    public CommandQueueServiceImpl() {
+    }
 
     /**
-     * 初始化队列
+     * 不经 Spring 创建时使用（测试等场景），创建后需调用 init
      */
-    private void initQueues() {
-        if (commandQueue == null) {
-            int queueSize = taskDispatchProperties.getCommandQueueSize();
-            commandQueue = new LinkedBlockingQueue<>(queueSize);
+    CommandQueueServiceImpl(TaskDispatchProperties taskDispatchProperties, TaskProgressTracker taskProgressTracker,
+                            DispatchJournal dispatchJournal) {
+        this.taskDispatchProperties = taskDispatchProperties;
+        this.taskProgressTracker = taskProgressTracker;
+        this.dispatchJournal = dispatchJournal;
+    }
+
+    @PostConstruct
+    public void init() {
+        TaskDispatchProperties.RetryConfig retry = taskDispatchProperties.getRetry();
+        retryScheduler = new CommandRetryScheduler(this::requeueCommand,
+                retry.getTickMs(), retry.getBaseDelayMs(), retry.getMaxDelayMs());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        retryScheduler.stop();
+    }
+
+    /**
+     * 获取任务队列，不存在时创建
+     */
+    private TaskCommandQueue getOrCreateQueue(Long taskId) {
+        return taskQueues.computeIfAbsent(taskId, this::createQueue);
+    }
+
+    /**
+     * 按任务配置创建队列：任务单独配置的容量与水位优先，其余按全局容量与水位比例计算
+     */
+    private TaskCommandQueue createQueue(Long taskId) {
+        TaskDispatchProperties.QueueWatermarkConfig watermark = taskDispatchProperties.getQueueWatermark();
+        TaskDispatchProperties.TaskQueueConfig taskConfig = watermark.getTasks().get(taskId);
+        int capacity = taskDispatchProperties.getCommandQueueSize();
+        Integer high = null;
+        Integer low = null;
+        if (taskConfig != null) {
+            if (taskConfig.getCapacity() != null) {
+                capacity = taskConfig.getCapacity();
+            }
+            high = taskConfig.getHighWatermark();
+            low = taskConfig.getLowWatermark();
+        }
+        if (high == null) {
+            high = (int) (capacity * watermark.getHighRatio());
+        }
+        if (low == null) {
+            low = (int) (capacity * watermark.getLowRatio());
         }
+        TaskDispatchProperties.PriorityLaneConfig priorityLane = taskDispatchProperties.getPriorityLane();
+        int[] weights = new int[CommandPriority.values().length];
+        weights[CommandPriority.NORMAL.lane()] = priorityLane.getNormalWeight();
+        weights[CommandPriority.MANUAL.lane()] = priorityLane.getManualWeight();
+        weights[CommandPriority.REPRINT.lane()] = priorityLane.getReprintWeight();
+        return new TaskCommandQueue(capacity, high, low, priorityLane.getCapacity(), weights);
     }
     
-   @Override
-public void addCommandToQueue(PrintCommand command) {
-    initQueues();
-
-    // 假设 command.getId() 是指令的唯一标识 (例如打印的SN码)
-    // queuedCommandDataSet.add() 是一个原子操作，如果数据已存在，它会返回false
-       boolean rest  = Boolean.parseBoolean(queuedCommandDataSet.put(command.getTaskId(), String.valueOf(command.getId())));
-       // ---- 如果添加失败，说明Set中已存在该数据，是重复指令 ----
-           if (!rest) {
-           // ---- 如果添加成功，说明这是新指令 ----
-           try {
-               // 尝试将指令对象放入队列
-               boolean success = commandQueue.offer(command, 1, TimeUnit.SECONDS);
-
-               if (!success) {
-                   // 如果队列已满导致添加失败，我们必须把刚刚添加到Set中的标识也移除，以保证数据一致性
-                   queuedCommandDataSet.remove(command.getTaskId(), command.getData());
-                   System.err.println("指令队列已满，丢弃指令: " + command.getId());
-               } else {
-                   // 添加成功后，对队列进行排序（按ID从小到大）
-                   sortQueueByCommandId();
-               }
-           } catch (InterruptedException e) {
-               // 如果在等待入队时被中断，同样需要移除Set中的标识
-               queuedCommandDataSet.remove(command.getTaskId(), command.getData());
-               Thread.currentThread().interrupt();
-               System.err.println("添加指令到队列被中断");
-           }
-       }
-   }
+    /**
+     * 获取任务的数据项追踪，不存在时创建（按队列容量预分配，入队高峰期间不扩容）
+     */
+    private TaskItemTracker getOrCreateTracker(Long taskId, TaskCommandQueue queue) {
+        return itemTrackers.computeIfAbsent(taskId, k -> new TaskItemTracker(queue.getCapacity()));
+    }
+
+    @Override
+    public void addCommandToQueue(PrintCommand command) {
+        // 同一数据项从入队到落库期间只允许入队一次，重复指令丢弃（原指令仍会正常发送和计数），
+        // 重复指令已被生产端计入认领，丢弃时同样计入发送结束，否则任务进度永远无法归零
+        TaskCommandQueue queue = getOrCreateQueue(command.getTaskId());
+        if (command.hasDataItem() && !getOrCreateTracker(command.getTaskId(), queue).track(command.getId())) {
+            command.releaseFrame();
+            recordDropped(command);
+            log.warn("数据项已在队列或发送中，丢弃重复指令，任务ID: {}, 数据项ID: {}", command.getTaskId(), command.getId());
+            return;
+        }
+        enqueue(queue, command);
+    }
+
+    @Override
+    public void requeueCommand(PrintCommand command) {
+        // 任务已停止并清理队列（暂存指令交还、重试到期与停止并发）：不再重建队列与追踪，释放预编码帧
+        TaskCommandQueue queue = taskQueues.get(command.getTaskId());
+        if (queue == null) {
+            command.releaseFrame();
+            recordDropped(command);
+            return;
+        }
+        // 放回的指令已在追踪中，重复登记无副作用；任务追踪已被清理时重新登记（补打指令不对应数据项，不登记）
+        if (command.hasDataItem()) {
+            getOrCreateTracker(command.getTaskId(), queue).track(command.getId());
+        }
+        enqueue(queue, command);
+    }
+
+    @Override
+    public long scheduleRetry(PrintCommand command) {
+        return retryScheduler.schedule(command);
+    }
+
+    @Override
+    public void recordSendSuccess(String deviceId) {
+        retryScheduler.recordSuccess(deviceId);
+    }
+
+    @Override
+    public void releaseCommand(PrintCommand command) {
+        if (command == null || !command.hasDataItem()) {
+            return;
+        }
+        TaskItemTracker tracker = itemTrackers.get(command.getTaskId());
+        if (tracker != null) {
+            tracker.release(command.getId());
+        }
+    }
+
+    private void enqueue(TaskCommandQueue queue, PrintCommand command) {
+        try {
+            // 按指令优先级放入任务队列对应通道，批量数据通道内部按ID有序，无需整体重排
+            boolean success = queue.offer(command, 1, TimeUnit.SECONDS);
+
+            if (success && taskQueues.get(command.getTaskId()) != queue && queue.remove(command)) {
+                // 入队期间任务已停止：队列先移出再清空，清空之后才放入的指令由这里释放
+                command.releaseFrame();
+                recordDropped(command);
+            } else if (!success) {
+                // 如果队列已满导致添加失败，结束该数据项的追踪，以保证数据一致性
+                releaseCommand(command);
+                command.releaseFrame();
+                recordDropped(command);
+                System.err.println("指令队列已满，丢弃指令: " + command.getId());
+            }
+        } catch (InterruptedException e) {
+            // 如果在等待入队时被中断，同样需要结束追踪
+            releaseCommand(command);
+            command.releaseFrame();
+            recordDropped(command);
+            Thread.currentThread().interrupt();
+            System.err.println("添加指令到队列被中断");
+        }
+    }
     
+    /**
+     * 丢弃的指令不会再发送，计入任务进度的发送结束（补打指令未被认领，不计入）
+     */
+    private void recordDropped(PrintCommand command) {
+        if (!command.hasDataItem()) {
+            return;
+        }
+        dispatchJournal.appendFailed(command.getTaskId(), command.getDeviceId(), command.getId());
+        TaskProgressCounter progress = taskProgressTracker.get(command.getTaskId());
+        if (progress != null) {
+            progress.recordFailed();
+        }
+    }
+
     @Override
     public PrintCommand getNextCommand(Long taskId){
-        initQueues();
-        // 按ID从小到大排序后获取第一个匹配的指令
-        PrintCommand command = commandQueue.stream()
-                .filter(command1 -> command1.getTaskId().equals(taskId))
-                .sorted(Comparator.comparingLong(PrintCommand::getId))
-                .findFirst()
-                .orElse(null);
-         if (command != null) {
-        // 关键步骤：一旦指令被成功取出，就将其唯一标识从追踪Set中移除
-        // 这样，后续相同数据的新指令就可以被再次添加进来
-        queuedCommandDataSet.remove(command.getTaskId(),command.getData());
-         //移除已发送缓存池数据
-         removeCommand(command);
-    }
-          return command;
+        TaskCommandQueue queue = taskQueues.get(taskId);
+        if (queue == null) {
+            return null;
+        }
+        // 按优先级通道权重取出下一条指令，数据项在发送和落库完成前仍保持追踪
+        return queue.poll();
+    }
+
+    @Override
+    public PrintCommand getNextCommand(Long taskId, long timeout, TimeUnit unit) throws InterruptedException {
+        TaskCommandQueue queue = taskQueues.get(taskId);
+        if (queue == null) {
+            // 队列由生产端创建：尚未创建或任务已停止清理时不在此重建，等待后返回空
+            unit.sleep(timeout);
+            return null;
+        }
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public boolean awaitLowWatermark(Long taskId, long timeout, TimeUnit unit) throws InterruptedException {
+        TaskCommandQueue queue = taskQueues.get(taskId);
+        if (queue == null) {
+            return true;
+        }
+        return queue.awaitLowWatermark(timeout, unit);
+    }
+
+    @Override
+    public int getQueueHeadroom(Long taskId) {
+        return getOrCreateQueue(taskId).headroom();
+    }
+
+    @Override
+    public int getRefillSize(Long taskId) {
+        TaskCommandQueue queue = getOrCreateQueue(taskId);
+        return queue.getHighWatermark() - queue.getLowWatermark();
     }
     
     @Override
     public int getQueueSize() {
-        initQueues();
-        return commandQueue.size();
+        int total = 0;
+        for (TaskCommandQueue queue : taskQueues.values()) {
+            total += queue.size();
+        }
+        return total;
     }
 
     @Override
     public int getQueueSize(Long taskId) {
-        return commandQueue.stream().filter(command -> command.getTaskId().equals(taskId)).toArray().length;
+        TaskCommandQueue queue = taskQueues.get(taskId);
+        return queue != null ? queue.size() : 0;
     }
 
     @Override
     public void clearQueue() {
-        initQueues();
-        commandQueue.clear();
+        taskQueues.values().forEach(queue -> queue.drain().forEach(PrintCommand::releaseFrame));
     }
 
     @Override
     public void clearQueue(Long taskId) {
-        initQueues();
-        commandQueue.removeIf(command -> command.getTaskId().equals(taskId));
-        queuedCommandDataSet.remove(taskId);
-        taskIdToSentRecords.remove(taskId);
+        TaskCommandQueue queue = taskQueues.remove(taskId);
+        if (queue != null) {
+            // 释放被丢弃指令的预编码帧
+            queue.drain().forEach(PrintCommand::releaseFrame);
+        }
+        // 取消等待中的重试，释放其预编码帧
+        retryScheduler.cancel(taskId, PrintCommand::releaseFrame);
+        itemTrackers.remove(taskId);
+        SentRecordRing ring = taskIdToSentRecords.remove(taskId);
+        if (ring != null) {
+            ring.close();
+        }
     }
 
     @Override
     public void removeTrackingQueue(Long taskId) {
-        queuedCommandDataSet.remove(taskId);
+        itemTrackers.remove(taskId);
+    }
+
+    @Override
+    public int getTrackedItemCount(Long taskId) {
+        TaskItemTracker tracker = itemTrackers.get(taskId);
+        return tracker == null ? 0 : tracker.size();
     }
 
     @Override
     public List<PrintCommand> getAllCommandsSnapshot() {
-        initQueues();
-        return new ArrayList<>(commandQueue);
+        List<PrintCommand> list = new ArrayList<>();
+        for (TaskCommandQueue queue : taskQueues.values()) {
+            list.addAll(queue.snapshot());
+        }
+        return list;
     }
     
     @Override
@@ -133,56 +318,76 @@ public void addCommandToQueue(PrintCommand command) {
         if (command == null) {
             return false;
         }
-        initQueues();
-        return commandQueue.remove(command);
+        TaskCommandQueue queue = taskQueues.get(command.getTaskId());
+        return queue != null && queue.remove(command);
     }
 
     @Override
-    public void addSentRecord(Long taskId, Long dataPoolItemId,String dataPoolItemData, String deviceId,Long poolId) {
+    public void addSentRecord(Long taskId, Long dataPoolItemId, String deviceId) {
         if (taskId == null || dataPoolItemId == null) {
             return;
         }
-        int queueSize = taskDispatchProperties.getCommandQueueSize();
-        BlockingQueue<SentRecord> q = taskIdToSentRecords.computeIfAbsent(taskId, k -> new LinkedBlockingQueue<>(queueSize));
-        // 非阻塞插入，满则丢弃并记录
-        boolean ok = q.offer(new SentRecord(taskId, dataPoolItemId,dataPoolItemData, deviceId,poolId));
-        if (!ok) {
-            System.err.println("已发送记录队列满，taskId=" + taskId + ", 丢弃ID=" + dataPoolItemId);
+        SentRecordRing ring = taskIdToSentRecords.computeIfAbsent(taskId,
+                k -> new SentRecordRing(taskDispatchProperties.getPersist().getSentBufferSize()));
+        long device = deviceId == null ? 0L : Long.parseLong(deviceId);
+        long sentAt = System.currentTimeMillis();
+        try {
+            // 缓冲已满说明落库跟不上发送，阻塞当前发送通道等待落库腾出空间，不丢弃记录
+            boolean warned = false;
+            while (!ring.offer(dataPoolItemId, device, sentAt, SENT_RECORD_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                if (ring.isClosed()) {
+                    releaseItem(taskId, dataPoolItemId);
+                    return;
+                }
+                if (!warned) {
+                    warned = true;
+                    System.err.println("已发送记录缓冲已满，等待落库，taskId=" + taskId + ", 数据项ID=" + dataPoolItemId);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseItem(taskId, dataPoolItemId);
+            System.err.println("写入已发送记录被中断，taskId=" + taskId + ", 丢弃ID=" + dataPoolItemId);
         }
     }
 
     @Override
-    public void addSentRecord(Long taskId, Long dataPoolItemId) {
-        addSentRecord(taskId, dataPoolItemId, null,null,null);
+    public int drainSentRecordsForTask(Long taskId, SentRecordBatch batch, int maxRecords) {
+        SentRecordRing ring = taskIdToSentRecords.get(taskId);
+        if (ring == null || maxRecords <= 0) {
+            return 0;
+        }
+        int from = batch.size();
+        int drained = ring.drainTo(taskId, batch, maxRecords);
+        if (drained > 0) {
+            releaseItems(taskId, batch, from);
+        }
+        return drained;
     }
 
     @Override
-    public List<SentRecord> drainSentRecordsForTask(Long taskId) {
-        BlockingQueue<SentRecord> q = taskIdToSentRecords.get(taskId);
-        if (q == null || q.isEmpty()) return Collections.emptyList();
-        List<SentRecord> list = new ArrayList<>(q.size());
-        q.drainTo(list);
-        return list;
+    public int getSentRecordCount(Long taskId) {
+        SentRecordRing ring = taskIdToSentRecords.get(taskId);
+        return ring == null ? 0 : ring.size();
     }
-    
+
     /**
-     * 对队列中的指令按ID从小到大进行排序
+     * 已发送记录交给落库后结束追踪：数据项已不处于待打印状态，不会被再次取出入队
      */
-    private void sortQueueByCommandId() {
-        if (commandQueue == null || commandQueue.isEmpty()) {
+    private void releaseItems(Long taskId, SentRecordBatch batch, int from) {
+        TaskItemTracker tracker = itemTrackers.get(taskId);
+        if (tracker == null) {
             return;
         }
-        
-        // 将队列中的所有元素取出
-        List<PrintCommand> commands = new ArrayList<>();
-        commandQueue.drainTo(commands);
-        
-        // 按ID从小到大排序
-        commands.sort(Comparator.comparingLong(PrintCommand::getId));
-        
-        // 将排序后的元素重新放回队列
-        for (PrintCommand command : commands) {
-            commandQueue.offer(command);
+        for (int i = from; i < batch.size(); i++) {
+            tracker.release(batch.itemId(i));
+        }
+    }
+
+    private void releaseItem(Long taskId, Long itemId) {
+        TaskItemTracker tracker = itemTrackers.get(taskId);
+        if (tracker != null) {
+            tracker.release(itemId);
         }
     }
 }
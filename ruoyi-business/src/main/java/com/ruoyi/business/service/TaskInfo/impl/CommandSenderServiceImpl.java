@@ -1,5 +1,6 @@
 package com.ruoyi.business.service.TaskInfo.impl;
 
+import com.ruoyi.business.config.TaskDispatchProperties;
 import com.ruoyi.business.domain.DataInspect.DataInspect;
 import com.ruoyi.business.domain.SystemLog.SystemLog;
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
@@ -36,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 
@@ -48,9 +50,9 @@ public class CommandSenderServiceImpl implements CommandSenderService {
     
     private static final Logger log = LoggerFactory.getLogger(CommandSenderServiceImpl.class);
     
-    // 存储运行中的任务和对应的Runner
-    private final ConcurrentHashMap<Long, CommandSenderRunner> runningRunners = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Long, Future<?>> runningFutures = new ConcurrentHashMap<>();
+    // 存储运行中的任务和对应的Runner（任务级发送器为单个，设备发送通道模式下每台设备一个）
+    private final ConcurrentHashMap<Long, List<CommandSenderRunner>> runningRunners = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, List<Future<?>>> runningFutures = new ConcurrentHashMap<>();
     
     @Autowired
     private TaskDispatcherService dispatcher;
@@ -61,6 +63,12 @@ public class CommandSenderServiceImpl implements CommandSenderService {
     @Autowired
     private ThreadPoolTaskExecutor taskSenderExecutor;
 
+    @Autowired
+    private ThreadPoolTaskExecutor taskLaneExecutor;
+
+    @Autowired
+    private TaskDispatchProperties taskDispatchProperties;
+
     @Autowired
     private ITaskDeviceLinkService taskDeviceLinkService;
 
@@ -128,23 +136,65 @@ public class CommandSenderServiceImpl implements CommandSenderService {
             }
             
             // 创建并启动Runner
-            CommandSenderRunner runner = new CommandSenderRunner(
-                    taskId, dispatcher, commandQueueService);
-            
-            Future<?> future = taskSenderExecutor.submit(runner);
-            
-            // 存储Runner和Future
-            runningRunners.put(taskId, runner);
-            runningFutures.put(taskId, future);
+            List<CommandSenderRunner> runners = new CopyOnWriteArrayList<>();
+            List<Future<?>> futures = new CopyOnWriteArrayList<>();
+            runningRunners.put(taskId, runners);
+            runningFutures.put(taskId, futures);
+
+            if (Boolean.TRUE.equals(taskDispatchProperties.getDeviceLaneEnabled())) {
+                // 设备发送通道：每台参与设备独立一个发送线程，共享任务指令队列
+                for (String deviceId : resolveLaneDevices(taskId)) {
+                    CommandSenderRunner runner = new CommandSenderRunner(
+                            taskId, dispatcher, commandQueueService, deviceId, taskDispatchProperties.getFlushMaxFrames());
+                    futures.add(taskLaneExecutor.submit(runner));
+                    runners.add(runner);
+                }
+                log.info("设备发送通道已启动，任务ID: {}, 通道数量: {}", taskId, runners.size());
+            } else {
+                CommandSenderRunner runner = new CommandSenderRunner(
+                        taskId, dispatcher, commandQueueService, null, taskDispatchProperties.getFlushMaxFrames());
+                futures.add(taskSenderExecutor.submit(runner));
+                runners.add(runner);
+            }
             
             log.info("指令发送启动成功，任务ID: {}", taskId);
             
         } catch (Exception e) {
             log.error("启动指令发送失败，任务ID: {}", taskId, e);
-            // 清理资源
-            runningRunners.remove(taskId);
-            runningFutures.remove(taskId);
+            // 清理资源（停止已启动的通道）
+            List<CommandSenderRunner> runners = runningRunners.remove(taskId);
+            if (runners != null) {
+                runners.forEach(CommandSenderRunner::stop);
+            }
+            List<Future<?>> futures = runningFutures.remove(taskId);
+            if (futures != null) {
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * 获取任务下需要建立发送通道的设备（已完成预检并注册了设备通道）
+     */
+    private List<String> resolveLaneDevices(Long taskId) {
+        List<String> deviceIds = new ArrayList<>();
+        List<TaskDeviceLink> links = taskDeviceLinkService.listByTaskId(taskId);
+        if (links == null) {
+            return deviceIds;
         }
+        for (TaskDeviceLink link : links) {
+            String deviceId = link.getDeviceId().toString();
+            if (dispatcher.getDeviceTaskStatus(deviceId) == null) {
+                log.warn("设备未参与任务调度，跳过建立发送通道，任务ID: {}, 设备ID: {}", taskId, deviceId);
+                continue;
+            }
+            if (dispatcher.getDeviceChannel(deviceId) == null) {
+                log.warn("设备通道未注册，跳过建立发送通道，任务ID: {}, 设备ID: {}", taskId, deviceId);
+                continue;
+            }
+            deviceIds.add(deviceId);
+        }
+        return deviceIds;
     }
 
     
@@ -155,15 +205,15 @@ public class CommandSenderServiceImpl implements CommandSenderService {
 
             
             // 停止Runner
-            CommandSenderRunner runner = runningRunners.get(taskId);
-            if (runner != null) {
-                runner.stop();
+            List<CommandSenderRunner> runners = runningRunners.get(taskId);
+            if (runners != null) {
+                runners.forEach(CommandSenderRunner::stop);
             }
             
             // 取消Future
-            Future<?> future = runningFutures.get(taskId);
-            if (future != null) {
-                future.cancel(true);
+            List<Future<?>> futures = runningFutures.get(taskId);
+            if (futures != null) {
+                futures.forEach(future -> future.cancel(true));
             }
 
 
@@ -226,14 +276,14 @@ public class CommandSenderServiceImpl implements CommandSenderService {
     
     @Override
     public boolean isSending(Long taskId) {
-        CommandSenderRunner runner = runningRunners.get(taskId);
-        return runner != null && runner.isRunning();
+        List<CommandSenderRunner> runners = runningRunners.get(taskId);
+        return runners != null && runners.stream().anyMatch(CommandSenderRunner::isRunning);
     }
     
     @Override
     public int getSentCount(Long taskId) {
-        CommandSenderRunner runner = runningRunners.get(taskId);
-        return runner != null ? runner.getSentCount() : 0;
+        List<CommandSenderRunner> runners = runningRunners.get(taskId);
+        return runners != null ? runners.stream().mapToInt(CommandSenderRunner::getSentCount).sum() : 0;
     }
     
     @Override
@@ -246,9 +296,9 @@ public class CommandSenderServiceImpl implements CommandSenderService {
         try {
             log.info("暂停指令发送，任务ID: {}", taskId);
             
-            CommandSenderRunner runner = runningRunners.get(taskId);
-            if (runner != null) {
-                runner.pause();
+            List<CommandSenderRunner> runners = runningRunners.get(taskId);
+            if (runners != null) {
+                runners.forEach(CommandSenderRunner::pause);
             }
 
             // 暂停时也停止维护任务，避免误判
@@ -266,9 +316,9 @@ public class CommandSenderServiceImpl implements CommandSenderService {
         try {
             log.info("恢复指令发送，任务ID: {}", taskId);
             
-            CommandSenderRunner runner = runningRunners.get(taskId);
-            if (runner != null) {
-                runner.resume();
+            List<CommandSenderRunner> runners = runningRunners.get(taskId);
+            if (runners != null) {
+                runners.forEach(CommandSenderRunner::resume);
             }
             
             log.info("指令发送恢复成功，任务ID: {}", taskId);
@@ -295,13 +345,14 @@ public class CommandSenderServiceImpl implements CommandSenderService {
     public Map<String, Object> getSendingStatistics(Long taskId) {
         Map<String, Object> statistics = new java.util.HashMap<>();
         
-        CommandSenderRunner runner = runningRunners.get(taskId);
-        if (runner != null) {
+        List<CommandSenderRunner> runners = runningRunners.get(taskId);
+        if (runners != null && !runners.isEmpty()) {
             statistics.put("taskId", taskId);
-            statistics.put("isRunning", runner.isRunning());
-            statistics.put("isPaused", runner.isPaused());
-            statistics.put("sentCount", runner.getSentCount());
-            statistics.put("failedCount", runner.getFailedCount());
+            statistics.put("isRunning", runners.stream().anyMatch(CommandSenderRunner::isRunning));
+            statistics.put("isPaused", runners.stream().allMatch(CommandSenderRunner::isPaused));
+            statistics.put("sentCount", runners.stream().mapToInt(CommandSenderRunner::getSentCount).sum());
+            statistics.put("failedCount", runners.stream().mapToInt(CommandSenderRunner::getFailedCount).sum());
+            statistics.put("laneCount", runners.size());
         } else {
             statistics.put("taskId", taskId);
             statistics.put("isRunning", false);
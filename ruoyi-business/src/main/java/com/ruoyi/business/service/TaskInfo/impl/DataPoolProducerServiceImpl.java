@@ -1,8 +1,11 @@
 package com.ruoyi.business.service.TaskInfo.impl;
 
 import com.ruoyi.business.domain.SystemLog.SystemLog;
+import com.ruoyi.business.domain.TaskInfo.TaskDispatchRequest;
+import com.ruoyi.business.enums.CommandPriority;
 import com.ruoyi.business.enums.SystemLogLevel;
 import com.ruoyi.business.enums.SystemLogType;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
 import com.ruoyi.business.events.TaskPauseEvent;
 import com.ruoyi.business.service.DataPool.IDataPoolService;
 import com.ruoyi.business.service.DataPoolTemplate.IDataPoolTemplateService;
@@ -11,6 +14,8 @@ import com.ruoyi.business.service.SystemLog.ISystemLogService;
 import com.ruoyi.business.service.TaskInfo.DataPoolProducerService;
 import com.ruoyi.business.service.TaskInfo.CommandQueueService;
 import com.ruoyi.business.service.TaskInfo.runner.DataPoolProducerRunner;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressTracker;
 import com.ruoyi.business.service.DataPoolItem.IDataPoolItemService;
 import com.ruoyi.business.service.TaskInfo.ITaskDeviceLinkService;
 import com.ruoyi.business.config.TaskDispatchProperties;
@@ -23,6 +28,7 @@ import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -56,6 +62,12 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
     @Autowired
     private ThreadPoolTaskExecutor taskProducerExecutor;
 
+    @Autowired
+    private ThreadPoolTaskExecutor taskPrefetchExecutor;
+
+    @Autowired
+    private TaskProgressTracker taskProgressTracker;
+
     @Autowired
     private IDataPoolTemplateService iDataPoolTemplateService;
 
@@ -69,7 +81,7 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
     private ISystemLogService systemLogService;
     
     @Override
-    public void startProduction(Long taskId, Long poolId) {
+    public void startProduction(Long taskId, Long poolId, int planPrintCount, int originalCount) {
         try {
             log.info("启动数据生产，任务ID: {}, 数据池ID: {}", taskId, poolId);
             
@@ -80,14 +92,16 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
             }
             
             // 创建并启动Runner
-            // 读取启动时的计划快照，绑定到本任务的Runner，避免不同任务混用
-            int planPrintCountSnapshot = taskDispatchProperties.getPlanPrintCount();
-            int originalCountSnapshot = taskDispatchProperties.getOriginalCount();
+            // 任务进度计数器由调度器在启动时创建，单独启动生产时在此创建
+            TaskProgressCounter progress = taskProgressTracker.get(taskId);
+            if (progress == null) {
+                progress = taskProgressTracker.start(taskId);
+            }
 
             DataPoolProducerRunner runner = new DataPoolProducerRunner(
                     taskId, poolId, commandQueueService, dataPoolItemService,dataPoolService, taskDeviceLinkService,
                     iDataPoolTemplateService, iDeviceFileConfigService, taskDispatchProperties,
-                    planPrintCountSnapshot, originalCountSnapshot, systemLogService);
+                    planPrintCount, originalCount, systemLogService, taskPrefetchExecutor, progress);
 
             // 创建Future
             Future<?> future = taskProducerExecutor.submit(runner);
@@ -183,6 +197,18 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
         return runningRunners.keySet();
     }
     
+    @Override
+    public void expediteItems(Long poolId, List<Long> itemIds, CommandPriority priority) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        for (DataPoolProducerRunner runner : runningRunners.values()) {
+            if (runner.isRunning() && (poolId == null || poolId.equals(runner.getPoolId()))) {
+                runner.expedite(itemIds, priority);
+            }
+        }
+    }
+    
     @Override
     public void pauseProduction(Long taskId) {
         try {
@@ -246,7 +272,11 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
     public void handleTaskStartEvent(TaskStartEvent event) {
         try {
             log.info("收到任务启动事件，任务ID: {}", event.getTaskId());
-            startProduction(event.getTaskId(), event.getRequest().getPoolId());
+            // 计划数随任务启动请求传入，绑定到本任务的Runner，并行任务互不影响
+            TaskDispatchRequest request = event.getRequest();
+            startProduction(event.getTaskId(), request.getPoolId(),
+                    request.getPrintCount() != null ? request.getPrintCount() : -1,
+                    request.getSentCommandCount() != null ? request.getSentCommandCount() : 0);
         } catch (Exception e) {
             log.error("处理任务启动事件异常，任务ID: {}", event.getTaskId(), e);
         }
@@ -255,6 +285,14 @@ public class DataPoolProducerServiceImpl implements DataPoolProducerService {
     /**
      * 监听任务暂停事件
      */
+    /**
+     * 处理任务元数据变更事件：作废相关运行中任务的上下文快照
+     */
+    @EventListener
+    public void handleTaskMetadataChangedEvent(TaskMetadataChangedEvent event) {
+        runningRunners.values().forEach(runner -> runner.onMetadataChanged(event));
+    }
+
     @EventListener
     public void handleTaskPauseEvent(TaskPauseEvent event) {
         try {
@@ -7,9 +7,13 @@ import com.ruoyi.business.domain.TaskInfo.TaskDispatchStatus;
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
 import com.ruoyi.business.enums.*;
 import com.ruoyi.business.service.SystemLog.ISystemLogService;
+import com.ruoyi.business.service.SystemLog.writer.CommunicationLogWriter;
 import com.ruoyi.business.service.TaskInfo.DeviceDataHandlerService;
 import com.ruoyi.business.service.TaskInfo.TaskDispatcherService;
 import com.ruoyi.business.service.TaskInfo.CommandQueueService;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceEvent;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceMessageDispatcher;
+import com.ruoyi.business.service.TaskInfo.inbound.DeviceResponseParser;
 import com.ruoyi.business.service.DeviceInfo.IDeviceInfoService;
 import com.ruoyi.business.domain.DeviceInfo.DeviceInfo;
 import com.ruoyi.business.utils.StxEtxProtocolUtil;
@@ -25,8 +29,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 设备数据处理服务实现
@@ -59,72 +61,61 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
     @Autowired
     private CommandQueueService commandQueueService;
 
+    @Autowired
+    private DeviceMessageDispatcher deviceMessageDispatcher;
+
      @Autowired
     private ISystemLogService systemLogService;
 
+    @Autowired
+    private CommunicationLogWriter communicationLogWriter;
 
 
-    // 正则表达式模式
-    private static final Pattern SYSTEM_PATTERN = Pattern.compile("system:(\\d+)");
-    private static final Pattern SETA_PATTERN = Pattern.compile("seta:(\\d+)(?::(.+))?");
-    private static final Pattern DATA_ERROR_PATTERN = Pattern.compile("data_error");
-    private static final Pattern BUFFER_COUNT_PATTERN = Pattern.compile("geta:(\\d+)");
-
 
     @Override
     public void handleDeviceData(String deviceId, String data) {
-        // 处理数据
-        data = data.trim();
+        handleDeviceEvent(deviceId, DeviceResponseParser.parse(data));
+    }
+
+    @Override
+    public void handleDeviceEvent(String deviceId, DeviceEvent event) {
         try {
-            // 打印原始数据（ASCII格式）
-            if (data != null) {
-                log.info("=========> 设备ID: {} 接收指令<===: {}",deviceId, data);
-            }
+            // 打印原始数据（ASCII格式），每帧都会经过这里，仅在调试级别开启时解码消息文本
+            log.debug("=========> 设备ID: {} 接收指令<===: {}", deviceId, event);
             // 更新设备统计
-            updateDeviceStatistics(deviceId, data);
+            updateDeviceStatistics(deviceId);
 
-            if (!data.contains("ping:")) {
-                //记录通讯日志
+            if (event.getType() != DeviceEventType.PING && communicationLogWriter.shouldRecord(event)) {
+                //记录通讯日志（异步批量写库）
                 SystemLog systemLog = new SystemLog();
                 systemLog.setLogType(SystemLogType.COMMUNICATION.getCode());
                 systemLog.setLogLevel(SystemLogLevel.INFO.getCode());
                 systemLog.setTaskId(dispatcher.getDeviceTaskId(deviceId));
                 systemLog.setDeviceId(Long.valueOf(deviceId));
                 systemLog.setPoolId(dispatcher.getPoolId(systemLog.getTaskId()));
-                systemLog.setContent("接收指令<==="+data);
-                systemLogService.insert(systemLog);
+                systemLog.setContent("接收指令<==="+event.text());
+                communicationLogWriter.offer(systemLog);
             }
 
-            // 解析并处理不同类型的设备数据
-            if (data != null && !data.trim().isEmpty()) {
-                String trimmedData = data.trim();
-
-                // 处理system:2信号（打印完成）
-                if (handleSystemSignal(deviceId, trimmedData)) {
-                    return;
-                }
-
-                // 处理seta:0信号（错误）
-                if (handleSetaSignal(deviceId, trimmedData)) {
-                    return;
-                }
-
-                // 处理data_error信号
-                if (handleDataErrorSignal(deviceId, trimmedData)) {
-                    return;
-                }
-
-                // 处理缓冲区数量报告
-                if (handleBufferCountReport(deviceId, trimmedData)) {
-                    return;
-                }
-
+            // 按拆帧时解析出的消息类型处理
+            boolean handled = switch (event.getType()) {
+                // system:2信号（打印完成）
+                case SYSTEM -> handleSystemSignal(deviceId, event.getCode());
+                // seta:0信号（错误）
+                case SETA -> handleSetaSignal(deviceId, event);
+                // data_error信号
+                case DATA_ERROR -> handleDataErrorSignal(deviceId);
+                // 缓冲区数量报告
+                case GETA -> handleBufferCountReport(deviceId, event.getCode());
+                default -> false;
+            };
+            if (!handled) {
                 // 处理其他设备数据
-                handleOtherDeviceData(deviceId, trimmedData);
+                handleOtherDeviceData(deviceId, event);
             }
 
         } catch (Exception e) {
-            log.error("处理设备数据异常，设备ID: {}, 数据: {}", deviceId, data, e);
+            log.error("处理设备数据异常，设备ID: {}, 数据: {}", deviceId, event, e);
              //记录通讯日志
                 SystemLog systemLog = new SystemLog();
                 systemLog.setLogType(SystemLogType.COMMUNICATION.getCode());
@@ -132,8 +123,8 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
                 systemLog.setTaskId(dispatcher.getDeviceTaskId(deviceId));
                 systemLog.setDeviceId(Long.valueOf(deviceId));
                 systemLog.setPoolId(dispatcher.getPoolId(systemLog.getTaskId()));
-                systemLog.setContent("接收异常指令<==="+data+";"+"错误:"+e.getMessage());
-                systemLogService.insert(systemLog);
+                systemLog.setContent("接收异常指令<==="+event.text()+";"+"错误:"+e.getMessage());
+                communicationLogWriter.offer(systemLog);
         }
     }
 
@@ -352,6 +343,12 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
         }
     }
 
+    @Override
+    public void handleWritabilityChanged(String deviceId, boolean writable) {
+        // 不可写时调度器不再向该设备分配指令，恢复可写时唤醒等待的发送通道
+        dispatcher.onDeviceWritabilityChanged(deviceId, writable);
+    }
+
     // 每2秒轮询一次所有在线设备的缓存池数量
     @Scheduled(fixedRate = 2000)
     private void pollDeviceBufferCounts() {
@@ -388,6 +385,8 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
             statistics.put("errorCount", stats.getErrorCount());
             statistics.put("lastBufferCount", stats.getLastBufferCount());
             statistics.put("isOnline", deviceChannels.containsKey(deviceId));
+            // 上报消息处理排队情况
+            statistics.put("inbound", deviceMessageDispatcher.getStatistics(deviceId));
         }
         
         return statistics;
@@ -396,48 +395,44 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
     /**
      * 处理system信号
      */
-    private boolean handleSystemSignal(String deviceId, String data) {
-        Matcher matcher = SYSTEM_PATTERN.matcher(data);
-        if (matcher.matches()) {
-            String signalCode = matcher.group(1);
-            if ("2".equals(signalCode)) {
-                // system:2 既是心跳信号，也是打印完成信号
-                long currentTime = System.currentTimeMillis();
-                
-                // 更新心跳时间
-                DeviceStatistics stats = deviceStatistics.get(deviceId);
-                DeviceTaskStatus dts = dispatcher.getDeviceTaskStatus(deviceId);
-                if (stats != null) {
-                    dts.setLastHeartbeat(currentTime);
-                    stats.setLastSystemSignalTime(currentTime); // 更新最后一次system信号时间
-                    stats.setHeartbeatCount(stats.getHeartbeatCount() + 1);
-                    // 心跳恢复：重置错误限流标记与状态
-                    stats.setPingSentWhileError(false);
-                    // 若曾标记为ERROR，恢复为打印中/空闲
-                    try {
-                        Long currentTaskId = dts != null ? dts.getCurrentTaskId() : null;
-                        if (currentTaskId != null &&  !dts.getStatus().equals(TaskDeviceStatus.PRINTING.getCode()) ) {
-                            stats.setStatus(TaskDeviceStatus.PRINTING.getCode());
-                            dts.setStatus(TaskDeviceStatus.PRINTING.getCode());
-                            updateTaskDeviceStatus(currentTaskId, Long.valueOf(deviceId), TaskDeviceStatus.PRINTING.getCode());
-                            updateDeviceStatus(deviceId, DeviceStatus.ONLINE_PRINTING.getCode());
-                            // 统计接收数量：收到一次system:2即视为接收一次
-                            TaskDispatchStatus taskStatus = dispatcher.getTaskDispatchStatus(currentTaskId);
-                            if (taskStatus != null) {
-                                Integer received = taskStatus.getReceivedCommandCount();
-                                taskStatus.setReceivedCommandCount((received == null ? 0 : received) + 1);
-                            }
-                        } else {
-                            stats.setStatus(TaskDeviceStatus.WAITING.getCode());
-                            updateDeviceStatus(deviceId, DeviceStatus.ONLINE_IDLE.getCode());
+    private boolean handleSystemSignal(String deviceId, int signalCode) {
+        if (signalCode == 2) {
+            // system:2 既是心跳信号，也是打印完成信号
+            long currentTime = System.currentTimeMillis();
+            
+            // 更新心跳时间
+            DeviceStatistics stats = deviceStatistics.get(deviceId);
+            DeviceTaskStatus dts = dispatcher.getDeviceTaskStatus(deviceId);
+            if (stats != null) {
+                dts.setLastHeartbeat(currentTime);
+                stats.setLastSystemSignalTime(currentTime); // 更新最后一次system信号时间
+                stats.setHeartbeatCount(stats.getHeartbeatCount() + 1);
+                // 心跳恢复：重置错误限流标记与状态
+                stats.setPingSentWhileError(false);
+                // 若曾标记为ERROR，恢复为打印中/空闲
+                try {
+                    Long currentTaskId = dts != null ? dts.getCurrentTaskId() : null;
+                    if (currentTaskId != null &&  !dts.getStatus().equals(TaskDeviceStatus.PRINTING.getCode()) ) {
+                        stats.setStatus(TaskDeviceStatus.PRINTING.getCode());
+                        dts.setStatus(TaskDeviceStatus.PRINTING.getCode());
+                        updateTaskDeviceStatus(currentTaskId, Long.valueOf(deviceId), TaskDeviceStatus.PRINTING.getCode());
+                        updateDeviceStatus(deviceId, DeviceStatus.ONLINE_PRINTING.getCode());
+                        // 统计接收数量：收到一次system:2即视为接收一次
+                        TaskDispatchStatus taskStatus = dispatcher.getTaskDispatchStatus(currentTaskId);
+                        if (taskStatus != null) {
+                            Integer received = taskStatus.getReceivedCommandCount();
+                            taskStatus.setReceivedCommandCount((received == null ? 0 : received) + 1);
                         }
-                    } catch (Exception ignore) {
+                    } else {
+                        stats.setStatus(TaskDeviceStatus.WAITING.getCode());
+                        updateDeviceStatus(deviceId, DeviceStatus.ONLINE_IDLE.getCode());
                     }
+                } catch (Exception ignore) {
                 }
-                
-                handlePrintCompleted(deviceId);
-                return true;
             }
+            
+            handlePrintCompleted(deviceId);
+            return true;
         }
         return false;
     }
@@ -445,27 +440,24 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
     /**
      * 处理seta信号
      */
-    private boolean handleSetaSignal(String deviceId, String data) {
-        Matcher matcher = SETA_PATTERN.matcher(data);
-        if (matcher.matches()) {
-            String resultCode = matcher.group(1);
-            String commandData = matcher.group(2); // 获取冒号后面的数据
-            
-            if ("0".equals(resultCode)) {
-                // seta:0 表示指令执行失败
-                if (commandData != null && !commandData.trim().isEmpty()) {
-                    // 重新构建指令并放回数据池
-                    handleSetaFailureWithRetry(deviceId, commandData);
-                } else {
-                    // 没有具体数据，只报告错误
-                    handleError(deviceId, "SETA指令执行失败");
-                }
-                return true;
-            } else if ("1".equals(resultCode)) {
-                // seta:1 表示指令执行成功
-                log.debug("SETA指令执行成功，设备ID: {}", deviceId);
-                return true;
+    private boolean handleSetaSignal(String deviceId, DeviceEvent event) {
+        int resultCode = event.getCode();
+        
+        if (resultCode == 0) {
+            // seta:0 表示指令执行失败
+            String commandData = event.detail(); // 获取冒号后面的数据
+            if (commandData != null && !commandData.trim().isEmpty()) {
+                // 重新构建指令并放回数据池
+                handleSetaFailureWithRetry(deviceId, commandData);
+            } else {
+                // 没有具体数据，只报告错误
+                handleError(deviceId, "SETA指令执行失败");
             }
+            return true;
+        } else if (resultCode == 1) {
+            // seta:1 表示指令执行成功
+            log.debug("SETA指令执行成功，设备ID: {}", deviceId);
+            return true;
         }
         return false;
     }
@@ -497,19 +489,20 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
             
             if (currentTaskId != null) {
                 // 创建重试的打印指令
+                // 补打指令不对应数据项，ID留空：不参与数据项追踪、已发送记录、发送日志与任务进度计数
                 PrintCommand retryPrintCommand = new PrintCommand();
-                retryPrintCommand.setId(1L);
                  retryPrintCommand.setTaskId(currentTaskId);
                  retryPrintCommand.setData(retryCommand);
                 retryPrintCommand.setCommand(retryCommand);
                 retryPrintCommand.setStatus(PrintCommandStatusEnum.PENDING.getCode());
                 retryPrintCommand.setRetryCount(0);
                 retryPrintCommand.setMaxRetryCount(3); // 设置最大重试次数
-                retryPrintCommand.setPriority(1);
+                // 补打走高优先级通道，插到批量数据之前发送
+                retryPrintCommand.setPriority(CommandPriority.REPRINT.getCode());
                 retryPrintCommand.setCreateTime(System.currentTimeMillis());
                 
                 // 将重试指令放回队列
-                commandQueueService.addCommandToQueue(retryPrintCommand);
+                commandQueueService.requeueCommand(retryPrintCommand);
                 log.info("将重试指令放回队列，设备ID: {}, 指令: {}", deviceId, retryCommand);
 
                 
@@ -527,35 +520,23 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
     /**
      * 处理数据错误信号
      */
-    private boolean handleDataErrorSignal(String deviceId, String data) {
-        if (DATA_ERROR_PATTERN.matcher(data).matches()) {
-            handleError(deviceId, "数据错误");
-            return true;
-        }
-        return false;
+    private boolean handleDataErrorSignal(String deviceId) {
+        handleError(deviceId, "数据错误");
+        return true;
     }
     
     /**
      * 处理缓冲区数量报告
      */
-    private boolean handleBufferCountReport(String deviceId, String data) {
-        Matcher matcher = BUFFER_COUNT_PATTERN.matcher(data);
-        if (matcher.matches()) {
-            try {
-                Integer bufferCount = Integer.valueOf(matcher.group(1));
-                handleBufferCountReport(deviceId, bufferCount);
-                return true;
-            } catch (NumberFormatException e) {
-                log.warn("解析缓冲区数量失败，设备ID: {}, 数据: {}", deviceId, data);
-            }
-        }
-        return false;
+    private boolean handleBufferCountReport(String deviceId, int bufferCount) {
+        handleBufferCountReport(deviceId, Integer.valueOf(bufferCount));
+        return true;
     }
     
     /**
      * 处理其他设备数据
      */
-    private void handleOtherDeviceData(String deviceId, String data) {
+    private void handleOtherDeviceData(String deviceId, DeviceEvent event) {
         // 处理其他类型的设备数据
     }
     
@@ -656,7 +637,7 @@ public class DeviceDataHandlerServiceImpl implements DeviceDataHandlerService {
     /**
      * 更新设备统计
      */
-    private void updateDeviceStatistics(String deviceId, String data) {
+    private void updateDeviceStatistics(String deviceId) {
         DeviceStatistics stats = deviceStatistics.get(deviceId);
         if (stats != null) {
             stats.setDataCount(stats.getDataCount() + 1);
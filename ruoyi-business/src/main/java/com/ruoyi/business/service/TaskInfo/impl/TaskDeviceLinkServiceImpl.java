@@ -1,9 +1,11 @@
 package com.ruoyi.business.service.TaskInfo.impl;
 
 import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
 import com.ruoyi.business.mapper.TaskInfo.TaskDeviceLinkMapper;
 import com.ruoyi.business.service.TaskInfo.ITaskDeviceLinkService;
 import jakarta.annotation.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +20,9 @@ public class TaskDeviceLinkServiceImpl implements ITaskDeviceLinkService {
     @Resource
     private TaskDeviceLinkMapper taskDeviceLinkMapper;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
     /** 批量创建关联 */
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -25,21 +30,28 @@ public class TaskDeviceLinkServiceImpl implements ITaskDeviceLinkService {
         if (links == null || links.isEmpty()) {
             return 0;
         }
-        return taskDeviceLinkMapper.batchInsertTaskDeviceLinks(links);
+        int rows = taskDeviceLinkMapper.batchInsertTaskDeviceLinks(links);
+        links.stream().map(TaskDeviceLink::getTaskId).distinct()
+                .forEach(taskId -> eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTask(taskId)));
+        return rows;
     }
 
     /** 更新关联 */
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int updateLink(TaskDeviceLink link) {
-        return taskDeviceLinkMapper.updateTaskDeviceLink(link);
+        int rows = taskDeviceLinkMapper.updateTaskDeviceLink(link);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTask(link.getTaskId()));
+        return rows;
     }
 
     /** 按任务ID删除关联（软删除） */
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int deleteByTaskId(Long taskId) {
-        return taskDeviceLinkMapper.deleteByTaskId(taskId);
+        int rows = taskDeviceLinkMapper.deleteByTaskId(taskId);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTask(taskId));
+        return rows;
     }
 
     /** 按设备ID更新设备状态 */
@@ -76,7 +88,9 @@ public class TaskDeviceLinkServiceImpl implements ITaskDeviceLinkService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public int deleteByTaskIdAndDeviceId(Long taskId, Long deviceId) {
-        return taskDeviceLinkMapper.deleteByTaskIdAndDeviceId(taskId, deviceId);
+        int rows = taskDeviceLinkMapper.deleteByTaskIdAndDeviceId(taskId, deviceId);
+        eventPublisher.publishEvent(TaskMetadataChangedEvent.ofTask(taskId));
+        return rows;
     }
 }
 
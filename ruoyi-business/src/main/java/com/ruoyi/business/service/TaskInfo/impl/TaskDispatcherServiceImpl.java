@@ -5,7 +5,15 @@ import com.ruoyi.business.domain.TaskInfo.*;
 import com.ruoyi.business.enums.*;
 import com.ruoyi.business.service.DataPool.DataSourceLifecycleService;
 import com.ruoyi.business.service.SystemLog.ISystemLogService;
+import com.ruoyi.business.service.SystemLog.writer.CommunicationLogWriter;
 import com.ruoyi.business.service.TaskInfo.*;
+import com.ruoyi.business.service.TaskInfo.assign.*;
+import com.ruoyi.business.service.TaskInfo.dispatch.TaskDispatchContext;
+import com.ruoyi.business.service.TaskInfo.credit.DeviceCreditCounter;
+import com.ruoyi.business.service.TaskInfo.journal.DispatchJournal;
+import com.ruoyi.business.service.TaskInfo.persist.TaskDataPersister;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressTracker;
 import com.ruoyi.business.service.DeviceInfo.IDeviceInfoService;
 import com.ruoyi.business.domain.DeviceInfo.DeviceInfo;
 import com.ruoyi.business.service.DeviceInfo.DeviceCommandService;
@@ -13,8 +21,9 @@ import com.ruoyi.business.events.TaskStartEvent;
 import com.ruoyi.business.events.TaskStopEvent;
 import com.ruoyi.business.events.CommandCompletedEvent;
 import com.ruoyi.business.utils.StxEtxProtocolUtil;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import org.apache.commons.lang3.ObjectUtils;
 import org.slf4j.Logger;
@@ -52,10 +61,30 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
     private final ConcurrentHashMap<String, Channel> deviceChannels = new ConcurrentHashMap<>();
     // 设备心跳时间
     private final ConcurrentHashMap<String, Long> heartbeatTimestamps = new ConcurrentHashMap<>();
-    // 设备在途指令计数器（线程安全）
-    private final ConcurrentHashMap<String, AtomicInteger> inFlightCounters = new ConcurrentHashMap<>();
-    // 设备计数器锁，确保每个设备的计数操作顺序执行
-    private final ConcurrentHashMap<String, Object> deviceLocks = new ConcurrentHashMap<>();
+    // 设备在途指令额度（CAS 计数，无监视器锁）
+    private final ConcurrentHashMap<String, DeviceCreditCounter> deviceCredits = new ConcurrentHashMap<>();
+    // 运行中任务的调度上下文（任务ID -> 上下文），各任务的设备、计划数与就绪索引相互隔离
+    private final ConcurrentHashMap<Long, TaskDispatchContext> taskContexts = new ConcurrentHashMap<>();
+    // 设备负载视图，各任务上下文的就绪索引共用
+    private final DeviceLoad deviceLoad = new DeviceLoad() {
+        @Override
+        public boolean canReceive(String deviceId) {
+            return canDeviceReceiveCommand(deviceId);
+        }
+
+        @Override
+        public int inFlight(String deviceId) {
+            return getDeviceInFlightCount(deviceId);
+        }
+
+        @Override
+        public int throughput(String deviceId) {
+            DeviceTaskStatus status = deviceStatusMap.get(deviceId);
+            return status != null && status.getThroughput() != null ? status.getThroughput() : 0;
+        }
+    };
+    // 设备分配策略（task.dispatch.assign-strategy），每个任务上下文各持有一个实例
+    private DeviceAssignStrategyType assignStrategyType;
     // 任务进度上报定时器
     private final ConcurrentHashMap<Long,ScheduledFuture<?>> progressUpdaters = new ConcurrentHashMap<>();
     
@@ -66,9 +95,6 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
     
     // 发送计数缓冲（设备维度，内存聚合，供批量持久化使用）
     private final ConcurrentHashMap<String, AtomicInteger> sentCountsBuffer = new ConcurrentHashMap<>();
-    
-    // 当前任务
-    private volatile TaskInfo currentTask;
 
     @Autowired
     private ApplicationEventPublisher eventPublisher;
@@ -95,8 +121,21 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
     @Autowired
     private ITaskDeviceLinkService taskDeviceLinkService;
 
+    @Autowired
+    private TaskProgressTracker taskProgressTracker;
+
+    @Autowired
+    private DispatchJournal dispatchJournal;
+
     @Autowired
     private ISystemLogService systemLogService;
+
+    @Autowired
+    private CommunicationLogWriter communicationLogWriter;
+
+    @Autowired
+    @Lazy
+    private TaskDataPersister taskDataPersister;
     
     @Resource
     private DataSourceLifecycleService dataSourceLifecycleService;
@@ -129,10 +168,11 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             taskStatus.setSentCommandCount(request.getSentCommandCount());//已发送指令数量
             taskStatus.setReceivedCommandCount(request.getReceivedCommandCount());//接收到的指令数量
             taskStatus.setEnableCheck(request.getEnableCheck());//是否启用质检
-            taskDispatchProperties.setPlanPrintCount(request.getPrintCount());//设置计划打印数量
-            taskDispatchProperties.setOriginalCount(request.getSentCommandCount());//设置已完成的原始数量
              // 加入任务线程
             taskStatusMap.put(request.getTaskId(), taskStatus);
+            // 创建任务调度上下文（参与设备与就绪设备索引按任务独立保存）
+            taskContexts.put(request.getTaskId(), new TaskDispatchContext(request.getTaskId(),
+                    newAssignStrategy(), deviceLoad));
             try {
                 // 2. 执行预检
                 if (!executePreFlightChecks(request.getTaskId(), request.getDeviceIds())) {
@@ -178,15 +218,22 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
                 taskDeviceLinkService.updateDeviceStatus( request.getTaskId(), deviceId,TaskDeviceStatus.PRINTING.getCode());
                 deviceInfoService.updateDeviceStatus(deviceId, DeviceStatus.ONLINE_PRINTING.getCode());
             }
+            // 3.1. 创建任务进度计数器并与数据库校准
+            reconcileProgressOnStart(request.getTaskId(), request.getPoolId());
+
             // 4. 发布任务启动事件，让其他服务监听并启动
             eventPublisher.publishEvent(new TaskStartEvent(this, request));
 
             //发布设备启动指令
             commandSenderService.startSending(request.getTaskId());
             
-            // 5. 设置当前任务
-            currentTask = taskInfoService.selectTaskInfoById(request.getTaskId());
-            if (currentTask == null) {
+            // 5. 设置任务信息，此后该任务的指令开始分配设备
+            TaskInfo taskInfo = taskInfoService.selectTaskInfoById(request.getTaskId());
+            TaskDispatchContext context = taskContexts.get(request.getTaskId());
+            if (context != null) {
+                context.setTaskInfo(taskInfo);
+            }
+            if (taskInfo == null) {
                 log.error("任务不存在，任务ID: {}", request.getTaskId());
                 taskStatus.setStatus(TaskDispatchStatusEnum.FAILED.getCode());
                 taskStatus.setErrorMessage("任务不存在");
@@ -284,13 +331,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
 
             }
 
-            // 清空当前任务 与缓存池数据
-            if (currentTask != null && currentTask.getId().equals(taskId)) {
-                //清除commandQueue对应任务的缓存池数据
-                commandQueueService.clearQueue(taskId);
-                // 清空当前任务
-                currentTask = null;
-            }
+            //清除commandQueue对应任务的缓存池数据
+            commandQueueService.clearQueue(taskId);
 
             //移除改任务下所有的设备与任务
             removeTaskDevices(taskId);
@@ -379,13 +421,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
                taskDeviceLinkService.updateLink(link1);
             }
 
-             // 清空当前任务 与缓存池数据
-            if (currentTask != null && currentTask.getId().equals(taskId)) {
-                //清除commandQueue对应任务的缓存池数据
-                commandQueueService.clearQueue(taskId);
-                // 清空当前任务
-                currentTask = null;
-            }
+            //清除commandQueue对应任务的缓存池数据
+            commandQueueService.clearQueue(taskId);
             //移除改任务下所有的设备与任务
              removeTaskDevices(taskId);
 
@@ -426,8 +463,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
                       if (channel != null && channel.isActive()) {
                     // 发送 geta 指令
                     String cmd = "geta:";
-                    byte[] commandBytes = StxEtxProtocolUtil.buildCommand(cmd);
-                    channel.writeAndFlush(Unpooled.wrappedBuffer(commandBytes));
+                    // 直接编码到通道分配器的缓冲区，刷新由管道中的 FlushConsolidationHandler 合并
+                    channel.writeAndFlush(StxEtxProtocolUtil.encodeCommand(channel.alloc(), cmd));
                     log.debug("轮询任务在线设备的缓存池数量，设备ID: {} -> {}", deviceId, cmd);
                 }
             }
@@ -497,6 +534,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
 
                 deviceStatusMap.put(deviceIdStr, deviceStatus);
                 heartbeatTimestamps.put(deviceIdStr, System.currentTimeMillis());
+                // 发送日志以已持久化的数量为累计起点
+                dispatchJournal.seedDevice(taskId, deviceIdStr, link.getCompletedQuantity(), link.getReceivedQuantity());
 
                 //5. 初始化设备锁
 //                if (taskInfo.getStatus().equals(TaskStatus.PENDING.getCode())) {
@@ -511,9 +550,12 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
 //
 //                }
 
-                // 初始化线程安全的在途指令计数器和设备锁
-                inFlightCounters.put(deviceIdStr, new AtomicInteger(0));
-                deviceLocks.put(deviceIdStr, new Object());
+                // 初始化设备在途指令额度并加入任务的就绪设备索引
+                deviceCredits.put(deviceIdStr, new DeviceCreditCounter());
+                TaskDispatchContext context = taskContexts.get(taskId);
+                if (context != null) {
+                    context.addDevice(deviceIdStr);
+                }
 
                 //记录打印日志
                 SystemLog systemLog = new SystemLog();
@@ -606,10 +648,16 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
         //获取所有改设备任务
         List<DeviceTaskStatus> deviceStatuses = deviceStatusMap.values().stream()
                 .filter(status -> status.getCurrentTaskId() != null && status.getCurrentTaskId().equals(taskId)).toList();
+        TaskDispatchContext context = taskContexts.remove(taskId);
         deviceStatuses.forEach(status -> {
             deviceStatusMap.remove(status.getDeviceId());
+            if (context != null) {
+                context.removeDevice(status.getDeviceId());
+            }
+            dispatchJournal.forgetDevice(status.getDeviceId());
         });
         taskStatusMap.remove(taskId);
+        taskProgressTracker.remove(taskId);
     }
 
 
@@ -622,6 +670,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             TaskDispatchStatus taskStatus = taskStatusMap.get(taskId);
             // 先安全地更新一次进度
 //            safeUpdateProgress(taskId);
+            // 停止时与数据库校准一次内存计数
+            reconcileProgressOnStop(taskId, taskStatus.getPoolId());
             //将此任务下的数据池数据打印中改为待打印
             dataPoolItemService.updateToPendingItem(taskStatus.getPoolId());
             // 停止定时器
@@ -674,37 +724,34 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
     public void reportCommandCompleted(String deviceId, Long taskId) {
         DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
         if (deviceStatus != null) {
-            // 获取设备专用锁，确保计数操作的顺序性
-            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
-            
-            synchronized (deviceLock) {
-                // 使用线程安全的计数器减少在途指令计数
-                AtomicInteger counter = inFlightCounters.computeIfAbsent(deviceId, k -> new AtomicInteger(0));
-                int oldValue = counter.get();
-                int newValue = counter.decrementAndGet();
-                if (newValue < 0) {
-                    counter.set(0); // 确保不会小于0
-                    newValue = 0;
-                }
-                
-                // 同步更新DeviceTaskStatus中的计数
-                deviceStatus.setInFlightCount(newValue);
-                
-                log.info("指令完成报告，设备ID: {}, 计数器变化: {} -> {}", deviceId, oldValue, newValue);
-
-                deviceStatus.setLastHeartbeat(System.currentTimeMillis());
-                heartbeatTimestamps.put(deviceId, System.currentTimeMillis());
-            }
+            // 释放在途额度（不小于0），有发送通道等待时由计数器唤醒
+            int newValue = creditOf(deviceId).release();
+            signalCreditAvailable(deviceId);
+
+            // 同步更新DeviceTaskStatus中的计数
+            deviceStatus.setInFlightCount(newValue);
+            long now = System.currentTimeMillis();
+            deviceStatus.setLastHeartbeat(now);
+            heartbeatTimestamps.put(deviceId, now);
+
+            log.debug("指令完成报告，设备ID: {}, 在途数量: {}", deviceId, newValue);
             
             // 关键：仅在内存中累加完成计数，交由统一调度批量持久化
             completedCountsBuffer.computeIfAbsent(deviceId, k -> new AtomicInteger(0)).incrementAndGet();
+            // 计数生效后再写日志，落库确认时日志中的事件均已计入缓冲
+            dispatchJournal.appendAcked(taskId, deviceId);
 
         }
         
         // 发布指令完成事件
         eventPublisher.publishEvent(new CommandCompletedEvent(this, taskId, deviceId));
 
-        // 检查计划打印数量：-1 表示无限，查询数据队列数量，如果为0则完成任务
+        TaskProgressCounter progress = taskProgressTracker.get(taskId);
+        if (progress != null) {
+            progress.recordAcked();
+        }
+
+        // 检查计划打印数量：-1 表示无限，>0 为计划数量；已无待发送数据且设备缓存清空则完成任务
         TaskDispatchStatus taskStatus = taskStatusMap.get(taskId);
         // 任务不存在则返回
         if (ObjectUtils.isEmpty(taskStatus)){
@@ -712,30 +759,14 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
         }
 
         try {
-            if (commandQueueService.getQueueSize(taskId) == 0) {
-                if (taskStatus.getPlannedPrintCount() == -1) {
-
-                    //查询待打印与打印中的数量
-                    int planPrintCount = dataPoolItemService.countByPending(taskStatus.getPoolId());
-                    if (planPrintCount == 0) {
-                         // 同步设备缓存池数量
-                         // 检查设备缓存是否为空
-                        if (!waitUntilDeviceBuffersEmpty(taskId)){
-                             return;
-                        }
-                        finishTaskDispatch(taskId);
-                    }
-                }else if (taskStatus.getPlannedPrintCount() > 0) {
-
-                    //查询打印中的数量
-                    int printingCount = dataPoolItemService.countByPrinting(taskStatus.getPoolId());
-                    if (printingCount == 0) {
-                            // 检查设备缓存是否为空
-                         if (!waitUntilDeviceBuffersEmpty(taskId)){
-                             return;
-                         }
-                        finishTaskDispatch(taskId);
-                    }
+            Integer plannedPrintCount = taskStatus.getPlannedPrintCount();
+            if (plannedPrintCount != null && (plannedPrintCount == -1 || plannedPrintCount > 0)) {
+                // 内存计数判断（O(1)），设备缓存未清空时不访问数据库
+                if (!isProgressDrained(taskId) || !waitUntilDeviceBuffersEmpty(taskId)) {
+                    return;
+                }
+                if (confirmNoPendingData(taskId, taskStatus.getPoolId())) {
+                    finishTaskDispatch(taskId);
                 }
             }
         } catch (Exception ex) {
@@ -747,23 +778,27 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
      * 原子抽取并清空完成计数缓冲（供统一调度任务使用）
      */
     public Map<String, Integer> getAndClearCompletedBuffer() {
-        Map<String, Integer> snapshot = new HashMap<>();
-        for (Map.Entry<String, AtomicInteger> e : completedCountsBuffer.entrySet()) {
-            snapshot.put(e.getKey(), e.getValue().get());
-        }
-        completedCountsBuffer.clear();
-        return snapshot;
+        return drainCountBuffer(completedCountsBuffer);
     }
     
     /**
      * 获取并清空发送计数缓冲
      */
     public Map<String, Integer> getAndClearSentBuffer() {
+        return drainCountBuffer(sentCountsBuffer);
+    }
+
+    /**
+     * 逐个计数器 getAndSet(0) 抽取增量，读取与清零之间的计数不会丢失；计数器对象保留复用
+     */
+    private static Map<String, Integer> drainCountBuffer(ConcurrentHashMap<String, AtomicInteger> buffer) {
         Map<String, Integer> snapshot = new HashMap<>();
-        for (Map.Entry<String, AtomicInteger> e : sentCountsBuffer.entrySet()) {
-            snapshot.put(e.getKey(), e.getValue().get());
+        for (Map.Entry<String, AtomicInteger> e : buffer.entrySet()) {
+            int count = e.getValue().getAndSet(0);
+            if (count > 0) {
+                snapshot.put(e.getKey(), count);
+            }
         }
-        sentCountsBuffer.clear();
         return snapshot;
     }
     
@@ -787,24 +822,96 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             return false;
         }
 
-        // 获取设备专用锁，确保计数检查的准确性
-        Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
-        
-        synchronized (deviceLock) {
-            // 使用线程安全的计数器检查在途指令数量
-            AtomicInteger counter = inFlightCounters.get(deviceId);
-            if (counter != null) {
-                int inFlightCount = counter.get();
-                // 可以根据设备能力设置最大在途指令数，这里暂时设为20
-                int maxInFlight = deviceStatus.getCachePoolSize();
-                if (inFlightCount >= maxInFlight) {
-//                    log.debug("设备在途指令已达上限，设备ID: {}, 在途数量: {}", deviceId, inFlightCount);
-                    return false;
-                }
-            }
+        // 在途指令数量未达到设备缓存池大小、且通道出站缓冲未超过高水位即可接收
+        DeviceCreditCounter credit = deviceCredits.get(deviceId);
+        return (credit == null || credit.hasCredit(creditLimit(deviceStatus))) && isChannelWritable(deviceId);
+    }
+
+    /**
+     * 设备通道是否可写（无长连接通道时按可写处理，由发送时回退短连接）
+     */
+    private boolean isChannelWritable(String deviceId) {
+        Channel channel = deviceChannels.get(deviceId);
+        return channel == null || channel.isWritable();
+    }
+
+    @Override
+    public boolean tryAcquireDeviceCredit(String deviceId) {
+        DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
+        if (deviceStatus == null || TaskDeviceStatus.ERROR.getCode().equals(deviceStatus.getStatus())) {
+            return false;
+        }
+        return creditOf(deviceId).tryAcquire(creditLimit(deviceStatus));
+    }
+
+    @Override
+    public void releaseDeviceCredit(String deviceId) {
+        DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
+        int newValue = creditOf(deviceId).release();
+        signalCreditAvailable(deviceId);
+        if (deviceStatus != null) {
+            deviceStatus.setInFlightCount(newValue);
+        }
+    }
+
+    private DeviceCreditCounter creditOf(String deviceId) {
+        return deviceCredits.computeIfAbsent(deviceId, k -> new DeviceCreditCounter());
+    }
+
+    /**
+     * 设备在途额度上限：设备缓存池大小
+     */
+    private int creditLimit(DeviceTaskStatus deviceStatus) {
+        Integer cachePoolSize = deviceStatus.getCachePoolSize();
+        return cachePoolSize != null ? cachePoolSize : 0;
+    }
+
+    @Override
+    public boolean awaitDeviceCredit(String deviceId, long timeout, TimeUnit unit) throws InterruptedException {
+        DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
+        if (deviceStatus == null || TaskDeviceStatus.ERROR.getCode().equals(deviceStatus.getStatus())) {
+            // 设备未就绪或故障时没有额度通知，直接按超时等待后由调用方重新检查
+            unit.sleep(timeout);
+            return false;
+        }
+        // 由 reportCommandCompleted / updateDeviceBufferCount 释放额度、或通道恢复可写时唤醒
+        DeviceCreditCounter credit = creditOf(deviceId);
+        int limit = creditLimit(deviceStatus);
+        return credit.awaitUntil(() -> credit.hasCredit(limit) && isChannelWritable(deviceId), timeout, unit);
+    }
+
+    @Override
+    public void onDeviceWritabilityChanged(String deviceId, boolean writable) {
+        if (writable) {
+            creditOf(deviceId).wakeUp();
+            signalCreditAvailable(deviceId);
+        }
+        log.debug("设备通道可写状态变化，设备ID: {}, 可写: {}", deviceId, writable);
+    }
+
+    @Override
+    public boolean awaitAnyDeviceCredit(Long taskId, long timeout, TimeUnit unit) throws InterruptedException {
+        TaskDispatchContext context = taskContexts.get(taskId);
+        if (context == null) {
+            // 任务尚未创建上下文或已结束，按超时等待后由调用方重新检查
+            unit.sleep(timeout);
+            return false;
+        }
+        return context.awaitAnyCredit(timeout, unit);
+    }
+
+    /**
+     * 设备额度增加：转交设备所属任务的上下文，只唤醒该任务的发送器
+     */
+    private void signalCreditAvailable(String deviceId) {
+        DeviceTaskStatus status = deviceStatusMap.get(deviceId);
+        if (status == null || status.getCurrentTaskId() == null) {
+            return;
+        }
+        TaskDispatchContext context = taskContexts.get(status.getCurrentTaskId());
+        if (context != null) {
+            context.onCreditAvailable(deviceId);
         }
-        
-        return true;
     }
 
     /**
@@ -818,8 +925,7 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             Object ch = getDeviceChannel(deviceId);
             if (ch instanceof Channel channel && channel.isActive()) {
                 String cmd = "geta:"; // 按协议发送 'geta:'
-                byte[] commandBytes = StxEtxProtocolUtil.buildCommand(cmd);
-                channel.writeAndFlush(Unpooled.wrappedBuffer(commandBytes));
+                channel.writeAndFlush(StxEtxProtocolUtil.encodeCommand(channel.alloc(), cmd));
                 log.debug("请求设备缓冲区数量，设备ID: {} -> {}", deviceId, cmd);
             } else {
                 log.warn("设备通道不可用，无法请求缓冲区数量，设备ID: {}", deviceId);
@@ -835,49 +941,43 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             if (deviceId == null || bufferCount == null) {
                 return;
             }
-            // 获取设备专用锁，确保顺序性
-            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
-            synchronized (deviceLock) {
-                DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
-                if (deviceStatus != null) {
-                    deviceStatus.setDeviceBufferCount(bufferCount);
-                    deviceStatus.setInFlightCount(bufferCount);
-                }
-                // 同步覆盖线程安全计数器
-                AtomicInteger counter = inFlightCounters.computeIfAbsent(deviceId, k -> new AtomicInteger(0));
-                counter.set(Math.max(0, bufferCount));
+            // 以设备上报值覆盖在途额度，无需加锁
+            creditOf(deviceId).reconcile(bufferCount);
+            signalCreditAvailable(deviceId);
+            DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
+            if (deviceStatus != null) {
+                deviceStatus.setDeviceBufferCount(bufferCount);
+                deviceStatus.setInFlightCount(Math.max(0, bufferCount));
             }
         } catch (Exception e) {
             log.warn("同步设备缓存池数量失败，deviceId: {}", deviceId, e);
         }
     }
     @Override
-    public void reportCommandSent(String deviceId) {
+    public void reportCommandSent(String deviceId, Long taskId, Long dataPoolItemId) {
         DeviceTaskStatus deviceStatus = deviceStatusMap.get(deviceId);
         if (deviceStatus != null) {
-            // 获取设备专用锁，确保计数操作的顺序性
-            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
-            
-            synchronized (deviceLock) {
-                // 使用线程安全的计数器增加在途指令计数
-                AtomicInteger counter = inFlightCounters.computeIfAbsent(deviceId, k -> new AtomicInteger(0));
-                int oldValue = counter.get();
-                int newValue = counter.incrementAndGet();
-                
-                // 同步更新DeviceTaskStatus中的计数
-                deviceStatus.setInFlightCount(newValue);
-                deviceStatus.setStatus(TaskDeviceStatus.PRINTING.getCode());
-                deviceStatus.setLastHeartbeat(System.currentTimeMillis());
-                heartbeatTimestamps.put(deviceId, System.currentTimeMillis());
-                
-                log.info("指令发送报告，设备ID: {}, 计数器变化: {} -> {}", deviceId, oldValue, newValue);
-            }
+            // 在途额度已在 tryAcquireDeviceCredit 时占用，这里只同步状态
+            int inFlight = creditOf(deviceId).get();
+            deviceStatus.setInFlightCount(inFlight);
+            deviceStatus.setStatus(TaskDeviceStatus.PRINTING.getCode());
+            long now = System.currentTimeMillis();
+            deviceStatus.setLastHeartbeat(now);
+            heartbeatTimestamps.put(deviceId, now);
+
+            log.debug("指令发送报告，设备ID: {}, 在途数量: {}", deviceId, inFlight);
             
             // 关键：仅在内存中累加发送计数，交由统一调度批量持久化
             sentCountsBuffer.computeIfAbsent(deviceId, k -> new AtomicInteger(0)).incrementAndGet();
+            dispatchJournal.appendSent(taskId, deviceId, dataPoolItemId);
         }
     }
 
+    @Override
+    public void reportCommandFailed(String deviceId, Long taskId, Long dataPoolItemId) {
+        dispatchJournal.appendFailed(taskId, deviceId, dataPoolItemId);
+    }
+
     /**
      * 统一的指令发送方法
      * 优先通过已注册的设备通道下发（使用STX/ETX协议）；无通道时退回短连TCP。
@@ -914,6 +1014,27 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
         }
     }
 
+    @Override
+    public boolean sendCommandToDevice(String deviceId, PrintCommand command) {
+        ByteBuf frame = command.getFrame();
+        if (frame != null) {
+            Object ch = getDeviceChannel(deviceId);
+            if (ch instanceof Channel channel && channel.isActive()) {
+                // 写出保留副本：通道写完后释放副本，原帧仍由指令持有；不刷新，由发送端批量刷新
+                return writeFrame(channel, deviceId, frame.retainedDuplicate(), command, null, false);
+            }
+        }
+        return sendCommandToDevice(deviceId, command.getCommand());
+    }
+
+    @Override
+    public void flushDevice(String deviceId) {
+        Channel channel = deviceChannels.get(deviceId);
+        if (channel != null && channel.isActive()) {
+            channel.flush();
+        }
+    }
+
     /**
      * 获取设备池ID
      *
@@ -956,37 +1077,69 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
      * @return 是否发送成功
      */
     private boolean sendCommandViaChannel(Channel channel, String deviceId, String command) {
+        // 使用STX/ETX协议格式，直接编码到通道分配器的缓冲区
+        return writeFrame(channel, deviceId, StxEtxProtocolUtil.encodeCommand(channel.alloc(), command), null, command, true);
+    }
+
+    /**
+     * 写出协议帧，帧的所有权交给通道（写完或失败后由Netty释放）
+     * 通讯日志交给异步写入器，成功发送按采样间隔记录；指令文本只在需要记录时才渲染
+     *
+     * @param printCommand 帧所属的打印指令（按需渲染指令文本），文本指令发送时为null
+     * @param command 文本指令内容，打印指令发送时为null
+     * @param flush 是否立即刷新；批量发送时只写入出站缓冲，由调用方统一刷新
+     */
+    private boolean writeFrame(Channel channel, String deviceId, ByteBuf frame, PrintCommand printCommand,
+                               String command, boolean flush) {
         try {
-            // 使用STX/ETX协议格式发送
-            byte[] commandBytes = StxEtxProtocolUtil.buildCommand(command);
-            channel.writeAndFlush(Unpooled.wrappedBuffer(commandBytes));
+            if (flush) {
+                channel.writeAndFlush(frame);
+            } else {
+                channel.write(frame);
+            }
 
-            log.debug("设备ID: {}, 发送指令===>: {}", deviceId, command);
+            if (log.isDebugEnabled()) {
+                log.debug("设备ID: {}, 发送指令===>: {}", deviceId, commandText(printCommand, command));
+            }
             //记录通讯日志
-            SystemLog systemLog = new SystemLog();
-            systemLog.setLogType(SystemLogType.COMMUNICATION.getCode());
-            systemLog.setLogLevel(SystemLogLevel.INFO.getCode());
-            systemLog.setTaskId(Long.valueOf(deviceId));
-            systemLog.setDeviceId(Long.valueOf(deviceId));
-            systemLog.setPoolId(getPoolId(systemLog.getTaskId()));
-            systemLog.setContent("发送指令===>"+command);
-            systemLogService.insert(systemLog);
+            if (communicationLogWriter.shouldRecordSend()) {
+                SystemLog systemLog = new SystemLog();
+                systemLog.setLogType(SystemLogType.COMMUNICATION.getCode());
+                systemLog.setLogLevel(SystemLogLevel.INFO.getCode());
+                systemLog.setTaskId(logTaskId(printCommand, deviceId));
+                systemLog.setDeviceId(Long.valueOf(deviceId));
+                systemLog.setPoolId(getPoolId(systemLog.getTaskId()));
+                systemLog.setContent("发送指令===>"+commandText(printCommand, command));
+                communicationLogWriter.offer(systemLog);
+            }
 
             return true;
         } catch (Exception e) {
-            log.error("通过通道发送指令失败，设备ID: {}, 指令: {}", deviceId, command, e);
+            String text = commandText(printCommand, command);
+            log.error("通过通道发送指令失败，设备ID: {}, 指令: {}", deviceId, text, e);
             //记录通讯日志
             SystemLog systemLog = new SystemLog();
             systemLog.setLogType(SystemLogType.COMMUNICATION.getCode());
             systemLog.setLogLevel(SystemLogLevel.ERROR.getCode());
-            systemLog.setTaskId(Long.valueOf(deviceId));
+            systemLog.setTaskId(logTaskId(printCommand, deviceId));
             systemLog.setDeviceId(Long.valueOf(deviceId));
             systemLog.setPoolId(getPoolId(systemLog.getTaskId()));
-            systemLog.setContent("发送指令失败===>"+command+";"+"错误:"+e.getMessage());
-            systemLogService.insert(systemLog);
+            systemLog.setContent("发送指令失败===>"+text+";"+"错误:"+e.getMessage());
+            communicationLogWriter.offer(systemLog);
             return false;
         }
     }
+
+    /**
+     * 通讯日志所属任务：打印指令取指令的任务，文本指令取设备当前任务
+     */
+    private Long logTaskId(PrintCommand printCommand, String deviceId) {
+        return printCommand != null && printCommand.getTaskId() != null ? printCommand.getTaskId() : getDeviceTaskId(deviceId);
+    }
+
+    private static String commandText(PrintCommand printCommand, String command) {
+        return printCommand != null ? printCommand.getCommand() : command;
+    }
     
     
     
@@ -1030,13 +1183,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
      * @return 在途指令数量
      */
     public int getDeviceInFlightCount(String deviceId) {
-        // 获取设备专用锁，确保计数读取的准确性
-        Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
-        
-        synchronized (deviceLock) {
-            AtomicInteger counter = inFlightCounters.get(deviceId);
-            return counter != null ? counter.get() : 0;
-        }
+        DeviceCreditCounter credit = deviceCredits.get(deviceId);
+        return credit != null ? credit.get() : 0;
     }
     
     @Override
@@ -1070,6 +1218,8 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
             statistics.put("onlineDeviceCount", taskStatus.getOnlineDeviceCount());
             statistics.put("progressPercentage", taskStatus.getProgressPercentage());
         }
+        // 落库为全局批次，各任务共享同一份耗时指标
+        statistics.put("persist", taskDataPersister.getMetricsSnapshot());
         
         return statistics;
     }
@@ -1093,24 +1243,33 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
     }
 
     
+    @PostConstruct
+    public void initAssignStrategy() {
+        assignStrategyType = DeviceAssignStrategyType.fromCode(taskDispatchProperties.getAssignStrategy());
+        log.info("设备分配策略: {}", assignStrategyType.getInfo());
+    }
+
+    /**
+     * 按配置创建分配策略实例（策略带有轮询序号等状态，每个任务单独创建）
+     */
+    private DeviceAssignStrategy newAssignStrategy() {
+        return switch (assignStrategyType) {
+            case LEAST_IN_FLIGHT -> new LeastInFlightAssignStrategy();
+            case THROUGHPUT_WEIGHTED -> new ThroughputWeightedAssignStrategy();
+            default -> new RoundRobinAssignStrategy();
+        };
+    }
+
     @Override
     public String assignDeviceForCommand(PrintCommand command) {
-        // 获取任务关联的设备
-        if (currentTask == null) {
+        // 获取任务关联的调度上下文
+        TaskDispatchContext context = taskContexts.get(command.getTaskId());
+        if (context == null) {
             return null;
         }
-        
-        // 查找可用的设备（在线且缓存未满）
-        for (Map.Entry<String, DeviceTaskStatus> entry : deviceStatusMap.entrySet()) {
-            String deviceId = entry.getKey();
-            
-            // 检查设备是否在线且可以接收指令
-            if (canDeviceReceiveCommand(deviceId)) {
-                 return deviceId;
-            }
-        }
-        
-        return null; // 无可用设备
+
+        // 按分配策略从该任务的就绪设备索引中选择（在线且缓存未满），无可用设备返回null
+        return context.assignDevice();
     }
     
 
@@ -1177,28 +1336,14 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
                 }
             }
 
-            // 检查数据池中是否还有待打印的数据
-            Long poolId = taskStatus.getPoolId();
-            if (poolId != null) {
-                try {
-                    int pendingCount = dataPoolItemService.countByPending(poolId);
-                    int printingCount = dataPoolItemService.countByPrinting(poolId);
-
-                    if (taskStatus.getPlannedPrintCount() != -1 && printingCount == 0) {
-                        log.info("任务 {} 数据池中无打印中的数据，任务完成", taskId);
-                        finishTaskDispatch(taskId);
-                        return;
-                    }else if (pendingCount == 0) {
-                        log.info("任务 {} 数据池中无待打印数据，任务完成", taskId);
-                        finishTaskDispatch(taskId);
-                        return;
-                    }
-
-                    log.debug("任务 {} 数据池状态 , 打印中: {}", taskId, printingCount);
-                } catch (Exception e) {
-                    log.warn("检查任务 {} 数据池状态异常", taskId, e);
-                }
+            // 检查是否还有待发送的数据：内存计数判断，必要时与数据库确认一次
+            TaskProgressCounter progress = taskProgressTracker.get(taskId);
+            if (isProgressDrained(taskId) && confirmNoPendingData(taskId, taskStatus.getPoolId())) {
+                log.info("任务 {} 数据已全部发送，任务完成，进度: {}", taskId, progress);
+                finishTaskDispatch(taskId);
+                return;
             }
+            log.debug("任务 {} 进度: {}", taskId, progress);
 
         } catch (Exception e) {
             log.error("检查任务 {} 完成状态异常", taskId, e);
@@ -1209,15 +1354,16 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
      * 在完成前等待本任务下所有设备缓存池清空
      */
     private boolean waitUntilDeviceBuffersEmpty(Long taskId) {
-   List<TaskDeviceLink> deviceLinks = taskDeviceLinkService.listByTaskId(taskId);
-        for (TaskDeviceLink link : deviceLinks) {
-            String deviceId = link.getDeviceId().toString();
-            DeviceTaskStatus status = deviceStatusMap.get(deviceId);
-            if (status != null && TaskDeviceStatus.ERROR.getCode().equals(status.getStatus())) {
+        // 直接遍历内存中的设备状态，不再逐次查询任务设备关联
+        for (DeviceTaskStatus status : deviceStatusMap.values()) {
+            if (!taskId.equals(status.getCurrentTaskId())) {
+                continue;
+            }
+            if (TaskDeviceStatus.ERROR.getCode().equals(status.getStatus())) {
                 // 故障设备不阻塞退出
                 continue;
             }
-            Integer buf = status != null ? status.getInFlightCount() : null;
+            Integer buf = status.getInFlightCount();
             if (buf != null && buf > 0) {
                 return  false;
             }
@@ -1225,6 +1371,80 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
         return true;
     }
 
+    @Override
+    public TaskProgressCounter getTaskProgress(Long taskId) {
+        return taskProgressTracker.get(taskId);
+    }
+
+    /**
+     * 任务是否已无待发送数据（内存计数，O(1)）
+     * 指令队列为空、已认领数据均已发送结束，且生产端已取空数据池或达到计划数量
+     */
+    private boolean isProgressDrained(Long taskId) {
+        if (commandQueueService.getQueueSize(taskId) > 0) {
+            return false;
+        }
+        TaskProgressCounter progress = taskProgressTracker.get(taskId);
+        return progress != null && progress.isDrained();
+    }
+
+    /**
+     * 完成前与数据库确认：生产端因数据池取空而停止时，期间可能有新数据写入
+     */
+    private boolean confirmNoPendingData(Long taskId, Long poolId) {
+        TaskProgressCounter progress = taskProgressTracker.get(taskId);
+        if (progress == null || progress.isPlanCompleted() || poolId == null) {
+            return progress != null;
+        }
+        int pendingCount = dataPoolItemService.countByPending(poolId);
+        if (pendingCount > 0) {
+            log.debug("任务 {} 数据池仍有 {} 条待打印数据，继续生产", taskId, pendingCount);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 任务启动：创建进度计数器，并将上次异常退出遗留的打印中数据恢复为待打印，使内存计数与数据库一致
+     */
+    private void reconcileProgressOnStart(Long taskId, Long poolId) {
+        taskProgressTracker.start(taskId);
+        if (poolId == null) {
+            return;
+        }
+        try {
+            int staleCount = dataPoolItemService.countByPrinting(poolId);
+            if (staleCount > 0) {
+                dataPoolItemService.updateToPendingItem(poolId);
+                log.info("任务启动校准：{} 条遗留打印中数据恢复为待打印，任务ID: {}, 数据池ID: {}", staleCount, taskId, poolId);
+            }
+        } catch (Exception e) {
+            log.warn("任务启动校准进度失败，任务ID: {}", taskId, e);
+        }
+    }
+
+    /**
+     * 任务停止：比对内存计数与数据库中的打印中数量
+     */
+    private void reconcileProgressOnStop(Long taskId, Long poolId) {
+        TaskProgressCounter progress = taskProgressTracker.get(taskId);
+        if (progress == null || poolId == null) {
+            return;
+        }
+        try {
+            int printingCount = dataPoolItemService.countByPrinting(poolId);
+            long outstanding = progress.outstanding();
+            if (printingCount != outstanding) {
+                log.info("任务停止校准：内存未发送 {} 条，数据库打印中 {} 条（含已发送未落库），任务ID: {}, 进度: {}",
+                        outstanding, printingCount, taskId, progress);
+            } else {
+                log.info("任务停止校准一致，任务ID: {}, 进度: {}", taskId, progress);
+            }
+        } catch (Exception e) {
+            log.warn("任务停止校准进度失败，任务ID: {}", taskId, e);
+        }
+    }
+
 
     /**
      * 检查任务是否已经启动完成（数据加载是否已经开始）
@@ -1328,13 +1548,12 @@ public class TaskDispatcherServiceImpl implements TaskDispatcherService {
                     
                     log.info("设备缓存池初始状态记录，设备ID: {}, 初始缓存池数量: {}", deviceIdStr, initialBufferCount);
                     
-                    // 关键：同步更新inFlightCounters计数器
-                    AtomicInteger counter = inFlightCounters.computeIfAbsent(deviceIdStr, k -> new AtomicInteger(0));
-                    int oldCounterValue = counter.get();
-                     counter.set(Math.max(0, initialBufferCount));
-                     // 更新设备计数器数量
-                     deviceStatus.setInFlightCount(counter.get());
-                    log.info("已更新inFlightCounters，设备ID: {}, 计数器变化: {} -> {}", deviceIdStr, oldCounterValue, initialBufferCount);
+                    // 关键：以初始缓存池数量校准在途额度
+                    int oldCounterValue = creditOf(deviceIdStr).reconcile(initialBufferCount);
+                    signalCreditAvailable(deviceIdStr);
+                    // 更新设备计数器数量
+                    deviceStatus.setInFlightCount(Math.max(0, initialBufferCount));
+                    log.info("已校准在途额度，设备ID: {}, 计数器变化: {} -> {}", deviceIdStr, oldCounterValue, initialBufferCount);
                     
                     // 记录到系统日志
                     SystemLog systemLog = new SystemLog();
@@ -0,0 +1,85 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import com.ruoyi.business.enums.DeviceEventType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 解析后的设备上报消息
+ * 类型、数值代码在拆帧时已解析好，消息原文只保留一份字节拷贝（去除首尾空白），
+ * 文本仅在记录日志或处理 seta 失败数据时才按需解码
+ */
+public final class DeviceEvent {
+
+    private final DeviceEventType type;
+    // 数值代码（system/seta/geta），无代码时为 -1
+    private final int code;
+    private final byte[] frame;
+    // seta 冒号后的指令数据在 frame 中的起始位置，无数据时为 -1
+    private final int detailOffset;
+
+    private String text;
+
+    DeviceEvent(DeviceEventType type, int code, byte[] frame, int detailOffset) {
+        this.type = type;
+        this.code = code;
+        this.frame = frame;
+        this.detailOffset = detailOffset;
+    }
+
+    public DeviceEventType getType() {
+        return type;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean hasDetail() {
+        return detailOffset >= 0;
+    }
+
+    /**
+     * seta 冒号后的指令数据，无数据时返回null
+     */
+    public String detail() {
+        return detailOffset < 0 ? null
+                : new String(frame, detailOffset, frame.length - detailOffset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 消息原文（已去除首尾空白），首次调用时解码
+     */
+    public String text() {
+        String t = text;
+        if (t == null) {
+            t = new String(frame, StandardCharsets.UTF_8);
+            text = t;
+        }
+        return t;
+    }
+
+    /**
+     * 消息是否以指定字节开头（按前缀采样等场景使用，不解码文本）
+     */
+    public boolean startsWith(byte[] prefix) {
+        if (prefix.length > frame.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (frame[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int length() {
+        return frame.length;
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+}
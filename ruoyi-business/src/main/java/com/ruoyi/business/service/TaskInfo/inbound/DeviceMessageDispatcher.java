@@ -0,0 +1,93 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备上报消息分发
+ * Netty IO 线程只负责拆帧，解出的消息交给所属设备的串行执行器，在处理线程池上按设备顺序处理，
+ * 数据库更新、日志写入等耗时操作不再占用 IO 线程，也不会拖慢同一线程上其他设备的读写。
+ * 提供每台设备的排队深度等统计，用于观察处理是否跟得上设备上报
+ */
+@Component
+public class DeviceMessageDispatcher {
+
+    @Autowired
+    @Qualifier("deviceInboundExecutor")
+    private ThreadPoolTaskExecutor handlerExecutor;
+
+    @Autowired
+    private TaskDispatchProperties properties;
+
+    // 设备ID -> 串行执行器
+    private final ConcurrentHashMap<String, DeviceSerialExecutor> executors = new ConcurrentHashMap<>();
+
+    /**
+     * 按设备顺序执行消息处理任务
+     *
+     * @param deviceId 设备ID
+     * @param task 处理任务
+     */
+    public void dispatch(String deviceId, Runnable task) {
+        executorOf(deviceId).execute(task);
+    }
+
+    /**
+     * 设备断开后移除空闲的执行器，仍有排队消息时保留，处理完后下次断开再移除
+     */
+    public void release(String deviceId) {
+        DeviceSerialExecutor executor = executors.get(deviceId);
+        if (executor != null && executor.isIdle()) {
+            executors.remove(deviceId, executor);
+        }
+    }
+
+    /**
+     * 设备当前排队的消息数量
+     */
+    public int getQueueDepth(String deviceId) {
+        DeviceSerialExecutor executor = executors.get(deviceId);
+        return executor == null ? 0 : executor.getQueueDepth();
+    }
+
+    /**
+     * 所有设备当前排队的消息数量（设备ID -> 数量）
+     */
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        executors.forEach((deviceId, executor) -> depths.put(deviceId, executor.getQueueDepth()));
+        return depths;
+    }
+
+    /**
+     * 设备消息处理统计
+     */
+    public Map<String, Object> getStatistics(String deviceId) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        DeviceSerialExecutor executor = executors.get(deviceId);
+        if (executor != null) {
+            statistics.put("queueDepth", executor.getQueueDepth());
+            statistics.put("peakQueueDepth", executor.getPeakQueueDepth());
+            statistics.put("processedCount", executor.getProcessedCount());
+            statistics.put("failedCount", executor.getFailedCount());
+        }
+        return statistics;
+    }
+
+    private DeviceSerialExecutor executorOf(String deviceId) {
+        DeviceSerialExecutor executor = executors.get(deviceId);
+        if (executor == null) {
+            executor = executors.computeIfAbsent(deviceId,
+                    id -> new DeviceSerialExecutor(id, handlerExecutor, properties.getInboundDrainBatch()));
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,154 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import com.ruoyi.business.enums.DeviceEventType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 设备上报消息解析
+ * 直接在帧缓冲区上按字节识别 system:/seta:/geta:/data_error/ping: 前缀并解析数值代码，
+ * 不创建 Matcher 与中间字符串；识别规则与原正则一致：
+ * system:(\d+)、seta:(\d+)(?::(.+))?、geta:(\d+)、data_error 均为整条匹配（去除首尾空白后），
+ * 数值超出 int 范围或格式不完整的消息归为 OTHER
+ */
+public final class DeviceResponseParser {
+
+    private static final byte[] SYSTEM = ascii(DeviceEventType.SYSTEM.getCode());
+    private static final byte[] SETA = ascii(DeviceEventType.SETA.getCode());
+    private static final byte[] GETA = ascii(DeviceEventType.GETA.getCode());
+    private static final byte[] DATA_ERROR = ascii(DeviceEventType.DATA_ERROR.getCode());
+    private static final byte[] PING = ascii(DeviceEventType.PING.getCode());
+
+    private DeviceResponseParser() {
+    }
+
+    /**
+     * 解析缓冲区中的一条消息（不移动读写指针）
+     *
+     * @param buf 帧缓冲区
+     * @param index 消息起始位置（绝对下标）
+     * @param length 消息长度（不含帧头尾）
+     */
+    public static DeviceEvent parse(ByteBuf buf, int index, int length) {
+        int start = index;
+        int end = index + length;
+        // 与 String.trim 一致：去除首尾 <= 空格 的字节
+        while (start < end && (buf.getByte(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf.getByte(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+
+        DeviceEventType type = DeviceEventType.OTHER;
+        int code = -1;
+        int detail = -1;
+        if (startsWith(buf, start, end, SYSTEM)) {
+            code = parseCode(buf, start + SYSTEM.length, end);
+            if (code >= 0) {
+                type = DeviceEventType.SYSTEM;
+            }
+        } else if (startsWith(buf, start, end, SETA)) {
+            int p = start + SETA.length;
+            int q = digitsEnd(buf, p, end);
+            if (q == end) {
+                code = parseCode(buf, p, end);
+            } else if (q > p && buf.getByte(q) == ':' && hasLine(buf, q + 1, end)) {
+                code = parseCode(buf, p, q);
+                detail = code >= 0 ? q + 1 - start : -1;
+            }
+            if (code >= 0) {
+                type = DeviceEventType.SETA;
+            }
+        } else if (startsWith(buf, start, end, GETA)) {
+            code = parseCode(buf, start + GETA.length, end);
+            if (code >= 0) {
+                type = DeviceEventType.GETA;
+            }
+        } else if (end - start == DATA_ERROR.length && startsWith(buf, start, end, DATA_ERROR)) {
+            type = DeviceEventType.DATA_ERROR;
+        } else if (startsWith(buf, start, end, PING)) {
+            type = DeviceEventType.PING;
+        }
+
+        byte[] frame = new byte[end - start];
+        buf.getBytes(start, frame);
+        return new DeviceEvent(type, type == DeviceEventType.OTHER ? -1 : code, frame, detail);
+    }
+
+    /**
+     * 解析字符串形式的消息（旧的字符串解码通道使用）
+     */
+    public static DeviceEvent parse(String data) {
+        byte[] bytes = data == null ? new byte[0] : data.getBytes(StandardCharsets.UTF_8);
+        return parse(Unpooled.wrappedBuffer(bytes), 0, bytes.length);
+    }
+
+    private static boolean startsWith(ByteBuf buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf.getByte(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 第一个非数字字节的位置
+    private static int digitsEnd(ByteBuf buf, int from, int end) {
+        int i = from;
+        while (i < end) {
+            byte b = buf.getByte(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 解析 [from, end) 范围内的十进制数字
+     *
+     * @return 数值；范围为空、含非数字或超出 int 范围时返回 -1
+     */
+    private static int parseCode(ByteBuf buf, int from, int end) {
+        if (from >= end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < end; i++) {
+            byte b = buf.getByte(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    // 对应正则 (.+)：至少一个字节且不含换行
+    private static boolean hasLine(ByteBuf buf, int from, int end) {
+        if (from >= end) {
+            return false;
+        }
+        for (int i = from; i < end; i++) {
+            byte b = buf.getByte(i);
+            if (b == '\n' || b == '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,116 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单设备串行执行器
+ * 同一设备的上报消息按到达顺序排队，任一时刻最多只有一个线程在处理该设备的消息，保证处理顺序与接收顺序一致；
+ * 不同设备的消息在共享线程池上并行处理。每次最多连续处理一批后让出线程，避免高频设备占满线程池
+ */
+public class DeviceSerialExecutor implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceSerialExecutor.class);
+
+    private final String deviceId;
+    private final Executor pool;
+    private final int drainBatch;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // 是否已提交到线程池（含正在处理），保证同一设备只有一个处理线程
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // 当前排队数量与历史最大排队数量
+    private final AtomicInteger depth = new AtomicInteger(0);
+    private final AtomicInteger peakDepth = new AtomicInteger(0);
+    private final AtomicLong processedCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+
+    /**
+     * @param pool 共享处理线程池
+     * @param drainBatch 每次占用线程最多连续处理的消息数
+     */
+    public DeviceSerialExecutor(String deviceId, Executor pool, int drainBatch) {
+        this.deviceId = deviceId;
+        this.pool = pool;
+        this.drainBatch = Math.max(1, drainBatch);
+    }
+
+    /**
+     * 提交一条消息的处理任务（由 IO 线程调用，不阻塞）
+     */
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        int current = depth.incrementAndGet();
+        int peak;
+        while (current > (peak = peakDepth.get()) && !peakDepth.compareAndSet(peak, current)) {
+            // 并发更新峰值时重试
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                pool.execute(this);
+            } catch (RejectedExecutionException e) {
+                // 处理线程池不回退到调用方（IO 线程）执行，只在关闭后拒绝：消息留在队列中，下一次提交时再尝试
+                scheduled.set(false);
+                log.warn("设备消息处理线程池拒绝任务，设备ID: {}，排队: {}", deviceId, depth.get());
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        int handled = 0;
+        Runnable task;
+        while (handled < drainBatch && (task = tasks.poll()) != null) {
+            depth.decrementAndGet();
+            handled++;
+            try {
+                task.run();
+                processedCount.incrementAndGet();
+            } catch (Throwable e) {
+                failedCount.incrementAndGet();
+                log.error("处理设备消息异常，设备ID: {}", deviceId, e);
+            }
+        }
+        scheduled.set(false);
+        // 先释放再复查：提交方“先入队再抢占”，两边至少一方能看到对方，不会遗留未处理的消息
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakDepth.get();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public boolean isIdle() {
+        return !scheduled.get() && tasks.isEmpty();
+    }
+}
@@ -0,0 +1,109 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * STX/ETX 协议帧解码器
+ * 帧格式：STX(0x02) + 接收标记(0x06) + 数据 + ETX(0x03)。
+ * 帧头与帧尾用 ByteBuf.indexOf 查找（按字长批量比较，比逐字节 getByte 快）；帧不完整时记住已扫描到的位置，下次数据到达后从该位置继续查找 ETX，
+ * 不再从读指针重新扫描；数据部分以保留引用的切片输出，不拷贝，由下游处理器负责释放。
+ * 数据超过最大长度仍未遇到 ETX 时丢弃该帧头，从后续字节重新查找帧头；帧头之前的无效字节直接跳过
+ */
+public class StxEtxFrameDecoder extends ByteToMessageDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(StxEtxFrameDecoder.class);
+
+    public static final byte STX = 0x02;
+    public static final byte ETX = 0x03;
+    public static final byte RECV_MARKER = 0x06;
+
+    /** 帧头长度：STX + 接收标记 */
+    private static final int HEADER_LENGTH = 2;
+
+    private final int maxFrameLength;
+
+    // 当前帧已扫描过的字节数（相对读指针，读指针停在帧头 STX 上），0 表示尚未定位帧头
+    private int scanOffset;
+    // 因超长丢弃的帧数量
+    private long discardedFrames;
+
+    /**
+     * @param maxFrameLength 数据部分最大长度（字节）
+     */
+    public StxEtxFrameDecoder(int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be positive: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            int start = in.readerIndex();
+            if (scanOffset == 0) {
+                // 定位帧头，之前的字节均为无效数据
+                int stx = in.indexOf(start, in.writerIndex(), STX);
+                if (stx < 0) {
+                    in.skipBytes(in.readableBytes());
+                    return;
+                }
+                in.readerIndex(stx);
+                start = stx;
+                if (in.readableBytes() < HEADER_LENGTH) {
+                    // 等待接收标记
+                    return;
+                }
+                if (in.getByte(start + 1) != RECV_MARKER) {
+                    // 不是帧头，跳过该 STX 继续查找
+                    in.skipBytes(1);
+                    continue;
+                }
+                scanOffset = HEADER_LENGTH;
+            }
+
+            int dataStart = start + HEADER_LENGTH;
+            // ETX 最远可能出现的位置之后一个字节
+            int limit = (int) Math.min((long) in.writerIndex(), (long) dataStart + maxFrameLength + 1);
+            int from = start + scanOffset;
+            int etx = from < limit ? in.indexOf(from, limit, ETX) : -1;
+            if (etx < 0) {
+                if (limit - dataStart > maxFrameLength) {
+                    // 超长仍无帧尾：丢弃该帧头，从后续字节重新同步
+                    discardedFrames++;
+                    log.warn("设备数据帧超过最大长度 {} 字节，丢弃帧头并重新查找，通道: {}",
+                            maxFrameLength, ctx.channel());
+                    scanOffset = 0;
+                    in.skipBytes(1);
+                    continue;
+                }
+                // 帧不完整，记住已扫描位置，等待更多数据
+                scanOffset = limit - start;
+                return;
+            }
+
+            out.add(in.retainedSlice(dataStart, etx - dataStart));
+            in.readerIndex(etx + 1);
+            scanOffset = 0;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+        scanOffset = 0;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public long getDiscardedFrames() {
+        return discardedFrames;
+    }
+}
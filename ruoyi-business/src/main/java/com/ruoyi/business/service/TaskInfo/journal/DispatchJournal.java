@@ -0,0 +1,430 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 任务发送日志（追加写、内存映射）
+ * 发送、完成、失败事件在热路径上直接写入映射内存（一次 CAS + 若干次内存写），由后台定时刷盘；
+ * SENT/ACKED 事件携带设备累计数量而非增量，回放时取最大值即可，与落库进度无关、可重复回放；
+ * 日志段写满后滚动，落库确认覆盖某段的全部事件后删除该段；活动段内已落库的位置记入检查点文件，
+ * 启动时只回放检查点之后的事件，正常退出且事件已全部落库时删除活动段与检查点，下次启动无需回放
+ */
+@Component
+public class DispatchJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(DispatchJournal.class);
+
+    @Autowired
+    private TaskDispatchProperties properties;
+
+    private volatile boolean enabled;
+    private volatile JournalSegment active;
+    private Path directory;
+    private int segmentSize;
+    private final Object rollLock = new Object();
+
+    // 本次运行已写满、等待落库确认后删除的日志段
+    private final ConcurrentLinkedQueue<JournalSegment> sealedSegments = new ConcurrentLinkedQueue<>();
+    // 上次运行遗留、待启动回放的日志段
+    private final List<Path> recoverableSegments = new ArrayList<>();
+    // 本次运行的首个日志段序号、已落库位置与检查点文件，仅在持有 rollLock 时修改
+    private long runFirstSegment;
+    private long persistedPosition;
+    private boolean checkpointDirty;
+    private FileChannel checkpointChannel;
+    // 设备累计发送/接收数量（设备ID -> 累计值），任务启动时以设备关联中的已持久化数量为起点
+    private final ConcurrentHashMap<String, DeviceTotals> deviceTotals = new ConcurrentHashMap<>();
+
+    private final LongAdder appendedCount = new LongAdder();
+
+    private static final class DeviceTotals {
+        final long taskId;
+        final AtomicInteger sent;
+        final AtomicInteger received;
+
+        DeviceTotals(long taskId, int sent, int received) {
+            this.taskId = taskId;
+            this.sent = new AtomicInteger(sent);
+            this.received = new AtomicInteger(received);
+        }
+    }
+
+    public DispatchJournal() {
+    }
+
+    /**
+     * 不经 Spring 创建时使用（测试等场景），创建后需调用 init
+     */
+    DispatchJournal(TaskDispatchProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void init() {
+        TaskDispatchProperties.JournalConfig config = properties.getJournal();
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            log.info("任务发送日志未启用");
+            return;
+        }
+        try {
+            directory = Paths.get(config.getDirectory()).toAbsolutePath();
+            Files.createDirectories(directory);
+            segmentSize = Math.max(JournalSegment.RECORD_SIZE * 1024, config.getSegmentSizeMb() * 1024 * 1024);
+            long lastIndex = 0;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    long index = JournalSegment.parseIndex(path.getFileName().toString());
+                    if (index >= 0) {
+                        recoverableSegments.add(path);
+                        lastIndex = Math.max(lastIndex, index);
+                    }
+                }
+            }
+            recoverableSegments.sort(Comparator.comparingLong(p -> JournalSegment.parseIndex(p.getFileName().toString())));
+            applyCheckpoint(JournalCheckpoint.read(directory));
+
+            runFirstSegment = lastIndex + 1;
+            active = JournalSegment.create(directory, runFirstSegment, segmentSize);
+            persistedPosition = encodePosition(runFirstSegment, 0);
+            checkpointChannel = JournalCheckpoint.openForWrite(directory);
+            enabled = true;
+            log.info("任务发送日志已启用，目录: {}，段大小: {}MB，待回放段: {}", directory, config.getSegmentSizeMb(), recoverableSegments.size());
+        } catch (IOException e) {
+            log.error("任务发送日志初始化失败，本次运行不记录发送日志，目录: {}", config.getDirectory(), e);
+        }
+    }
+
+    /**
+     * 按上次运行的检查点处理遗留日志段：已全部落库的段直接删除，检查点所在段清除偏移之前的记录。
+     * 清除直接写入段文件，本次运行覆盖检查点后即使该段回放失败、留到下次启动，也不会重放已落库的事件
+     */
+    private void applyCheckpoint(JournalCheckpoint checkpoint) throws IOException {
+        if (checkpoint == null) {
+            if (!recoverableSegments.isEmpty()) {
+                log.warn("任务发送日志检查点不存在或不完整，完整回放遗留日志段: {}", recoverableSegments.size());
+            }
+            return;
+        }
+        Iterator<Path> it = recoverableSegments.iterator();
+        while (it.hasNext()) {
+            Path path = it.next();
+            long offset = checkpoint.replayOffset(JournalSegment.parseIndex(path.getFileName().toString()));
+            if (offset < 0) {
+                it.remove();
+                deleteQuietly(path);
+            } else if (offset > 0) {
+                JournalSegment.clearBefore(path, offset);
+            }
+        }
+        log.info("任务发送日志检查点: {}，待回放段: {}", checkpoint, recoverableSegments.size());
+    }
+
+    /**
+     * 退出前调用（落库组件已先行全量落库）：事件已全部落库时删除所有日志段与检查点，
+     * 否则刷盘并保留，下次启动从检查点继续回放
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (rollLock) {
+            if (!enabled) {
+                return;
+            }
+            // 先停用，之后的追加在 roll 中放弃，不再创建新段
+            enabled = false;
+            JournalSegment segment = active;
+            boolean drained = persistedPosition == encodePosition(segment.getIndex(), segment.writtenBytes());
+            if (drained && segment.close()) {
+                for (JournalSegment sealed : sealedSegments) {
+                    if (sealed.close()) {
+                        deleteQuietly(sealed.getPath());
+                    }
+                }
+                sealedSegments.clear();
+                deleteQuietly(segment.getPath());
+                closeCheckpoint();
+                deleteQuietly(directory.resolve(JournalCheckpoint.FILE_NAME));
+                log.info("任务发送日志已全部落库，退出时清理日志段");
+            } else {
+                segment.force();
+                segment.close();
+                syncCheckpoint();
+                closeCheckpoint();
+                log.info("任务发送日志退出时仍有未落库事件，保留日志段待下次启动回放，已落库位置: 段 {} 偏移 {}",
+                        segmentOf(persistedPosition), offsetOf(persistedPosition));
+            }
+        }
+    }
+
+    /**
+     * 设备加入任务时登记累计数量起点（设备关联中已持久化的发送/接收数量）
+     */
+    public void seedDevice(Long taskId, String deviceId, Integer sentTotal, Integer receivedTotal) {
+        if (taskId == null || deviceId == null) {
+            return;
+        }
+        deviceTotals.put(deviceId, new DeviceTotals(taskId,
+                sentTotal == null ? 0 : sentTotal, receivedTotal == null ? 0 : receivedTotal));
+    }
+
+    /**
+     * 设备退出任务
+     */
+    public void forgetDevice(String deviceId) {
+        if (deviceId != null) {
+            deviceTotals.remove(deviceId);
+        }
+    }
+
+    /**
+     * 记录指令已发送
+     */
+    public void appendSent(Long taskId, String deviceId, Long itemId) {
+        DeviceTotals totals = totalsOf(taskId, deviceId);
+        if (totals == null || itemId == null) {
+            return;
+        }
+        append(JournalEvent.SENT, totals.sent.incrementAndGet(), taskId, itemId, Long.parseLong(deviceId));
+    }
+
+    /**
+     * 记录设备已完成一条指令
+     */
+    public void appendAcked(Long taskId, String deviceId) {
+        DeviceTotals totals = totalsOf(taskId, deviceId);
+        if (totals == null) {
+            return;
+        }
+        append(JournalEvent.ACKED, totals.received.incrementAndGet(), taskId, 0L, Long.parseLong(deviceId));
+    }
+
+    /**
+     * 记录指令最终发送失败或被丢弃（数据项未打印）
+     */
+    public void appendFailed(Long taskId, String deviceId, Long itemId) {
+        if (!enabled || taskId == null || itemId == null) {
+            return;
+        }
+        long device = 0L;
+        if (deviceId != null) {
+            try {
+                device = Long.parseLong(deviceId);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        append(JournalEvent.FAILED, 0, taskId, itemId, device);
+    }
+
+    /**
+     * 当前写入位置（活动段序号与段内已占用字节数）。位置之前的事件在写入日志前已计入内存缓冲，
+     * 取位置后把缓冲全部落库，再以该值调用 {@link #markPersisted(long)} 即可确认这些事件
+     */
+    public long position() {
+        JournalSegment segment = active;
+        return segment == null ? 0L : encodePosition(segment.getIndex(), segment.writtenBytes());
+    }
+
+    /**
+     * 落库确认：删除序号小于指定位置所在段的已写满日志段，并把位置写入检查点
+     */
+    public void markPersisted(long position) {
+        // 与滚动互斥：滚动时会对刚写满的段刷盘，不能与解除映射并发
+        synchronized (rollLock) {
+            if (!enabled || position <= persistedPosition) {
+                return;
+            }
+            long segmentIndex = segmentOf(position);
+            Iterator<JournalSegment> it = sealedSegments.iterator();
+            while (it.hasNext()) {
+                JournalSegment segment = it.next();
+                // 仍有线程在写入（占用槽位后尚未写完）时留到下次确认再删除
+                if (segment.getIndex() < segmentIndex && segment.close()) {
+                    it.remove();
+                    deleteQuietly(segment.getPath());
+                }
+            }
+            persistedPosition = position;
+            try {
+                new JournalCheckpoint(runFirstSegment, segmentIndex, offsetOf(position)).write(checkpointChannel);
+                checkpointDirty = true;
+            } catch (IOException e) {
+                // 检查点未更新时下次启动多回放一部分已落库事件
+                log.warn("写入任务发送日志检查点失败", e);
+            }
+        }
+    }
+
+    /**
+     * 定时将活动段与检查点刷到磁盘，断电时最多丢失一个刷盘间隔内的事件
+     */
+    @Scheduled(fixedDelayString = "${task.dispatch.journal.sync-interval-ms:50}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        // 与退出时解除映射互斥
+        synchronized (rollLock) {
+            JournalSegment segment = active;
+            if (enabled && segment != null) {
+                segment.force();
+                syncCheckpoint();
+            }
+        }
+    }
+
+    /**
+     * 取出上次运行遗留的日志段（仅启动回放调用一次）
+     */
+    public List<Path> takeRecoverableSegments() {
+        synchronized (recoverableSegments) {
+            List<Path> segments = new ArrayList<>(recoverableSegments);
+            recoverableSegments.clear();
+            return segments;
+        }
+    }
+
+    /**
+     * 读取日志段内所有完整记录
+     *
+     * @return 读取的记录数
+     */
+    public int read(Path path, JournalEvent.Visitor visitor) throws IOException {
+        JournalSegment segment = JournalSegment.open(path, JournalSegment.parseIndex(path.getFileName().toString()));
+        try {
+            return segment.read(visitor);
+        } finally {
+            segment.close();
+        }
+    }
+
+    public void delete(Path path) {
+        deleteQuietly(path);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getAppendedCount() {
+        return appendedCount.sum();
+    }
+
+    public int getSealedSegmentCount() {
+        return sealedSegments.size();
+    }
+
+    private DeviceTotals totalsOf(Long taskId, String deviceId) {
+        if (!enabled || taskId == null || deviceId == null) {
+            return null;
+        }
+        DeviceTotals totals = deviceTotals.get(deviceId);
+        return totals != null && totals.taskId == taskId ? totals : null;
+    }
+
+    private void append(int type, int total, long taskId, long itemId, long deviceId) {
+        long now = System.currentTimeMillis();
+        for (;;) {
+            JournalSegment segment = active;
+            if (segment.append(type, total, taskId, itemId, deviceId, now)) {
+                appendedCount.increment();
+                return;
+            }
+            if (!roll(segment)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 活动段写满时滚动到新段，只有一个线程真正创建新段
+     *
+     * @return 是否可以继续写入
+     */
+    private boolean roll(JournalSegment full) {
+        synchronized (rollLock) {
+            if (active != full) {
+                return true;
+            }
+            if (!enabled) {
+                return false;
+            }
+            try {
+                JournalSegment next = JournalSegment.create(directory, full.getIndex() + 1, segmentSize);
+                full.force();
+                sealedSegments.add(full);
+                active = next;
+                if (sealedSegments.size() > 16) {
+                    log.warn("任务发送日志待删除段过多: {}，落库可能持续积压", sealedSegments.size());
+                }
+                return true;
+            } catch (IOException e) {
+                // 无法继续记录时停用日志，不影响发送
+                enabled = false;
+                log.error("任务发送日志滚动失败，停止记录发送日志", e);
+                return false;
+            }
+        }
+    }
+
+    private void syncCheckpoint() {
+        if (!checkpointDirty) {
+            return;
+        }
+        try {
+            checkpointChannel.force(false);
+            checkpointDirty = false;
+        } catch (IOException e) {
+            log.warn("任务发送日志检查点刷盘失败", e);
+        }
+    }
+
+    private void closeCheckpoint() {
+        try {
+            checkpointChannel.close();
+        } catch (IOException e) {
+            log.warn("关闭任务发送日志检查点失败", e);
+        }
+    }
+
+    // 位置编码：高 32 位为段序号，低 32 位为段内偏移
+    private static long encodePosition(long segmentIndex, int offset) {
+        return segmentIndex << 32 | (offset & 0xFFFFFFFFL);
+    }
+
+    private static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除任务发送日志段失败: {}", path, e);
+        }
+    }
+}
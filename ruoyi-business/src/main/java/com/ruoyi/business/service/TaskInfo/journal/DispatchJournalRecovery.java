@@ -0,0 +1,167 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
+import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import com.ruoyi.business.mapper.DataInspect.DataInspectMapper;
+import com.ruoyi.business.mapper.DataPoolItem.DataPoolItemMapper;
+import com.ruoyi.business.mapper.TaskInfo.TaskDeviceLinkMapper;
+import com.ruoyi.business.mapper.TaskInfo.TaskInfoMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 发送日志启动回放
+ * 逐段读取上次运行遗留的日志，在一个事务内按事件修正数据库，成功后删除该段：
+ * SENT 补写打印记录并将数据项标记为已打印，FAILED 将打印中的数据项恢复为待打印，
+ * 设备关联的发送/接收数量取日志累计值与已持久化值中的较大者，再按设备关联汇总任务数量。
+ * 所有语句均以数据项状态或取最大值为条件，重复回放结果不变
+ */
+@Component
+public class DispatchJournalRecovery implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DispatchJournalRecovery.class);
+
+    private static final DateTimeFormatter PRINT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // 每行 4 个绑定变量
+    private static final int LINK_ROWS_PER_STATEMENT = 200;
+
+    @Autowired
+    private DispatchJournal journal;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Path> segments = journal.takeRecoverableSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        SqlSessionTemplate batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Path segment : segments) {
+            try {
+                SegmentChanges changes = new SegmentChanges();
+                int events = journal.read(segment, changes::accept);
+                if (!changes.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> changes.apply(batchSqlSession));
+                }
+                journal.delete(segment);
+                log.info("发送日志回放完成: {}，事件: {}，已发送: {}，失败: {}，设备计数: {}",
+                        segment.getFileName(), events, changes.sent.size(), changes.failed.size(), changes.links.size());
+            } catch (Exception e) {
+                // 保留日志段，下次启动再回放
+                log.error("发送日志回放失败，保留日志段: {}", segment, e);
+            }
+        }
+    }
+
+    /**
+     * 单个日志段汇总出的数据库修正
+     */
+    static final class SegmentChanges {
+        // 数据项ID -> {任务ID, 设备ID, 时间戳}，同一数据项只取首次发送
+        final Map<Long, long[]> sent = new LinkedHashMap<>();
+        final Set<Long> failed = new LinkedHashSet<>();
+        // 任务ID:设备ID -> 日志中的最大累计数量
+        final Map<String, TaskDeviceLink> links = new LinkedHashMap<>();
+
+        void accept(int type, int total, long taskId, long itemId, long deviceId, long timeMillis) {
+            switch (type) {
+                case JournalEvent.SENT -> {
+                    sent.putIfAbsent(itemId, new long[]{taskId, deviceId, timeMillis});
+                    TaskDeviceLink link = linkOf(taskId, deviceId);
+                    link.setCompletedQuantity(Math.max(link.getCompletedQuantity(), total));
+                }
+                case JournalEvent.ACKED -> {
+                    TaskDeviceLink link = linkOf(taskId, deviceId);
+                    link.setReceivedQuantity(Math.max(link.getReceivedQuantity(), total));
+                }
+                case JournalEvent.FAILED -> failed.add(itemId);
+                default -> {
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return sent.isEmpty() && failed.isEmpty() && links.isEmpty();
+        }
+
+        void apply(SqlSessionTemplate batchSqlSession) {
+            DataPoolItemMapper itemMapper = batchSqlSession.getMapper(DataPoolItemMapper.class);
+            for (Long itemId : failed) {
+                if (!DataPoolItem.isFixedDataId(itemId)) {
+                    itemMapper.restorePendingItem(itemId);
+                }
+            }
+            // 先按数据项状态补写打印记录，再标记已打印，已落库或不属于任务数据池的数据项两条语句均不生效；
+            // 固定数据池的合成ID不对应数据项，打印记录取数据池的固定数据
+            DataInspectMapper inspectMapper = batchSqlSession.getMapper(DataInspectMapper.class);
+            for (Map.Entry<Long, long[]> e : sent.entrySet()) {
+                long[] v = e.getValue();
+                if (DataPoolItem.isFixedDataId(e.getKey())) {
+                    inspectMapper.insertFixedPrintRecord(v[0], v[1], formatTime(v[2]));
+                } else {
+                    inspectMapper.insertPrintRecordFromItem(e.getKey(), v[0], v[1], formatTime(v[2]));
+                }
+            }
+            for (Map.Entry<Long, long[]> e : sent.entrySet()) {
+                if (!DataPoolItem.isFixedDataId(e.getKey())) {
+                    itemMapper.restorePrintedItem(e.getKey(), e.getValue()[0], e.getValue()[1]);
+                }
+            }
+            if (!links.isEmpty()) {
+                List<TaskDeviceLink> rows = new ArrayList<>(links.values());
+                TaskDeviceLinkMapper linkMapper = batchSqlSession.getMapper(TaskDeviceLinkMapper.class);
+                for (int from = 0; from < rows.size(); from += LINK_ROWS_PER_STATEMENT) {
+                    linkMapper.restoreCounters(rows.subList(from, Math.min(from + LINK_ROWS_PER_STATEMENT, rows.size())));
+                }
+                Set<Long> taskIds = new LinkedHashSet<>();
+                rows.forEach(link -> taskIds.add(link.getTaskId()));
+                TaskInfoMapper taskInfoMapper = batchSqlSession.getMapper(TaskInfoMapper.class);
+                for (Long taskId : taskIds) {
+                    taskInfoMapper.refreshTaskQuantities(taskId);
+                }
+            }
+        }
+
+        private TaskDeviceLink linkOf(long taskId, long deviceId) {
+            return links.computeIfAbsent(taskId + ":" + deviceId, k -> {
+                TaskDeviceLink link = new TaskDeviceLink();
+                link.setTaskId(taskId);
+                link.setDeviceId(deviceId);
+                link.setCompletedQuantity(0);
+                link.setReceivedQuantity(0);
+                return link;
+            });
+        }
+
+        private static String formatTime(long timeMillis) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()).format(PRINT_TIME_FORMAT);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 日志落库检查点
+ * 记录本次运行的首个日志段序号与已落库位置（段序号 + 段内偏移），启动时据此跳过已落库的事件：
+ * 本次运行中序号小于检查点段的日志段已全部落库，检查点段内偏移之前的记录已落库；
+ * 序号小于运行首段的日志段来自更早的运行（上次回放失败保留），仍需完整回放。
+ *
+ * 文件格式（32字节，小端）：[0] long 运行首段序号 [8] long 段序号 [16] long 段内偏移 [24] long 校验和
+ */
+final class JournalCheckpoint {
+
+    static final String FILE_NAME = "journal.checkpoint";
+
+    private static final int SIZE = 32;
+
+    private final long runFirstSegment;
+    private final long segment;
+    private final long offset;
+
+    JournalCheckpoint(long runFirstSegment, long segment, long offset) {
+        this.runFirstSegment = runFirstSegment;
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    /**
+     * 读取检查点，文件不存在或内容不完整时返回 null
+     */
+    static JournalCheckpoint read(Path directory) throws IOException {
+        Path path = directory.resolve(FILE_NAME);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        long runFirstSegment = buffer.getLong(0);
+        long segment = buffer.getLong(8);
+        long offset = buffer.getLong(16);
+        if (buffer.getLong(24) != checksum(runFirstSegment, segment, offset)) {
+            return null;
+        }
+        return new JournalCheckpoint(runFirstSegment, segment, offset);
+    }
+
+    static FileChannel openForWrite(Path directory) throws IOException {
+        return FileChannel.open(directory.resolve(FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 覆盖写入检查点（定长一次写入，刷盘由调用方决定）
+     */
+    void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(runFirstSegment).putLong(segment).putLong(offset)
+                .putLong(checksum(runFirstSegment, segment, offset)).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    /**
+     * 日志段中需要回放的起始偏移
+     *
+     * @return 起始偏移；该段已全部落库时返回 -1
+     */
+    long replayOffset(long segmentIndex) {
+        if (segmentIndex < runFirstSegment || segmentIndex > segment) {
+            return 0L;
+        }
+        return segmentIndex < segment ? -1L : offset;
+    }
+
+    long getSegment() {
+        return segment;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    private static long checksum(long runFirstSegment, long segment, long offset) {
+        long h = 0x9E3779B97F4A7C15L;
+        h = (h ^ runFirstSegment) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ segment) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ offset) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    @Override
+    public String toString() {
+        return "runFirst=" + runFirstSegment + ", segment=" + segment + ", offset=" + offset;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+/**
+ * 发送日志事件类型
+ */
+public final class JournalEvent {
+
+    /** 指令已发送，携带数据项ID与设备累计发送数量 */
+    public static final int SENT = 1;
+
+    /** 设备已完成，携带设备累计接收数量 */
+    public static final int ACKED = 2;
+
+    /** 指令最终发送失败或被丢弃，数据项未打印 */
+    public static final int FAILED = 3;
+
+    private JournalEvent() {
+    }
+
+    /**
+     * 日志记录访问器，读取时逐条回调，不为每条记录创建对象
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int type, int total, long taskId, long itemId, long deviceId, long timeMillis);
+    }
+}
@@ -0,0 +1,218 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 日志段文件
+ * 固定大小的内存映射文件，由多个写入线程以 CAS 占用定长槽位后直接写入映射内存；
+ * 槽位头在其余字段写完后以 release 语义写入，配合校验和识别未写完或断电撕裂的记录
+ *
+ * 记录格式（48字节，小端）：
+ * [0] int 头（魔数 | 类型） [4] int 设备累计数量 [8] long 任务ID [16] long 数据项ID
+ * [24] long 设备ID [32] long 时间戳（毫秒） [40] long 校验和
+ */
+final class JournalSegment {
+
+    static final int RECORD_SIZE = 48;
+
+    private static final int MAGIC = 0x4A524E00;
+    private static final int MAGIC_MASK = 0xFFFFFF00;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long index;
+    private final Path path;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger writePosition = new AtomicInteger(0);
+    // 正在写入的线程数，为0时才允许解除映射
+    private final AtomicInteger writers = new AtomicInteger(0);
+    // 已关闭：不再接受写入；已解除映射：不能再访问映射内存
+    private volatile boolean closed;
+    private volatile boolean unmapped;
+
+    private JournalSegment(long index, Path path, MappedByteBuffer buffer) {
+        this.index = index;
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() - buffer.capacity() % RECORD_SIZE;
+    }
+
+    /**
+     * 创建新的日志段并预分配映射空间
+     */
+    static JournalSegment create(Path directory, long index, int size) throws IOException {
+        Path path = directory.resolve(fileName(index));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new JournalSegment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * 以只读方式打开已有日志段（启动回放）
+     */
+    static JournalSegment open(Path path, long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new JournalSegment(index, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static String fileName(long index) {
+        return String.format("journal-%016d.seg", index);
+    }
+
+    /**
+     * 从文件名解析段序号，不是日志段文件时返回 -1
+     */
+    static long parseIndex(String fileName) {
+        if (!fileName.startsWith("journal-") || !fileName.endsWith(".seg")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring("journal-".length(), fileName.length() - ".seg".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 占用一个槽位并写入记录
+     *
+     * @return 是否写入成功，段已写满时返回 false
+     */
+    boolean append(int type, int total, long taskId, long itemId, long deviceId, long timeMillis) {
+        // 先登记写入者再检查关闭：与 close 先置关闭再看写入者的顺序相对，两边至少一方能看到对方
+        writers.incrementAndGet();
+        try {
+            if (closed) {
+                return false;
+            }
+            int offset = writePosition.getAndAdd(RECORD_SIZE);
+            if (offset > capacity - RECORD_SIZE) {
+                return false;
+            }
+            write(offset, type, total, taskId, itemId, deviceId, timeMillis);
+            return true;
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    private void write(int offset, int type, int total, long taskId, long itemId, long deviceId, long timeMillis) {
+        LONG.set(buffer, offset + 8, taskId);
+        LONG.set(buffer, offset + 16, itemId);
+        LONG.set(buffer, offset + 24, deviceId);
+        LONG.set(buffer, offset + 32, timeMillis);
+        LONG.set(buffer, offset + 40, checksum(type, total, taskId, itemId, deviceId, timeMillis));
+        INT.set(buffer, offset + 4, total);
+        INT.setRelease(buffer, offset, MAGIC | type);
+    }
+
+    /**
+     * 清除已有日志段中指定偏移之前的记录（写零，读取时按无效槽位跳过）
+     */
+    static void clearBefore(Path path, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            long end = Math.min(offset, channel.size());
+            ByteBuffer zeros = ByteBuffer.allocate(64 * RECORD_SIZE);
+            for (long position = 0; position < end; ) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), end - position));
+                position += channel.write(zeros, position);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 顺序读取段内所有完整记录，跳过未写完或校验失败的槽位
+     *
+     * @return 读取的记录数
+     */
+    int read(JournalEvent.Visitor visitor) {
+        int count = 0;
+        for (int offset = 0; offset <= capacity - RECORD_SIZE; offset += RECORD_SIZE) {
+            int header = (int) INT.getAcquire(buffer, offset);
+            if ((header & MAGIC_MASK) != MAGIC) {
+                continue;
+            }
+            int type = header & ~MAGIC_MASK;
+            int total = (int) INT.get(buffer, offset + 4);
+            long taskId = (long) LONG.get(buffer, offset + 8);
+            long itemId = (long) LONG.get(buffer, offset + 16);
+            long deviceId = (long) LONG.get(buffer, offset + 24);
+            long timeMillis = (long) LONG.get(buffer, offset + 32);
+            if ((long) LONG.get(buffer, offset + 40) != checksum(type, total, taskId, itemId, deviceId, timeMillis)) {
+                continue;
+            }
+            visitor.visit(type, total, taskId, itemId, deviceId, timeMillis);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 已占用的字节数（不超过段容量），该位置之前的槽位均已被写入方占用
+     */
+    int writtenBytes() {
+        return Math.min(writePosition.get(), capacity);
+    }
+
+    void force() {
+        if (!unmapped) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 停止写入并解除映射（Windows 下映射未释放的文件无法删除）
+     *
+     * @return 是否已解除，仍有写入线程时返回 false，之后可再次调用
+     */
+    boolean close() {
+        if (unmapped) {
+            return true;
+        }
+        closed = true;
+        if (writers.get() > 0) {
+            return false;
+        }
+        unmapped = true;
+        PlatformDependent.freeDirectBuffer(buffer);
+        return true;
+    }
+
+    long getIndex() {
+        return index;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    private static long checksum(int type, int total, long taskId, long itemId, long deviceId, long timeMillis) {
+        long h = 0x9E3779B97F4A7C15L ^ ((long) type << 32 | (total & 0xFFFFFFFFL));
+        h = mix(h ^ taskId);
+        h = mix(h ^ itemId);
+        h = mix(h ^ deviceId);
+        h = mix(h ^ timeMillis);
+        return h == 0 ? 1 : h;
+    }
+
+    private static long mix(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,99 @@
+package com.ruoyi.business.service.TaskInfo.persist;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 落库批次指标
+ * 记录每次落库的耗时（最近一次、指数滑动平均、最大值）与累计写入量，供监控与日志查看
+ */
+public class PersistFlushMetrics {
+
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder recordCount = new LongAdder();
+    private final LongAdder linkRowCount = new LongAdder();
+
+    private volatile long lastFlushNanos;
+    private volatile double avgFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile int lastRecords;
+
+    /**
+     * 记录一次落库（由持有落库锁的线程调用）
+     */
+    void record(long elapsedNanos, int records, int linkRows, boolean success) {
+        flushCount.increment();
+        if (!success) {
+            failedCount.increment();
+        } else {
+            recordCount.add(records);
+            linkRowCount.add(linkRows);
+        }
+        lastFlushNanos = elapsedNanos;
+        lastRecords = records;
+        avgFlushNanos = avgFlushNanos == 0 ? elapsedNanos : avgFlushNanos + EWMA_ALPHA * (elapsedNanos - avgFlushNanos);
+        if (elapsedNanos > maxFlushNanos) {
+            maxFlushNanos = elapsedNanos;
+        }
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getRecordCount() {
+        return recordCount.sum();
+    }
+
+    public long getLinkRowCount() {
+        return linkRowCount.sum();
+    }
+
+    public int getLastRecords() {
+        return lastRecords;
+    }
+
+    public double getLastFlushMillis() {
+        return lastFlushNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getAvgFlushMillis() {
+        return avgFlushNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 指标快照，用于统计接口
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("flushCount", getFlushCount());
+        map.put("failedCount", getFailedCount());
+        map.put("recordCount", getRecordCount());
+        map.put("linkRowCount", getLinkRowCount());
+        map.put("lastRecords", lastRecords);
+        map.put("lastFlushMillis", getLastFlushMillis());
+        map.put("avgFlushMillis", getAvgFlushMillis());
+        map.put("maxFlushMillis", getMaxFlushMillis());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("flushes=%d, failed=%d, records=%d, linkRows=%d, last=%.1fms(%d条), avg=%.1fms, max=%.1fms",
+                getFlushCount(), getFailedCount(), getRecordCount(), getLinkRowCount(),
+                getLastFlushMillis(), lastRecords, getAvgFlushMillis(), getMaxFlushMillis());
+    }
+}
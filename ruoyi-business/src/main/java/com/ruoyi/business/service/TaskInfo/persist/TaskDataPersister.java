@@ -0,0 +1,400 @@
+package com.ruoyi.business.service.TaskInfo.persist;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
+import com.ruoyi.business.domain.TaskInfo.DeviceTaskStatus;
+import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import com.ruoyi.business.domain.TaskInfo.TaskDispatchStatus;
+import com.ruoyi.business.enums.ItemStatus;
+import com.ruoyi.business.mapper.DataInspect.DataInspectMapper;
+import com.ruoyi.business.mapper.DataPoolItem.DataPoolItemMapper;
+import com.ruoyi.business.mapper.TaskInfo.TaskDeviceLinkMapper;
+import com.ruoyi.business.mapper.TaskInfo.TaskInfoMapper;
+import com.ruoyi.business.service.TaskInfo.CommandQueueService;
+import com.ruoyi.business.service.TaskInfo.impl.TaskDispatcherServiceImpl;
+import com.ruoyi.business.service.TaskInfo.journal.DispatchJournal;
+import com.ruoyi.business.service.TaskInfo.queue.SentRecordBatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 任务数据后写落库
+ * 发送记录与设备计数先在内存中累积，按批次写入数据库，每批一个短事务：
+ * 质检记录插入（数据内容取自数据项）与数据项状态更新走 JDBC 批处理，设备计数用一条多行语句更新，任务汇总每个任务一条语句；
+ * 落库间隔与批次大小在配置区间内按积压量与落库耗时自适应
+ */
+@Component
+public class TaskDataPersister {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskDataPersister.class);
+
+    // 每行 6 个绑定变量，控制在 SQLite 旧版本 999 个变量上限以内
+    private static final int LINK_ROWS_PER_STATEMENT = 150;
+    // 写入失败的发送记录最多随后续批次重试的次数
+    private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final DateTimeFormatter PRINT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    @Lazy
+    private TaskDispatcherServiceImpl taskDispatcherService;
+
+    @Autowired
+    private CommandQueueService commandQueueService;
+
+    @Autowired
+    private TaskDispatchProperties properties;
+
+    @Autowired
+    private DispatchJournal dispatchJournal;
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SqlSessionTemplate batchSqlSession;
+    private TransactionTemplate transactionTemplate;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final PersistFlushMetrics metrics = new PersistFlushMetrics();
+
+    // 以下字段仅在持有落库锁时修改
+    private volatile long intervalMillis;
+    private volatile int batchSize;
+    private long lastFlushAt;
+    // 尚未成功写入的设备计数（设备ID -> 最新计数），成功后清空
+    private final Map<String, TaskDeviceLink> dirtyLinks = new LinkedHashMap<>();
+    // 本批发送记录，落库线程复用
+    private final SentRecordBatch records = new SentRecordBatch(1024);
+    // 写入失败待重试的发送记录
+    private final SentRecordBatch retryRecords = new SentRecordBatch(16);
+    private int retryAttempts;
+    // 上次输出指标日志时的落库次数
+    private long reportedFlushCount;
+
+    @PostConstruct
+    public void init() {
+        this.batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        TaskDispatchProperties.PersistConfig config = properties.getPersist();
+        this.intervalMillis = config.getMaxIntervalMs();
+        this.batchSize = config.getMinBatchSize();
+        this.lastFlushAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 退出前写完所有积压，发送日志随后据已落库位置清理日志段（本组件依赖发送日志，先于其销毁）
+     */
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flushAll();
+        } catch (Exception e) {
+            log.error("退出前任务数据落库失败，下次启动由发送日志回放", e);
+        }
+    }
+
+    /**
+     * 定时检查：积压达到批次大小或距上次落库超过当前间隔时落库一批；其他线程正在落库时直接跳过
+     */
+    public void flushIfDue() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            long elapsed = System.currentTimeMillis() - lastFlushAt;
+            if (elapsed < intervalMillis && sentBacklog() < batchSize) {
+                return;
+            }
+            flushOnce(batchSize, true);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 全量落库：写完当前所有积压（任务停止或完成前调用）
+     */
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            int limit = properties.getPersist().getMaxBatchSize();
+            while (flushOnce(limit, false) >= limit) {
+                // 满批说明可能仍有积压，继续写下一批
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public PersistFlushMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 落库指标与当前自适应参数，用于统计接口
+     */
+    public Map<String, Object> getMetricsSnapshot() {
+        Map<String, Object> snapshot = metrics.toMap();
+        snapshot.put("intervalMillis", intervalMillis);
+        snapshot.put("batchSize", batchSize);
+        snapshot.put("backlog", sentBacklog());
+        return snapshot;
+    }
+
+    /**
+     * 定时输出落库指标，期间没有落库时不输出
+     */
+    public void logMetrics() {
+        long flushes = metrics.getFlushCount();
+        if (flushes == reportedFlushCount) {
+            return;
+        }
+        reportedFlushCount = flushes;
+        log.info("任务数据落库指标: {}，间隔: {}ms，批次: {}", metrics, intervalMillis, batchSize);
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 落库一批，调用方需持有落库锁
+     *
+     * @return 本批成功写入的发送记录数，失败时返回0
+     */
+    private int flushOnce(int limit, boolean adaptive) {
+        lastFlushAt = System.currentTimeMillis();
+        // 先取日志位置再抽取缓冲：位置之前的事件，其计数与发送记录都已进入缓冲
+        long journalPosition = dispatchJournal.position();
+        collectLinkCounters();
+        drainRecords(limit);
+        if (records.isEmpty() && dirtyLinks.isEmpty()) {
+            dispatchJournal.markPersisted(journalPosition);
+            if (adaptive) {
+                adapt(0L, 0, limit);
+            }
+            return 0;
+        }
+
+        List<TaskDeviceLink> links = new ArrayList<>(dirtyLinks.values());
+        Set<Long> taskIds = new HashSet<>();
+        for (TaskDeviceLink link : links) {
+            taskIds.add(link.getTaskId());
+        }
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(records, links, taskIds));
+            success = true;
+        } catch (Exception e) {
+            log.error("任务数据落库失败，发送记录: {}，设备计数: {}", records.size(), links.size(), e);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        metrics.record(elapsedNanos, records.size(), links.size(), success);
+
+        if (success) {
+            dirtyLinks.clear();
+            retryAttempts = 0;
+            // 缓冲已全部写完时，日志位置之前的段可以删除
+            if (records.size() < limit) {
+                dispatchJournal.markPersisted(journalPosition);
+            }
+        } else if (!records.isEmpty()) {
+            if (++retryAttempts <= MAX_RETRY_ATTEMPTS) {
+                retryRecords.addAll(records);
+            } else {
+                log.error("发送记录连续 {} 次落库失败，丢弃 {} 条", retryAttempts, records.size());
+                retryAttempts = 0;
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (elapsedMillis > properties.getPersist().getMaxIntervalMs()) {
+            log.warn("落库耗时过长: {}ms，发送记录: {}，设备计数: {}，{}", elapsedMillis, records.size(), links.size(), metrics);
+        } else if (log.isDebugEnabled()) {
+            log.debug("落库完成: {}ms，发送记录: {}，设备计数: {}，间隔: {}ms，批次: {}",
+                    elapsedMillis, records.size(), links.size(), intervalMillis, batchSize);
+        }
+        if (adaptive) {
+            adapt(elapsedNanos, records.size(), limit);
+        }
+        return success ? records.size() : 0;
+    }
+
+    private void write(SentRecordBatch records, List<TaskDeviceLink> links, Collection<Long> taskIds) {
+        // 同一语句连续执行，由批处理执行器累积为一个 JDBC 批次，提交前统一下发
+        if (!records.isEmpty()) {
+            // 先按数据项补写打印记录（数据内容与池取自数据项），再标记已打印；
+            // 固定数据池的合成ID不对应数据项，打印记录取数据池的固定数据，也没有数据项状态需要更新
+            DataInspectMapper inspectMapper = batchSqlSession.getMapper(DataInspectMapper.class);
+            for (int i = 0; i < records.size(); i++) {
+                if (DataPoolItem.isFixedDataId(records.itemId(i))) {
+                    inspectMapper.insertFixedPrintRecord(records.taskId(i),
+                            deviceIdOf(records.deviceId(i)), formatTime(records.sentAtMillis(i)));
+                } else {
+                    inspectMapper.insertPrintRecordFromItem(records.itemId(i), records.taskId(i),
+                            deviceIdOf(records.deviceId(i)), formatTime(records.sentAtMillis(i)));
+                }
+            }
+            DataPoolItemMapper itemMapper = batchSqlSession.getMapper(DataPoolItemMapper.class);
+            for (int i = 0; i < records.size(); i++) {
+                if (!DataPoolItem.isFixedDataId(records.itemId(i))) {
+                    itemMapper.updateItemStatusAndDevice(records.itemId(i), ItemStatus.PRINTED.getCode(), deviceIdOf(records.deviceId(i)));
+                }
+            }
+        }
+        if (!links.isEmpty()) {
+            TaskDeviceLinkMapper linkMapper = batchSqlSession.getMapper(TaskDeviceLinkMapper.class);
+            for (int from = 0; from < links.size(); from += LINK_ROWS_PER_STATEMENT) {
+                linkMapper.batchUpdateCounters(links.subList(from, Math.min(from + LINK_ROWS_PER_STATEMENT, links.size())));
+            }
+            TaskInfoMapper taskInfoMapper = batchSqlSession.getMapper(TaskInfoMapper.class);
+            for (Long taskId : taskIds) {
+                taskInfoMapper.refreshTaskQuantities(taskId);
+            }
+        }
+    }
+
+    /**
+     * 抽取发送/接收计数增量，累加到设备内存状态，并记录待写入的设备计数
+     */
+    private void collectLinkCounters() {
+        Map<String, Integer> sentCounts = taskDispatcherService.getAndClearSentBuffer();
+        Map<String, Integer> receivedCounts = taskDispatcherService.getAndClearCompletedBuffer();
+        if (sentCounts.isEmpty() && receivedCounts.isEmpty()) {
+            return;
+        }
+        Set<String> deviceIds = new HashSet<>(sentCounts.keySet());
+        deviceIds.addAll(receivedCounts.keySet());
+        long now = System.currentTimeMillis();
+        for (String deviceId : deviceIds) {
+            Long taskId = taskDispatcherService.getDeviceTaskId(deviceId);
+            DeviceTaskStatus deviceStatus = taskDispatcherService.getDeviceTaskStatus(deviceId);
+            if (taskId == null || deviceStatus == null) {
+                continue;
+            }
+            TaskDeviceLink link = new TaskDeviceLink();
+            link.setTaskId(taskId);
+            link.setDeviceId(Long.valueOf(deviceId));
+            link.setCachePoolSize(deviceStatus.getInFlightCount());
+
+            // 发送数量（设备已接收指令）
+            int sentDelta = sentCounts.getOrDefault(deviceId, 0);
+            if (sentDelta > 0) {
+                deviceStatus.setCompletedCount(valueOf(deviceStatus.getCompletedCount()) + sentDelta);
+            }
+            link.setCompletedQuantity(deviceStatus.getCompletedCount());
+
+            // 接收数量（设备已完成）与吞吐率
+            int receivedDelta = receivedCounts.getOrDefault(deviceId, 0);
+            if (receivedDelta > 0) {
+                deviceStatus.setReceivedCount(valueOf(deviceStatus.getReceivedCount()) + receivedDelta);
+                int currentCompletedCount = valueOf(deviceStatus.getCurrentCompletedCount()) + receivedDelta;
+                deviceStatus.setCurrentCompletedCount(currentCompletedCount);
+                TaskDispatchStatus taskStatus = taskDispatcherService.getTaskDispatchStatus(taskId);
+                if (taskStatus != null && taskStatus.getStartTime() != null) {
+                    long runningSeconds = Math.max(1, (now - taskStatus.getStartTime()) / 1000); // 至少1秒
+                    int throughput = (int) (currentCompletedCount / runningSeconds);
+                    deviceStatus.setThroughput(throughput);
+                    link.setThroughput(throughput);
+                }
+            }
+            link.setReceivedQuantity(deviceStatus.getReceivedCount());
+
+            // 同一设备多次未写入时只保留最新计数
+            dirtyLinks.put(deviceId, link);
+        }
+    }
+
+    private void drainRecords(int limit) {
+        records.clear();
+        records.addAll(retryRecords);
+        retryRecords.clear();
+        for (Long taskId : taskDispatcherService.getRunningTasks()) {
+            int remaining = limit - records.size();
+            if (remaining <= 0) {
+                break;
+            }
+            commandQueueService.drainSentRecordsForTask(taskId, records, remaining);
+        }
+    }
+
+    private int sentBacklog() {
+        int backlog = retryRecords.size();
+        for (Long taskId : taskDispatcherService.getRunningTasks()) {
+            backlog += commandQueueService.getSentRecordCount(taskId);
+        }
+        return backlog;
+    }
+
+    /**
+     * 调整下次落库的间隔与批次大小：
+     * 满批说明积压增长，缩短间隔，耗时富余时放大批次；轻载时放宽间隔减少空事务；
+     * 耗时超过目标时按比例缩小批次，缩短单次占用 SQLite 写锁的时间
+     */
+    private void adapt(long elapsedNanos, int records, int limit) {
+        TaskDispatchProperties.PersistConfig config = properties.getPersist();
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(config.getTargetFlushMs());
+        long interval = intervalMillis;
+        int size = batchSize;
+        if (records >= limit) {
+            interval /= 2;
+            if (elapsedNanos < targetNanos / 2) {
+                size *= 2;
+            }
+        } else if (records < limit / 4) {
+            interval = interval * 3 / 2;
+        }
+        if (records > 0 && elapsedNanos > targetNanos) {
+            size = (int) (size * ((double) targetNanos / elapsedNanos));
+        }
+        // 两次落库之间至少留出两倍的平均落库耗时给其他写入方
+        long minGap = 2 * (long) metrics.getAvgFlushMillis();
+        interval = Math.max(interval, minGap);
+        intervalMillis = Math.max(config.getMinIntervalMs(), Math.min(config.getMaxIntervalMs(), interval));
+        batchSize = Math.max(config.getMinBatchSize(), Math.min(config.getMaxBatchSize(), size));
+    }
+
+    private static Long deviceIdOf(long deviceId) {
+        return deviceId == 0L ? null : deviceId;
+    }
+
+    private static String formatTime(long timeMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault()).format(PRINT_TIME_FORMAT);
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+}
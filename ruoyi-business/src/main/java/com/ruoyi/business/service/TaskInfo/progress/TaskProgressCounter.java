@@ -0,0 +1,134 @@
+package com.ruoyi.business.service.TaskInfo.progress;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 任务进度内存计数器
+ * 生产端记录认领/归还，发送端记录发送/最终失败，完成回调记录设备完成，
+ * 任务完成判断只读内存计数，不再每次完成回调都对 data_pool_item 执行 COUNT(*)；
+ * 仅在任务启动、停止时与数据库校准
+ */
+public class TaskProgressCounter {
+
+    private final Long taskId;
+    // 已认领（PENDING -> PRINTING）的数据项
+    private final LongAdder claimed = new LongAdder();
+    // 已认领但未入队、被归还为待打印的数据项
+    private final LongAdder returned = new LongAdder();
+    // 已成功写出到设备的指令
+    private final LongAdder sent = new LongAdder();
+    // 重试用尽、最终发送失败的指令
+    private final LongAdder failed = new LongAdder();
+    // 设备上报的打印完成
+    private final LongAdder acked = new LongAdder();
+    // 最近一次认领不足请求数量，数据池已无待打印数据
+    private volatile boolean sourceExhausted;
+    // 生产端已达到计划打印数量
+    private volatile boolean planCompleted;
+
+    public TaskProgressCounter(Long taskId) {
+        this.taskId = taskId;
+    }
+
+    /**
+     * 记录一次认领
+     *
+     * @param count 实际认领数量
+     * @param requested 请求认领数量
+     */
+    public void recordClaimed(int count, int requested) {
+        if (count > 0) {
+            claimed.add(count);
+        }
+        sourceExhausted = count < requested;
+    }
+
+    /**
+     * 记录一次按数据项ID插队认领（人工录入、质检回收补码），不影响数据池是否已取空的判断
+     */
+    public void recordExpedited(int count) {
+        if (count > 0) {
+            claimed.add(count);
+        }
+    }
+
+    public void recordReturned(int count) {
+        if (count > 0) {
+            returned.add(count);
+        }
+    }
+
+    public void recordSent() {
+        sent.increment();
+    }
+
+    public void recordFailed() {
+        failed.increment();
+    }
+
+    public void recordAcked() {
+        acked.increment();
+    }
+
+    public void markPlanCompleted() {
+        planCompleted = true;
+    }
+
+    /**
+     * 已认领但尚未发送结束（发送成功/最终失败/归还）的数量，即数据库中本任务 PRINTING 且未发送的数据项
+     * 先读取结束计数再读取认领计数，并发下只会高估不会低估，不会误判为0
+     */
+    public long outstanding() {
+        long resolved = sent.sum() + failed.sum() + returned.sum();
+        return Math.max(0L, claimed.sum() - resolved);
+    }
+
+    /**
+     * 生产端已不会再产生新指令：数据池已取空或已达到计划数量
+     */
+    public boolean isProducerDone() {
+        return sourceExhausted || planCompleted;
+    }
+
+    /**
+     * 所有已认领数据均已发送结束且生产端已无后续数据
+     */
+    public boolean isDrained() {
+        return isProducerDone() && outstanding() == 0;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public long getClaimed() {
+        return claimed.sum();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    public boolean isSourceExhausted() {
+        return sourceExhausted;
+    }
+
+    public boolean isPlanCompleted() {
+        return planCompleted;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskProgressCounter{taskId=" + taskId + ", claimed=" + getClaimed() + ", returned=" + returned.sum()
+                + ", sent=" + getSent() + ", failed=" + getFailed() + ", acked=" + getAcked()
+                + ", sourceExhausted=" + sourceExhausted + ", planCompleted=" + planCompleted + "}";
+    }
+}
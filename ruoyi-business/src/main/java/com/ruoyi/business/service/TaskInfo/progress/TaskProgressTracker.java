@@ -0,0 +1,37 @@
+package com.ruoyi.business.service.TaskInfo.progress;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务进度计数器注册表
+ * 任务启动时创建、结束时移除，供生产端、发送端与调度器共享
+ */
+@Component
+public class TaskProgressTracker {
+
+    private final ConcurrentHashMap<Long, TaskProgressCounter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 任务启动：创建新的计数器（覆盖上次运行遗留的计数）
+     */
+    public TaskProgressCounter start(Long taskId) {
+        TaskProgressCounter counter = new TaskProgressCounter(taskId);
+        counters.put(taskId, counter);
+        return counter;
+    }
+
+    /**
+     * 获取任务计数器
+     *
+     * @return 计数器，任务未启动时返回null
+     */
+    public TaskProgressCounter get(Long taskId) {
+        return taskId != null ? counters.get(taskId) : null;
+    }
+
+    public TaskProgressCounter remove(Long taskId) {
+        return counters.remove(taskId);
+    }
+}
@@ -0,0 +1,142 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 发送失败指令的延迟重试
+ * 失败指令挂到时间轮上，到期后再放回任务队列，而不是立即放回被发送端再次取出；
+ * 延迟按设备连续失败次数指数退避，设备发送成功后清零。
+ * 时间轮由单个线程按刻度推进，挂起/到期均为 O(1)，大量指令同时等待重试也不会占用 CPU
+ */
+public class CommandRetryScheduler {
+
+    private final HashedWheelTimer timer;
+    private final Consumer<PrintCommand> requeue;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    // 设备连续发送失败次数（设备ID -> 次数）
+    private final ConcurrentHashMap<String, AtomicInteger> deviceFailures = new ConcurrentHashMap<>();
+    // 等待重试的指令（任务ID -> 定时器），任务清理时取消
+    private final ConcurrentHashMap<Long, Set<Timeout>> pendingRetries = new ConcurrentHashMap<>();
+
+    /**
+     * @param requeue 到期后放回任务队列
+     * @param tickMs 时间轮刻度（毫秒）
+     * @param baseDelayMs 首次重试延迟（毫秒）
+     * @param maxDelayMs 最长重试延迟（毫秒）
+     */
+    public CommandRetryScheduler(Consumer<PrintCommand> requeue, long tickMs, long baseDelayMs, long maxDelayMs) {
+        this.requeue = requeue;
+        this.baseDelayMs = Math.max(1L, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("command-retry", true),
+                Math.max(1L, tickMs), TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * 按指令所分配设备的退避延迟安排重试
+     *
+     * @return 本次重试的延迟（毫秒）
+     */
+    public long schedule(PrintCommand command) {
+        long delayMs = nextDelay(command.getDeviceId());
+        Set<Timeout> pending = pendingRetries.computeIfAbsent(command.getTaskId(), k -> ConcurrentHashMap.newKeySet());
+        Timeout timeout = timer.newTimeout(new RetryTask(command, pending), delayMs, TimeUnit.MILLISECONDS);
+        pending.add(timeout);
+        // 到期回调可能先于登记执行，此时不应再保留
+        if (timeout.isExpired()) {
+            pending.remove(timeout);
+        }
+        return delayMs;
+    }
+
+    /**
+     * 设备发送成功，清零退避
+     */
+    public void recordSuccess(String deviceId) {
+        if (deviceId == null) {
+            return;
+        }
+        AtomicInteger failures = deviceFailures.get(deviceId);
+        if (failures != null && failures.get() != 0) {
+            failures.set(0);
+        }
+    }
+
+    /**
+     * 取消任务所有等待中的重试
+     *
+     * @param onCancelled 被取消的指令（由调用方释放资源）
+     * @return 取消的数量
+     */
+    public int cancel(Long taskId, Consumer<PrintCommand> onCancelled) {
+        Set<Timeout> pending = pendingRetries.remove(taskId);
+        if (pending == null) {
+            return 0;
+        }
+        int cancelled = 0;
+        for (Timeout timeout : pending) {
+            if (timeout.cancel()) {
+                cancelled++;
+                onCancelled.accept(commandOf(timeout));
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * 等待重试的指令数量
+     */
+    public int pendingCount(Long taskId) {
+        Set<Timeout> pending = pendingRetries.get(taskId);
+        return pending == null ? 0 : pending.size();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    // 设备连续失败 n 次后延迟 base * 2^(n-1)，不超过上限
+    private long nextDelay(String deviceId) {
+        if (deviceId == null) {
+            return baseDelayMs;
+        }
+        int failures = deviceFailures.computeIfAbsent(deviceId, k -> new AtomicInteger()).incrementAndGet();
+        int shift = Math.min(failures - 1, 20);
+        return Math.min(maxDelayMs, baseDelayMs << shift);
+    }
+
+    private static PrintCommand commandOf(Timeout timeout) {
+        return ((RetryTask) timeout.task()).command;
+    }
+
+    /**
+     * 到期任务：移出等待集合并放回任务队列
+     */
+    private final class RetryTask implements TimerTask {
+        final PrintCommand command;
+        final Set<Timeout> pending;
+
+        RetryTask(PrintCommand command, Set<Timeout> pending) {
+            this.command = command;
+            this.pending = pending;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            pending.remove(timeout);
+            requeue.accept(command);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import java.util.Arrays;
+
+/**
+ * long 基本类型哈希集合
+ * 开放寻址、线性探测，元素直接存放在 long[] 中，不为每个元素创建装箱对象和链表节点；
+ * 删除时将后续探测链上的元素前移填补空位（不使用删除标记），长期增删不会退化。
+ * 非线程安全，由调用方加锁
+ */
+public class LongHashSet {
+
+    // 0 作为空槽标记，元素 0 单独记录
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 预计元素数量，按负载因子预分配，达到该数量前不扩容
+     */
+    public LongHashSet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * 添加元素
+     *
+     * @return 元素原先不存在时返回true
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = slot(value);
+        long current;
+        while ((current = table[i]) != EMPTY) {
+            if (current == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size > resizeThreshold) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * 移除元素
+     *
+     * @return 元素原先存在时返回true
+     */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int i = slot(value);
+        long current;
+        while ((current = table[i]) != EMPTY) {
+            if (current == value) {
+                shiftDown(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int i = slot(value);
+        long current;
+        while ((current = table[i]) != EMPTY) {
+            if (current == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空元素，保留已分配的空间
+     */
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    /**
+     * 当前占用的槽位数组字节数（不含对象头）
+     */
+    public long footprintBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    // 删除 gap 处元素后，把探测链上落在 gap 之后、但理想位置不晚于 gap 的元素前移
+    private void shiftDown(int gap) {
+        int i = gap;
+        for (;;) {
+            i = (i + 1) & mask;
+            long current = table[i];
+            if (current == EMPTY) {
+                table[gap] = EMPTY;
+                return;
+            }
+            int ideal = slot(current);
+            // 理想位置在 (gap, i] 循环区间内的元素不能前移
+            if (gap <= i ? (gap < ideal && ideal <= i) : (gap < ideal || ideal <= i)) {
+                continue;
+            }
+            table[gap] = current;
+            gap = i;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = table;
+        allocate(newCapacity);
+        for (long value : old) {
+            if (value != EMPTY) {
+                int i = slot(value);
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // 连续的数据项ID经混合后分散到各槽位，避免线性探测聚集
+    private int slot(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
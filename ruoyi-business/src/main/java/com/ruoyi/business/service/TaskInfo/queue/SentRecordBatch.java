@@ -0,0 +1,88 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import java.util.Arrays;
+
+/**
+ * 待落库的已发送记录批次
+ * 任务ID、数据项ID、设备ID、发送时间分列存放，落库线程复用同一批次，只在容量不足时扩容
+ */
+public class SentRecordBatch {
+
+    private long[] taskIds;
+    private long[] itemIds;
+    private long[] deviceIds;
+    private long[] sentAtMillis;
+    private int size;
+
+    public SentRecordBatch(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        taskIds = new long[capacity];
+        itemIds = new long[capacity];
+        deviceIds = new long[capacity];
+        sentAtMillis = new long[capacity];
+    }
+
+    public void add(long taskId, long itemId, long deviceId, long sentAt) {
+        if (size == itemIds.length) {
+            grow(size + 1);
+        }
+        taskIds[size] = taskId;
+        itemIds[size] = itemId;
+        deviceIds[size] = deviceId;
+        sentAtMillis[size] = sentAt;
+        size++;
+    }
+
+    /**
+     * 追加另一批次的全部记录
+     */
+    public void addAll(SentRecordBatch other) {
+        if (other.size == 0) {
+            return;
+        }
+        if (size + other.size > itemIds.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.taskIds, 0, taskIds, size, other.size);
+        System.arraycopy(other.itemIds, 0, itemIds, size, other.size);
+        System.arraycopy(other.deviceIds, 0, deviceIds, size, other.size);
+        System.arraycopy(other.sentAtMillis, 0, sentAtMillis, size, other.size);
+        size += other.size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long taskId(int index) {
+        return taskIds[index];
+    }
+
+    public long itemId(int index) {
+        return itemIds[index];
+    }
+
+    public long deviceId(int index) {
+        return deviceIds[index];
+    }
+
+    public long sentAtMillis(int index) {
+        return sentAtMillis[index];
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, itemIds.length + (itemIds.length >> 1));
+        taskIds = Arrays.copyOf(taskIds, capacity);
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        deviceIds = Arrays.copyOf(deviceIds, capacity);
+        sentAtMillis = Arrays.copyOf(sentAtMillis, capacity);
+    }
+}
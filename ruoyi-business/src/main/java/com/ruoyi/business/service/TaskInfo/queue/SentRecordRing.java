@@ -0,0 +1,132 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单任务已发送记录环形缓冲
+ * 数据项ID、设备ID、发送时间分列存放在基本类型数组中，发送一条不创建任何对象；
+ * 数据内容与所属池在落库时直接取自数据项，不在缓冲中保留副本。
+ * 同一任务的多个设备发送通道以写锁串行写入，落库线程单线程读取、无需加锁；
+ * 缓冲写满时写入方等待落库腾出空间，不丢弃记录
+ */
+public class SentRecordRing {
+
+    private final long[] itemIds;
+    private final long[] deviceIds;
+    private final long[] sentAtMillis;
+    private final int mask;
+
+    // 下一个读取位置，仅读取方修改
+    private volatile long head;
+    // 下一个写入位置，仅持有写锁时修改；槽位写完后才推进，读取方据此判断可读范围
+    private volatile long tail;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition notFull = writeLock.newCondition();
+    // 因缓冲已满而等待的写入方数量
+    private volatile int waitingWriters;
+    private volatile boolean closed;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public SentRecordRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.itemIds = new long[size];
+        this.deviceIds = new long[size];
+        this.sentAtMillis = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * 写入一条记录，缓冲已满时最多等待指定时间
+     *
+     * @return 是否写入成功；等待超时或缓冲已关闭时返回false
+     */
+    public boolean offer(long itemId, long deviceId, long sentAt, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        writeLock.lockInterruptibly();
+        try {
+            while (!closed && tail - head >= itemIds.length) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                // 先登记等待再复查：读取方推进 head 后检查登记数，两边至少一方能看到对方，不会漏掉唤醒
+                waitingWriters++;
+                try {
+                    if (!closed && tail - head >= itemIds.length) {
+                        nanos = notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    waitingWriters--;
+                }
+            }
+            if (closed) {
+                return false;
+            }
+            // 等待期间会释放写锁，其他写入方可能已推进写入位置，须在确认有空位后再读取
+            long t = tail;
+            int slot = (int) t & mask;
+            itemIds[slot] = itemId;
+            deviceIds[slot] = deviceId;
+            sentAtMillis[slot] = sentAt;
+            tail = t + 1;
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 按写入顺序取出最多指定数量的记录追加到批次中（仅落库线程调用）
+     *
+     * @return 取出的记录数
+     */
+    public int drainTo(long taskId, SentRecordBatch batch, int maxRecords) {
+        long h = head;
+        int n = (int) Math.min(tail - h, maxRecords);
+        if (n <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < n; i++) {
+            int slot = (int) (h + i) & mask;
+            batch.add(taskId, itemIds[slot], deviceIds[slot], sentAtMillis[slot]);
+        }
+        head = h + n;
+        if (waitingWriters > 0) {
+            signalNotFull();
+        }
+        return n;
+    }
+
+    /**
+     * 关闭缓冲（任务清理时），唤醒并放弃所有等待中的写入
+     */
+    public void close() {
+        closed = true;
+        signalNotFull();
+    }
+
+    private void signalNotFull() {
+        writeLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public int getCapacity() {
+        return itemIds.length;
+    }
+}
@@ -0,0 +1,362 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import com.ruoyi.business.enums.CommandPriority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单任务指令队列
+ * 按指令优先级分为独立的有界通道：批量数据通道按指令ID从小到大出队，补打、人工录入通道按入队顺序出队。
+ * 出队按权重轮转：每轮各通道最多出队其权重数量，高优先级通道先出，
+ * 补打与人工录入无需清空队列即可插到批量数据之前，同时批量数据每轮至少出队一次，不会被持续饿死。
+ * 发送端可阻塞等待队列非空，生产端可阻塞等待队列消费到指定水位，避免固定间隔轮询；
+ * 高/低水位作用于批量数据通道：生产端写到高水位后停止，阻塞至发送端消费到低水位再补货
+ */
+public class TaskCommandQueue {
+
+    /** 批量数据通道出队顺序：指令ID从小到大 */
+    private static final Comparator<PrintCommand> ID_ORDER = Comparator.comparingLong(PrintCommand::getId);
+
+    /** 默认出队权重（按通道下标：批量数据、人工录入、补打） */
+    private static final int[] DEFAULT_WEIGHTS = {1, 4, 8};
+
+    private static final int NORMAL_LANE = CommandPriority.NORMAL.lane();
+
+    private final int capacity;
+    private final int priorityCapacity;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Queue<PrintCommand>[] lanes;
+    private final int[] weights;
+    // 本轮各通道剩余出队次数，全部用完或仅剩空通道时按权重重置
+    private final int[] credits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] notFull;
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+
+    // 各通道总长度，写操作在锁内更新，读取无需加锁
+    private volatile int size;
+    // 批量数据通道长度（水位判断用）
+    private volatile int normalSize;
+
+    // 生产端等待的补货水位，队列数量降到该值及以下时唤醒生产端，-1 表示无人等待
+    private int drainMark = -1;
+
+    public TaskCommandQueue(int capacity) {
+        this(capacity, capacity, capacity / 2);
+    }
+
+    public TaskCommandQueue(int capacity, int highWatermark, int lowWatermark) {
+        this(capacity, highWatermark, lowWatermark, Math.max(16, capacity / 8), DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * @param capacity 批量数据通道容量上限（含重试放回的指令）
+     * @param highWatermark 高水位，生产端写到该数量后停止
+     * @param lowWatermark 低水位，批量数据通道消费到该数量及以下时唤醒生产端
+     * @param priorityCapacity 补打、人工录入通道各自的容量上限
+     * @param weights 每轮各通道的出队次数（按 CommandPriority 通道下标），不足1按1计
+     */
+    @SuppressWarnings("unchecked")
+    public TaskCommandQueue(int capacity, int highWatermark, int lowWatermark, int priorityCapacity, int[] weights) {
+        this.capacity = capacity;
+        this.priorityCapacity = Math.max(1, priorityCapacity);
+        this.highWatermark = Math.max(1, Math.min(highWatermark, capacity));
+        this.lowWatermark = Math.max(0, Math.min(lowWatermark, this.highWatermark - 1));
+        int laneCount = CommandPriority.values().length;
+        this.lanes = new Queue[laneCount];
+        this.weights = new int[laneCount];
+        this.credits = new int[laneCount];
+        this.notFull = new Condition[laneCount];
+        for (int lane = 0; lane < laneCount; lane++) {
+            lanes[lane] = lane == NORMAL_LANE
+                    ? new PriorityQueue<>(Math.min(capacity, 1024), ID_ORDER)
+                    : new ArrayDeque<>(Math.min(this.priorityCapacity, 256));
+            int weight = weights != null && lane < weights.length ? weights[lane] : DEFAULT_WEIGHTS[lane];
+            this.weights[lane] = Math.max(1, weight);
+            this.credits[lane] = this.weights[lane];
+            notFull[lane] = lock.newCondition();
+        }
+    }
+
+    /**
+     * 按指令优先级入队，所在通道已满时最多等待指定时间
+     *
+     * @return 是否入队成功
+     */
+    public boolean offer(PrintCommand command, long timeout, TimeUnit unit) throws InterruptedException {
+        int lane = laneOf(command);
+        Queue<PrintCommand> queue = lanes[lane];
+        int limit = lane == NORMAL_LANE ? capacity : priorityCapacity;
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= limit) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull[lane].awaitNanos(nanos);
+            }
+            queue.offer(command);
+            size++;
+            if (lane == NORMAL_LANE) {
+                normalSize = queue.size();
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按通道权重取出下一条指令，队列为空时返回null
+     */
+    public PrintCommand poll() {
+        if (size == 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按通道权重取出下一条指令，队列为空时最多等待指定时间
+     *
+     * @return 指令，超时仍为空时返回null
+     */
+    public PrintCommand poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待批量数据通道数量降到指定水位及以下，最多等待指定时间
+     *
+     * @return 是否已降到水位
+     */
+    public boolean awaitDrained(int mark, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (normalSize > mark) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                drainMark = mark;
+                nanos = drained.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            drainMark = -1;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待队列消费到低水位及以下，最多等待指定时间
+     *
+     * @return 是否已降到低水位
+     */
+    public boolean awaitLowWatermark(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitDrained(lowWatermark, timeout, unit);
+    }
+
+    /**
+     * 距高水位的余量，生产端本轮最多写入该数量
+     */
+    public int headroom() {
+        return Math.max(0, highWatermark - normalSize);
+    }
+
+    /**
+     * 唤醒所有等待中的生产端与发送端（清空或停止时使用）
+     */
+    public void wakeUpAll() {
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+            signalAllNotFull();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 按权重轮转出队并通知等待方，调用方需持有锁
+    private PrintCommand dequeue() {
+        if (size == 0) {
+            return null;
+        }
+        int lane = nextLane();
+        if (lane < 0) {
+            // 非空通道本轮次数均已用完，开始新一轮
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+            lane = nextLane();
+        }
+        credits[lane]--;
+        PrintCommand command = lanes[lane].poll();
+        afterRemoval(lane);
+        return command;
+    }
+
+    // 本轮仍有出队次数的最高优先级非空通道，没有时返回-1
+    private int nextLane() {
+        for (int lane = lanes.length - 1; lane >= 0; lane--) {
+            if (credits[lane] > 0 && !lanes[lane].isEmpty()) {
+                return lane;
+            }
+        }
+        return -1;
+    }
+
+    // 出队/移除后的通知，调用方需持有锁
+    private void afterRemoval(int lane) {
+        size--;
+        notFull[lane].signal();
+        if (lane == NORMAL_LANE) {
+            normalSize = lanes[lane].size();
+            if (drainMark >= 0 && normalSize <= drainMark) {
+                drained.signalAll();
+            }
+        }
+    }
+
+    private void signalAllNotFull() {
+        for (Condition condition : notFull) {
+            condition.signalAll();
+        }
+    }
+
+    private static int laneOf(PrintCommand command) {
+        return CommandPriority.fromCode(command.getPriority()).lane();
+    }
+
+    /**
+     * 移除指定指令
+     */
+    public boolean remove(PrintCommand command) {
+        int lane = laneOf(command);
+        lock.lock();
+        try {
+            boolean removed = lanes[lane].remove(command);
+            if (removed) {
+                afterRemoval(lane);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回当前指令快照（不会移除）：高优先级通道在前，批量数据按ID排序
+     */
+    public List<PrintCommand> snapshot() {
+        lock.lock();
+        try {
+            List<PrintCommand> list = new ArrayList<>(size);
+            for (int lane = lanes.length - 1; lane >= 0; lane--) {
+                if (lane == NORMAL_LANE) {
+                    List<PrintCommand> normal = new ArrayList<>(lanes[lane]);
+                    normal.sort(ID_ORDER);
+                    list.addAll(normal);
+                } else {
+                    list.addAll(lanes[lane]);
+                }
+            }
+            return list;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空队列
+     */
+    public void clear() {
+        drain();
+    }
+
+    /**
+     * 取出并移除全部指令（不保证顺序），供调用方释放指令持有的资源
+     */
+    public List<PrintCommand> drain() {
+        lock.lock();
+        try {
+            List<PrintCommand> list = new ArrayList<>(size);
+            for (Queue<PrintCommand> queue : lanes) {
+                list.addAll(queue);
+                queue.clear();
+            }
+            size = 0;
+            normalSize = 0;
+            signalAllNotFull();
+            notEmpty.signalAll();
+            drained.signalAll();
+            return list;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 指定优先级通道中的指令数量
+     */
+    public int laneSize(CommandPriority priority) {
+        if (priority == CommandPriority.NORMAL) {
+            return normalSize;
+        }
+        lock.lock();
+        try {
+            return lanes[priority.lane()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPriorityCapacity() {
+        return priorityCapacity;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+/**
+ * 单任务数据项追踪
+ * 记录从入队到落库（或最终失败/丢弃）之间的全部数据项ID：队列中、发送中以及已发送待落库，
+ * 同一数据项在此期间只允许入队一次，防止重复打印
+ */
+public class TaskItemTracker {
+
+    private final LongHashSet itemIds;
+
+    public TaskItemTracker(int expectedSize) {
+        this.itemIds = new LongHashSet(expectedSize);
+    }
+
+    /**
+     * 登记数据项
+     *
+     * @return 数据项尚未被追踪时返回true，已在追踪中（重复）返回false
+     */
+    public synchronized boolean track(long itemId) {
+        return itemIds.add(itemId);
+    }
+
+    /**
+     * 数据项已落库、最终失败或被丢弃，结束追踪
+     */
+    public synchronized void release(long itemId) {
+        itemIds.remove(itemId);
+    }
+
+    public synchronized boolean isTracked(long itemId) {
+        return itemIds.contains(itemId);
+    }
+
+    public synchronized int size() {
+        return itemIds.size();
+    }
+
+    public synchronized long footprintBytes() {
+        return itemIds.footprintBytes();
+    }
+}
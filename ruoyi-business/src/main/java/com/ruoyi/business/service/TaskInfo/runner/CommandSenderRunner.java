@@ -1,14 +1,12 @@
 package com.ruoyi.business.service.TaskInfo.runner;
 
-import com.ruoyi.business.domain.SystemLog.SystemLog;
 import com.ruoyi.business.domain.TaskInfo.DeviceTaskStatus;
 import com.ruoyi.business.domain.TaskInfo.PrintCommand;
 import com.ruoyi.business.domain.TaskInfo.TaskDispatchStatus;
-import com.ruoyi.business.enums.SystemLogLevel;
-import com.ruoyi.business.enums.SystemLogType;
 import com.ruoyi.business.service.TaskInfo.TaskDispatcherService;
 import com.ruoyi.business.service.TaskInfo.DeviceDataHandlerService;
 import com.ruoyi.business.service.TaskInfo.CommandQueueService;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
 import com.ruoyi.business.enums.PrintCommandStatusEnum;
 import com.ruoyi.business.service.SystemLog.ISystemLogService;
 import com.ruoyi.business.service.DeviceInfo.IDeviceInfoService;
@@ -18,19 +16,34 @@ import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 指令发送运行器
  * 负责将指令从缓冲池取出并发送给设备
+ * 未绑定设备时为任务级发送器，逐条动态分配设备；绑定设备时为该设备的独立发送通道，仅在设备有余量时取指令
+ * 空闲时阻塞在队列入队、设备余量、暂停恢复信号上，由事件唤醒而非固定间隔轮询；
+ * 设备无余量时指令暂存在发送器中等待额度，不放回任务队列；发送失败的指令按设备退避延迟后再放回队列。
+ * 指令帧只写入通道不逐条刷新：连续写出 flushMaxFrames 帧、或即将阻塞等待（队列取空、额度用完、通道不可写）前统一刷新，
+ * 一次系统调用发出多帧；通道出站缓冲超过高水位（不可写）时暂存指令，等恢复可写再发送
  */
 public class CommandSenderRunner implements Runnable {
     
     private static final Logger log = LoggerFactory.getLogger(CommandSenderRunner.class);
+
+    // 空闲等待上限：队列无指令、设备无余量或暂停时的最长阻塞时间，超时后重新检查运行状态
+    private static final long IDLE_WAIT_MS = 500L;
+    // 未配置时连续写出多少帧后强制刷新
+    private static final int DEFAULT_FLUSH_MAX_FRAMES = 64;
     
     private final Long taskId;
     private final TaskDispatcherService dispatcher;
     private final CommandQueueService commandQueueService;
+    // 绑定的设备ID（设备发送通道模式），为null时动态分配设备
+    private final String laneDeviceId;
 
     /**
      * -- GETTER --
@@ -44,20 +57,46 @@ public class CommandSenderRunner implements Runnable {
      */
     @Getter
     private volatile boolean paused = false;
+    // 暂停/恢复/停止的状态变化通知
+    private final Object stateLock = new Object();
     private final AtomicInteger sentCount = new AtomicInteger(0);
     private final AtomicInteger failedCount = new AtomicInteger(0);
+    // 已取出但暂无设备余量的指令，等到额度后优先发送，仅发送线程访问
+    private PrintCommand parkedCommand;
+    // 连续写出该数量的帧后强制刷新
+    private final int flushMaxFrames;
+    // 已写出未刷新的设备及帧数，仅发送线程访问
+    private final Set<String> unflushedDevices = new HashSet<>(4);
+    private int unflushedFrames;
     
     public CommandSenderRunner(Long taskId, 
                               TaskDispatcherService dispatcher,
                               CommandQueueService commandQueueService) {
+        this(taskId, dispatcher, commandQueueService, null);
+    }
+
+    public CommandSenderRunner(Long taskId,
+                              TaskDispatcherService dispatcher,
+                              CommandQueueService commandQueueService,
+                              String laneDeviceId) {
+        this(taskId, dispatcher, commandQueueService, laneDeviceId, DEFAULT_FLUSH_MAX_FRAMES);
+    }
+
+    public CommandSenderRunner(Long taskId,
+                              TaskDispatcherService dispatcher,
+                              CommandQueueService commandQueueService,
+                              String laneDeviceId,
+                              Integer flushMaxFrames) {
         this.taskId = taskId;
         this.dispatcher = dispatcher;
         this.commandQueueService = commandQueueService;
+        this.laneDeviceId = laneDeviceId;
+        this.flushMaxFrames = flushMaxFrames != null && flushMaxFrames > 0 ? flushMaxFrames : DEFAULT_FLUSH_MAX_FRAMES;
     }
     
     @Override
     public void run() {
-        log.info("指令发送器启动，任务ID: {}", taskId);
+        log.info("指令发送器启动，任务ID: {}, 绑定设备ID: {}", taskId, laneDeviceId);
 
         try {
             // 等待1秒，等待设备初始化完成
@@ -69,17 +108,40 @@ public class CommandSenderRunner implements Runnable {
         while (running) {
             try {
                 if (paused) {
-                    Thread.sleep(1000); // 暂停时等待1秒
+                    // 暂停时阻塞等待恢复或停止信号
+                    flushPending();
+                    awaitResume();
                     continue;
                 }
+
+                // 设备发送通道：设备缓存已满或通道不可用时不取指令，避免取出后再放回队列
+                if (laneDeviceId != null) {
+                    if (!awaitLaneCredit()) {
+                        // 本设备长时间无余量，暂存的指令交还队列由其他设备发送
+                        unparkToQueue();
+                        continue;
+                    }
+                    if (!isLaneChannelActive()) {
+                        unparkToQueue();
+                        awaitStateChange();
+                        continue;
+                    }
+                }
                 
-                // 从指令队列获取下一个指令
-                PrintCommand command = commandQueueService.getNextCommand(taskId);
+                // 暂存的指令优先发送，否则从指令队列获取下一个指令，队列为空时阻塞等待入队唤醒
+                PrintCommand command = parkedCommand;
                 if (command != null) {
-                    sendCommand(command);
+                    parkedCommand = null;
                 } else {
-                    // 没有指令时，短暂等待后继续检查
-                    Thread.sleep(100);
+                    command = nextCommand();
+                }
+                if (command != null && !sendCommand(command)) {
+                    // 设备额度已满或通道不可写，指令已暂存：等待前先把已写出的帧刷新到设备
+                    flushPending();
+                    if (laneDeviceId == null) {
+                        // 无可分配设备：等待任一设备出现余量后再发送
+                        dispatcher.awaitAnyDeviceCredit(taskId, IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                    }
                 }
                 
             } catch (InterruptedException e) {
@@ -88,6 +150,7 @@ public class CommandSenderRunner implements Runnable {
                 break;
             } catch (Exception e) {
                 log.error("指令发送异常，任务ID: {}", taskId, e);
+                flushPending();
                 dispatcher.reportError("SENDER", "指令发送异常: " + e.getMessage());
                 try {
                     Thread.sleep(5000); // 异常后等待5秒再重试
@@ -98,101 +161,208 @@ public class CommandSenderRunner implements Runnable {
             }
         }
         
-        log.info("指令发送器停止，任务ID: {}, 总发送数量: {}, 失败数量: {}", 
-                taskId, sentCount.get(), failedCount.get());
+        flushPending();
+        unparkToQueue();
+        log.info("指令发送器停止，任务ID: {}, 绑定设备ID: {}, 总发送数量: {}, 失败数量: {}", 
+                taskId, laneDeviceId, sentCount.get(), failedCount.get());
     }
     
+    /**
+     * 等待绑定设备出现余量；有未刷新的帧时先不等待地检查，需要阻塞前刷新
+     */
+    private boolean awaitLaneCredit() throws InterruptedException {
+        if (unflushedFrames > 0) {
+            if (dispatcher.awaitDeviceCredit(laneDeviceId, 0L, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            flushPending();
+        }
+        return dispatcher.awaitDeviceCredit(laneDeviceId, IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 取下一条指令；有未刷新的帧时先不等待地取，队列已空需要阻塞前刷新
+     */
+    private PrintCommand nextCommand() throws InterruptedException {
+        if (unflushedFrames > 0) {
+            PrintCommand command = commandQueueService.getNextCommand(taskId);
+            if (command != null) {
+                return command;
+            }
+            flushPending();
+        }
+        return commandQueueService.getNextCommand(taskId, IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录已写出未刷新的帧，达到上限时刷新
+     */
+    private void markUnflushed(String deviceId) {
+        unflushedDevices.add(deviceId);
+        if (++unflushedFrames >= flushMaxFrames) {
+            flushPending();
+        }
+    }
+
+    /**
+     * 刷新所有已写出未刷新的设备通道
+     */
+    private void flushPending() {
+        if (unflushedFrames == 0) {
+            return;
+        }
+        for (String deviceId : unflushedDevices) {
+            dispatcher.flushDevice(deviceId);
+        }
+        unflushedDevices.clear();
+        unflushedFrames = 0;
+    }
+
+    /**
+     * 暂存的指令放回任务队列
+     */
+    private void unparkToQueue() {
+        PrintCommand command = parkedCommand;
+        if (command != null) {
+            parkedCommand = null;
+            commandQueueService.requeueCommand(command);
+        }
+    }
+
     /**
      * 发送指令
+     *
+     * @return 设备无余量或通道不可写、指令已暂存时返回false，其余情况（含发送失败）返回true
      */
-    private void sendCommand(PrintCommand command) {
-        // 动态分配设备
-        String deviceId = dispatcher.assignDeviceForCommand(command);
+    private boolean sendCommand(PrintCommand command) {
+        // 绑定设备的发送通道直接使用该设备，否则动态分配设备
+        String deviceId = laneDeviceId != null ? laneDeviceId : dispatcher.assignDeviceForCommand(command);
         if (deviceId == null) {
-//            log.debug("无可用设备，重新放回队列，指令ID: {}", command.getId());
-            // 无可用设备，重新放回队列
-            commandQueueService.addCommandToQueue(command);
-            return;
+            // 无可用设备，暂存等待额度
+            parkedCommand = command;
+            return false;
         }
         
         // 设置分配的设备ID
         command.setDeviceId(deviceId);
         
+        // 占用设备在途额度（原子检查并占用），未能发出时在 finally 中归还
+        if (!dispatcher.tryAcquireDeviceCredit(deviceId)) {
+            // 设备缓存已满，暂存等待额度
+            parkedCommand = command;
+            return false;
+        }
+
+        boolean sent = false;
         try {
-            // 检查设备是否可以接收指令
-            if (!dispatcher.canDeviceReceiveCommand(deviceId)) {
-//                log.debug("设备缓存已满，重新放回队列，设备ID: {}", deviceId);
-                // 设备缓存已满，重新放回队列
-                commandQueueService.addCommandToQueue(command);
-                return;
-            }
-            
             // 获取设备通道
                 Object channelObj = dispatcher.getDeviceChannel(deviceId);
             if (!(channelObj instanceof Channel channel)) {
                 log.warn("设备通道不可用，设备ID: {}", deviceId);
                 handleSendFailure(command, "设备通道不可用");
-                return;
+                return true;
             }
 
             if (!channel.isActive()) {
                 log.warn("设备通道未激活，设备ID: {}", deviceId);
                 handleSendFailure(command, "设备通道未激活");
-                return;
+                return true;
+            }
+
+            if (!channel.isWritable()) {
+                // 出站缓冲超过高水位：暂存等待通道恢复可写，不继续堆积
+                parkedCommand = command;
+                return false;
             }
 
-            // 发送指令
-            String commandStr = command.getCommand();
-            if (commandStr == null || commandStr.trim().isEmpty()) {
+            // 发送指令（预编码帧直接写出，不渲染指令文本）
+            if (!command.hasContent()) {
                 log.warn("指令内容为空，设备ID: {}", deviceId);
                 handleSendFailure(command, "指令内容为空");
-                return;
+                return true;
             }
 
             // 使用统一的发送方法（STX/ETX协议格式）
-            boolean sendSuccess = dispatcher.sendCommandToDevice(deviceId, commandStr);
+            boolean sendSuccess = dispatcher.sendCommandToDevice(deviceId, command);
             if (!sendSuccess) {
-                log.warn("指令发送失败，设备ID: {}, 指令: {}", deviceId, commandStr);
+                log.warn("指令发送失败，设备ID: {}, 指令: {}", deviceId, command.getCommand());
                 handleSendFailure(command, "指令发送失败");
-                return;
+                return true;
             }
+            sent = true;
+            markUnflushed(deviceId);
+            commandQueueService.recordSendSuccess(deviceId);
+            // 已写出帧的保留副本，指令自身不再需要预编码帧
+            command.releaseFrame();
             
             // 更新指令状态
             command.setStatus(PrintCommandStatusEnum.SENT.getCode());
             command.setSentTime(System.currentTimeMillis());
             
-            // 记录轻量的已发送ID，避免回填整个指令对象导致性能下降
-            try {
-                String dataPoolItemData =command.getData();
-                Long dataPoolItemId = Long.valueOf(command.getId());
-                Long taskId = command.getTaskId();
-                Long poolId = dispatcher.getPoolId(taskId);
-                commandQueueService.addSentRecord(taskId, dataPoolItemId,dataPoolItemData,deviceId,poolId);
-            } catch (NumberFormatException ignore) {
+            // 记录已发送的数据项ID与设备，数据内容落库时取自数据项
+            Long dataPoolItemId = command.getId();
+            if (dataPoolItemId != null) {
+                commandQueueService.addSentRecord(command.getTaskId(), dataPoolItemId, deviceId);
             }
             
             // 报告指令已发送
-            dispatcher.reportCommandSent(deviceId);
-
+            dispatcher.reportCommandSent(deviceId, command.getTaskId(), dataPoolItemId);
 
-            sentCount.incrementAndGet();
-
-            log.debug("指令发送成功，设备ID: {}, 指令: {}", deviceId, commandStr);
+            log.debug("指令发送成功，设备ID: {}, 数据项ID: {}", deviceId, command.getId());
             
         } catch (Exception e) {
-            log.error("发送指令异常，设备ID: {}, 指令: {}", deviceId, command.getCommand(), e);
-            //记录打印日志
-            SystemLog systemLog = new SystemLog();
-            systemLog.setLogType(SystemLogType.PRINT.getCode());
-            systemLog.setLogLevel(SystemLogLevel.ERROR.getCode());
-            systemLog.setTaskId(taskId);
-            systemLog.setDeviceId(Long.valueOf(deviceId));
-            systemLog.setContent("发送指令异常:"+e.getMessage());
-            handleSendFailure(command, "发送异常: " + e.getMessage());
+            if (sent) {
+                // 帧已写出，不再重试，否则同一数据项会被重复打印并同时计为发送成功和失败
+                log.error("指令已发送，记录发送结果异常，设备ID: {}, 数据项ID: {}", deviceId, command.getId(), e);
+            } else {
+                log.error("发送指令异常，设备ID: {}, 指令: {}", deviceId, command.getCommand(), e);
+                handleSendFailure(command, "发送异常: " + e.getMessage());
+            }
+        } finally {
+            if (sent) {
+                recordProgress(command, true);
+                sentCount.incrementAndGet();
+            } else {
+                dispatcher.releaseDeviceCredit(deviceId);
+            }
         }
+        return true;
     }
 
     
+    /**
+     * 绑定设备的通道是否已激活
+     */
+    private boolean isLaneChannelActive() {
+        return dispatcher.getDeviceChannel(laneDeviceId) instanceof Channel channel && channel.isActive();
+    }
+
+    /**
+     * 等待暂停/恢复/停止状态变化，最长等待 IDLE_WAIT_MS
+     */
+    private void awaitStateChange() throws InterruptedException {
+        synchronized (stateLock) {
+            stateLock.wait(IDLE_WAIT_MS);
+        }
+    }
+
+    /**
+     * 暂停期间阻塞，直到恢复或停止，最长等待 IDLE_WAIT_MS
+     */
+    private void awaitResume() throws InterruptedException {
+        synchronized (stateLock) {
+            if (running && paused) {
+                stateLock.wait(IDLE_WAIT_MS);
+            }
+        }
+    }
+
+    private void signalStateChange() {
+        synchronized (stateLock) {
+            stateLock.notifyAll();
+        }
+    }
+
     /**
      * 处理发送失败
      */
@@ -201,23 +371,45 @@ public class CommandSenderRunner implements Runnable {
         command.setRetryCount(command.getRetryCount() + 1);
         
         if (command.getRetryCount() < command.getMaxRetryCount()) {
-            // 重试
+            // 按设备退避延迟后放回队列，避免设备异常时同一指令被反复取出发送
             command.setStatus(PrintCommandStatusEnum.RETRYING.getCode());
-            commandQueueService.addCommandToQueue(command);
-            log.info("指令重试，设备ID: {}, 重试次数: {}/{}", 
-                    command.getDeviceId(), command.getRetryCount(), command.getMaxRetryCount());
+            long delayMs = commandQueueService.scheduleRetry(command);
+            log.info("指令重试，设备ID: {}, 重试次数: {}/{}, 延迟: {}ms", 
+                    command.getDeviceId(), command.getRetryCount(), command.getMaxRetryCount(), delayMs);
         } else {
             // 重试次数用完，标记为失败
             command.setStatus(PrintCommandStatusEnum.FAILED.getCode());
             command.setCompletedTime(System.currentTimeMillis());
+            command.releaseFrame();
+            commandQueueService.releaseCommand(command);
             failedCount.incrementAndGet();
+            recordProgress(command, false);
             
             // 报告错误
+            dispatcher.reportCommandFailed(command.getDeviceId(), command.getTaskId(), command.getId());
             dispatcher.reportError(command.getDeviceId(), "指令发送失败: " + errorMessage);
             log.error("指令发送最终失败，设备ID: {}, 错误: {}", command.getDeviceId(), errorMessage);
         }
     }
     
+    /**
+     * 记录任务进度：发送成功或最终失败，补打等不对应数据项的指令未被认领，不计入
+     */
+    private void recordProgress(PrintCommand command, boolean success) {
+        if (!command.hasDataItem()) {
+            return;
+        }
+        TaskProgressCounter progress = dispatcher.getTaskProgress(taskId);
+        if (progress == null) {
+            return;
+        }
+        if (success) {
+            progress.recordSent();
+        } else {
+            progress.recordFailed();
+        }
+    }
+
     /**
      * 统一的下发指令方法（基于设备通道）
      * 使用统一的发送方法，支持STX/ETX协议格式和回退机制。
@@ -239,6 +431,7 @@ public class CommandSenderRunner implements Runnable {
      */
     public void stop() {
         this.running = false;
+        signalStateChange();
         log.info("指令发送器停止请求，任务ID: {}", taskId);
     }
     
@@ -255,6 +448,7 @@ public class CommandSenderRunner implements Runnable {
      */
     public void resume() {
         this.paused = false;
+        signalStateChange();
         log.info("指令发送器恢复，任务ID: {}", taskId);
     }
     
@@ -272,4 +466,11 @@ public class CommandSenderRunner implements Runnable {
         return failedCount.get();
     }
 
+    /**
+     * 获取绑定的设备ID，任务级发送器返回null
+     */
+    public String getLaneDeviceId() {
+        return laneDeviceId;
+    }
+
 }
@@ -16,22 +16,37 @@ import com.ruoyi.business.service.SystemLog.ISystemLogService;
 import com.ruoyi.business.service.TaskInfo.ITaskDeviceLinkService;
 import com.ruoyi.business.service.TaskInfo.CommandQueueService;
 import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+import com.ruoyi.business.service.TaskInfo.template.CompiledCommandTemplate;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.apache.commons.lang3.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 数据生成池运行器
  * 负责从数据源高效地准备打印指令
+ * 队列写到高水位后阻塞至发送端消费到低水位，无数据或暂停时阻塞至状态变化，而非固定间隔轮询；
+ * 数据池、设备关联与模板缓存为任务上下文快照，每轮只查询待打印数据；
+ * 下一批数据在预取线程中提前认领并编码，队列降到低水位时直接换入；
+ * 人工录入、质检回收补码的数据项按ID插队认领，以对应优先级写入队列，不等待批次轮转
  */
 public class DataPoolProducerRunner implements Runnable {
     
     private static final Logger log = LoggerFactory.getLogger(DataPoolProducerRunner.class);
+
+    // 空闲等待上限：无待处理数据、队列水位较高或暂停时的最长阻塞时间
+    private static final long IDLE_WAIT_MS = 500L;
     
     private final Long taskId;
     private final Long poolId;
@@ -43,16 +58,36 @@ public class DataPoolProducerRunner implements Runnable {
     private final IDeviceFileConfigService iDeviceFileConfigService;
     private final TaskDispatchProperties taskDispatchProperties;
     private final ISystemLogService systemLogService;
+    // 任务进度计数器（认领/归还/计划完成）
+    private final TaskProgressCounter progress;
     
+    // 任务上下文快照（数据池、设备关联、模板与预编译模板），为null时下一轮重新加载
+    private volatile ProducerTaskContext context;
+
+    // 双缓冲预取：当前批次入队的同时后台认领下一批
+    private final PendingItemPrefetcher prefetcher;
+    // 正在入队的批次，仅生产线程访问
+    private PrefetchBatch currentBatch;
+    // 上次入队后的队列数量与时间，用于估算发送端消耗速率
+    private int lastQueueSize;
+    private long lastQueueSampleNanos;
+
     private volatile boolean running = true;
     private volatile boolean paused = false;
+    // 暂停/恢复/停止的状态变化通知
+    private final Object stateLock = new Object();
+    // 插队请求（人工录入、质检回收补码），由生产线程按ID认领并入队
+    private final ConcurrentLinkedQueue<ExpediteRequest> expediteRequests = new ConcurrentLinkedQueue<>();
     private final AtomicInteger producedCount = new AtomicInteger(0);
     private final AtomicInteger processedCount = new AtomicInteger(0);
+    // 固定数据池生成数据项的序号，保证合成ID在本运行内不重复
+    private final AtomicLong fixedDataSequence = new AtomicLong(0);
     
     // 计划数管理器 - 线程安全的计划数控制
     private final AtomicInteger planTargetCount = new AtomicInteger(0); // 计划目标总数
     private final AtomicInteger planGeneratedCount = new AtomicInteger(0); // 已生成数量
     private final AtomicInteger planRemainingCount = new AtomicInteger(0); // 剩余可生成数量
+    private final AtomicInteger planReservedCount = new AtomicInteger(0); // 已认领未入队数量
     private final AtomicBoolean planInitialized = new AtomicBoolean(false); // 计划是否已初始化
     // 每个任务的计划数快照，避免被全局配置覆盖
     private final int planPrintCountSnapshot; // 启动时的计划打印总数
@@ -68,7 +103,9 @@ public class DataPoolProducerRunner implements Runnable {
                                   TaskDispatchProperties taskDispatchProperties,
                                   int planPrintCountSnapshot,
                                   int originalCountSnapshot,
-                                  ISystemLogService systemLogService ) {
+                                  ISystemLogService systemLogService,
+                                  Executor prefetchExecutor,
+                                  TaskProgressCounter progress) {
         this.taskId = taskId;
         this.poolId = poolId;
         this.commandQueueService = commandQueueService;
@@ -81,6 +118,8 @@ public class DataPoolProducerRunner implements Runnable {
         this.planPrintCountSnapshot = planPrintCountSnapshot;
         this.originalCountSnapshot = originalCountSnapshot;
         this.systemLogService = systemLogService;
+        this.prefetcher = new PendingItemPrefetcher(prefetchExecutor, this::loadBatch);
+        this.progress = progress;
     }
     
     @Override
@@ -90,164 +129,223 @@ public class DataPoolProducerRunner implements Runnable {
         // 初始化计划数管理器
         initializePlanManager();
         
-        while (running) {
-            try {
-                if (paused) {
-                    Thread.sleep(500); // 暂停时等待500ms
-                    continue;
-                }
-                
-                // 检查是否已达到计划目标
-                if (isPlanTargetReached()) {
-                    log.info("计划打印数量已满，停止生成，任务ID: {}, 数据池ID: {}, 已生成: {}, 计划目标: {}", 
-                            taskId, poolId, planGeneratedCount.get(), planTargetCount.get());
-                    logPlanCompletion();
-                    break;
-                }
-                
-                    fetchAndProcessData();
-                Thread.sleep(500); // 避免CPU占用过高
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.info("数据生成池被中断，任务ID: {}", taskId);
-                throw new RuntimeException(e.getMessage());
-            } catch (Exception e) {
-                log.error("数据生产异常，任务ID: {}", taskId, e);
-                // 这里可以通过事件发布错误，而不是直接调用dispatcher
+        try {
+            while (running) {
                 try {
-                    Thread.sleep(5000); // 异常后等待5秒再重试
-                } catch (InterruptedException ie) {
+                    if (paused) {
+                        // 暂停时阻塞等待恢复或停止信号
+                        awaitResume();
+                        continue;
+                    }
+                    
+                    // 检查是否已达到计划目标
+                    if (isPlanTargetReached()) {
+                        log.info("计划打印数量已满，停止生成，任务ID: {}, 数据池ID: {}, 已生成: {}, 计划目标: {}", 
+                                taskId, poolId, planGeneratedCount.get(), planTargetCount.get());
+                        logPlanCompletion();
+                        progress.markPlanCompleted();
+                        break;
+                    }
+
+                    // 插队数据优先于批次入队
+                    enqueueExpedited();
+                    
+                    if (currentBatch == null) {
+                        // 换入预取批次，没有进行中的预取时立即发起
+                        prefetcher.prefetch(nextPrefetchSize());
+                        if (!prefetcher.hasPending()) {
+                            // 已达到计划额度：等待状态变化
+                            awaitStateChange();
+                            continue;
+                        }
+                        currentBatch = prefetcher.take(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                        if (currentBatch == null) {
+                            // 认领仍在进行，回到循环检查暂停/停止
+                            continue;
+                        }
+                        if (currentBatch.isEmpty()) {
+                            // 没有待处理数据：等待新数据到达，暂停/停止时立即唤醒
+                            currentBatch = null;
+                            awaitStateChange();
+                            continue;
+                        }
+                    }
+                    
+                    boolean reachedHighWatermark = enqueueBatch();
+                    if (currentBatch.isEmpty()) {
+                        currentBatch = null;
+                    }
+                    // 当前批次已写入队列，后台立即认领并编码下一批
+                    prefetcher.prefetch(nextPrefetchSize());
+                    
+                    if (reachedHighWatermark) {
+                        // 队列已到高水位：阻塞至发送端消费到低水位，随即换入已预取的批次
+                        commandQueueService.awaitLowWatermark(taskId, IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+                    }
+                    
+                } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
+                    log.info("数据生成池被中断，任务ID: {}", taskId);
                     throw new RuntimeException(e.getMessage());
+                } catch (Exception e) {
+                    log.error("数据生产异常，任务ID: {}", taskId, e);
+                    // 这里可以通过事件发布错误，而不是直接调用dispatcher
+                    try {
+                        Thread.sleep(5000); // 异常后等待5秒再重试
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e.getMessage());
+                    }
                 }
             }
+        } finally {
+            // 归还已认领但未入队的数据
+            discardBatch(currentBatch);
+            currentBatch = null;
+            prefetcher.cancel(this::discardBatch);
         }
         log.info("数据生成池停止，任务ID: {}, 总生产数量: {}", taskId, producedCount.get());
     }
     
     /**
-     * 获取并处理数据
+     * 将当前批次写入指令队列，直到批次写完、队列到达高水位、暂停或达到计划目标
+     *
+     * @return 是否因队列到达高水位而停止
      */
-    private void fetchAndProcessData() {
-        try {
-            // 检查队列大小，避免队列过满
-            int queueSize = commandQueueService.getQueueSize(taskId);
-            int maxQueueSize = taskDispatchProperties.getCommandQueueSize();
+    private boolean enqueueBatch() {
+        sampleDrainRate();
+        refreshBatchContext();
 
-            if (queueSize > maxQueueSize * 0.5) { // 队列超过50%时暂停生产
-                log.debug("指令队列已满，暂停生产，任务ID: {}, 队列大小: {}, 最大容量: {}", taskId, queueSize, maxQueueSize);
-                return;
+        // 本轮写入上限只在开始时取一次：发送端同时在消费，按开始时的余量写入不会越过高水位
+        int headroom = commandQueueService.getQueueHeadroom(taskId);
+        int generatedThisBatch = 0;
+        while (!currentBatch.isEmpty()) {
+            if (!running || paused) {
+                break;
+            }
+            
+            // 检查是否已达到计划目标
+            if (isPlanTargetReached()) {
+                log.debug("处理过程中达到计划目标，停止处理，任务ID: {}", taskId);
+                break;
             }
             
-            // 计算本次可查询的数据量（考虑计划数限制）
-            int queryBatchSize = calculateQueryBatchSize();
-            if (queryBatchSize <= 0) {
-                log.debug("已达到计划目标或无可查询数据，任务ID: {}", taskId);
+            // 已写到高水位，剩余部分留待队列消费到低水位后的下一轮
+            if (generatedThisBatch >= headroom) {
+                break;
+            }
+            
+            PrintCommand command = currentBatch.poll();
+            planReservedCount.decrementAndGet();
+            if (command == null) {
+                // 构建失败的数据不会发送，计入发送结束
+                progress.recordFailed();
+            } else {
+                commandQueueService.addCommandToQueue(command);
+                producedCount.incrementAndGet();
+                planGeneratedCount.incrementAndGet();
+                planRemainingCount.decrementAndGet();
+                generatedThisBatch++;
+            }
+            
+            processedCount.incrementAndGet();
+        }
+
+        lastQueueSize = commandQueueService.getQueueSize(taskId);
+        lastQueueSampleNanos = System.nanoTime();
+        
+        //记录打印日志
+        if (generatedThisBatch > 0) {
+            log.info("本轮生成指令数量: {}, 累计生成: {}, 剩余计划: {}, 批次剩余: {}, 任务ID: {}", 
+                    generatedThisBatch, planGeneratedCount.get(), planRemainingCount.get(), currentBatch.remaining(), taskId);
+        }
+        return generatedThisBatch >= headroom;
+    }
+    
+    /**
+     * 认领插队请求中的数据项并按请求的优先级入队（仅生产线程调用）
+     * 已被批次认领或不属于本数据池的数据项跳过，已达到计划数时保留为待打印
+     */
+    private void enqueueExpedited() {
+        ExpediteRequest request;
+        while ((request = expediteRequests.poll()) != null) {
+            if (isPlanTargetReached()) {
+                expediteRequests.clear();
                 return;
             }
+            ProducerTaskContext taskContext = currentContext();
+            if (taskContext == null || taskContext.isFixedData()) {
+                continue;
+            }
+            List<DataPoolItem> items = dataPoolItemService.claimPendingItemsByIds(poolId, request.itemIds);
+            if (items.isEmpty()) {
+                continue;
+            }
+            progress.recordExpedited(items.size());
+            for (DataPoolItem item : items) {
+                PrintCommand command = buildPrintCommand(item, taskContext.getCompiledTemplate());
+                if (command == null) {
+                    progress.recordFailed();
+                } else {
+                    command.setPriority(request.priority.getCode());
+                    commandQueueService.addCommandToQueue(command);
+                    producedCount.incrementAndGet();
+                    planGeneratedCount.incrementAndGet();
+                    planRemainingCount.decrementAndGet();
+                }
+                processedCount.incrementAndGet();
+            }
+            log.info("插队入队 {} 条指令，优先级: {}, 任务ID: {}", items.size(), request.priority.getInfo(), taskId);
+        }
+    }
 
-            //查询数据池
-            DataPool dataPool = dataPoolService.selectDataPoolById(poolId);
+    /**
+     * 认领并编码一批待处理数据（在预取线程中执行）
+     *
+     * @param limit 本批最大数量
+     */
+    private PrefetchBatch loadBatch(int limit) {
+        long start = System.nanoTime();
+        try {
+            // 任务上下文快照：数据池、设备关联、模板均来自缓存，元数据变更时才重新加载
+            ProducerTaskContext taskContext = running ? currentContext() : null;
+            if (taskContext == null) {
+                return PrefetchBatch.empty(null, System.nanoTime() - start);
+            }
+            DataPool dataPool = taskContext.getDataPool();
 
             List<DataPoolItem> items = null;
             //判断数据池是否为固定数据
-            if(dataPool.getSourceType().equals(SourceType.FIXED_DATA.getCode())){
+            if(taskContext.isFixedData()){
                 if(ObjectUtils.isEmpty(dataPool.getFixedData())){
                     throw new RuntimeException("数据池'"+dataPool.getPoolName()+"'固定数据不能为空!");
                 }
-                //生成queryBatchSize个固定数据
+                //生成limit个固定数据：ID在本运行内唯一递增，避免与追踪中的数据项重复而被丢弃
                 items = new ArrayList<>();
-                for (int i = 0; i < queryBatchSize; i++) {
+                for (int i = 0; i < limit; i++) {
                     DataPoolItem item = new DataPoolItem();
-                    item.setId((long) i);
+                    item.setId(DataPoolItem.FIXED_DATA_ID_BASE + fixedDataSequence.getAndIncrement());
                     item.setItemData(dataPool.getFixedData());
                     item.setStatus(ItemStatus.PENDING.getCode());
                     items.add(item);
                 }
             }else {
-                // 批量查询待打印数据
-                items =  dataPoolItemService.selectPendingItems(poolId, queryBatchSize);
+                // 认领待打印数据：查询与更新为打印中在同一条语句中完成
+                items = dataPoolItemService.claimPendingItems(poolId, limit);
             }
 
+            // 认领不足请求数量时数据池已取空，供任务完成判断使用
+            progress.recordClaimed(items == null ? 0 : items.size(), limit);
             if (items == null || items.isEmpty()) {
                 log.debug("没有待处理数据，任务ID: {}", taskId);
-                return;
-            }
-
-            // 根据计划数限制实际处理的数据量
-            List<DataPoolItem> itemsToProcess = limitItemsByPlan(items);
-            if (itemsToProcess.isEmpty()) {
-                log.debug("受计划数限制，无数据可处理，任务ID: {}", taskId);
-                return;
-            }
-
-            //不等于固定数据
-            if (!dataPool.getSourceType().equals(SourceType.FIXED_DATA.getCode())) {
-                //更新成打印中
-                dataPoolItemService.updateItemsStatus(itemsToProcess, ItemStatus.PRINTING.getCode());
+                return PrefetchBatch.empty(taskContext, System.nanoTime() - start);
             }
+            // 已认领的数据计入计划额度，避免下一批超出计划数
+            planReservedCount.addAndGet(items.size());
 
-            log.debug("获取到 {} 条待处理数据，实际处理 {} 条，任务ID: {}", items.size(), itemsToProcess.size(), taskId);
-            
-            // 获取任务关联的设备信息
-            TaskDeviceLink query = new TaskDeviceLink();
-            query.setTaskId(taskId);
-            List<TaskDeviceLink> deviceLinks = taskDeviceLinkService.list(query);
-            
-            if (deviceLinks == null || deviceLinks.isEmpty()) {
-                log.warn("任务没有关联设备，任务ID: {}", taskId);
-                return;
-            }
-
-            //查询数据池模板
-            DataPoolTemplate template = iDataPoolTemplateService.selectDataPoolTemplateById(deviceLinks.get(0).getPoolTemplateId());
-            if(ObjectUtils.isEmpty(template)){
-                logTemplateError("当前数据池模版为空!");
-                throw new RuntimeException("当前数据池模版为空!");
-            }
-            
-            //查询设备模版
-            DeviceFileConfig fileConfig = iDeviceFileConfigService.selectDeviceFileConfigById(deviceLinks.get(0).getDeviceFileConfigId());
-            if(ObjectUtils.isEmpty(fileConfig)) {
-                logTemplateError("当前设备模版为空!");
-                throw new RuntimeException("当前设备模版为空!");
-            }
-
-            // 处理每条数据 - 每条数据只生成一个打印指令
-            int generatedThisBatch = 0;
-            for (DataPoolItem item : itemsToProcess) {
-                if (!running || paused) {
-                    break;
-                }
-                
-                // 检查是否已达到计划目标
-                if (isPlanTargetReached()) {
-                    log.debug("处理过程中达到计划目标，停止处理，任务ID: {}", taskId);
-                    break;
-                }
-                
-                // 为数据创建打印指令（不指定设备，由调度器分配）
-                PrintCommand command = buildPrintCommand(item, template, fileConfig);
-                if (command != null) {
-                    commandQueueService.addCommandToQueue(command);
-                    producedCount.incrementAndGet();
-                    planGeneratedCount.incrementAndGet();
-                    planRemainingCount.decrementAndGet();
-                    generatedThisBatch++;
-                    
-                    // 防止队列逼近容量上限
-                    if (commandQueueService.getQueueSize(taskId) >= maxQueueSize) {
-                        break;
-                    }
-                }
-                
-                processedCount.incrementAndGet();
-            }
-            
-            //记录打印日志
-            log.info("本轮生成指令数量: {}, 累计生成: {}, 剩余计划: {}, 任务ID: {}", 
-                    generatedThisBatch, planGeneratedCount.get(), planRemainingCount.get(), taskId);
+            PrintCommand[] commands = buildPrintCommands(items, taskContext.getCompiledTemplate());
+            log.debug("预取 {} 条待处理数据，任务ID: {}", items.size(), taskId);
+            return new PrefetchBatch(taskContext, items, commands, System.nanoTime() - start);
             
         } catch (Exception e) {
             log.error("处理数据异常，任务ID: {}", taskId, e);
@@ -256,6 +354,128 @@ public class DataPoolProducerRunner implements Runnable {
         }
     }
     
+    /**
+     * 下一批预取数量：按队列消耗速率自适应，并受批处理大小、队列余量与计划额度限制
+     */
+    private int nextPrefetchSize() {
+        int refillSize = Math.max(1, commandQueueService.getRefillSize(taskId));
+        int maxBatchSize = Math.min(taskDispatchProperties.getBatchSize(), refillSize);
+        return calculateQueryBatchSize(prefetcher.nextBatchSize(maxBatchSize));
+    }
+    
+    /**
+     * 以两次入队之间队列数量的减少估算发送端消耗速率
+     */
+    private void sampleDrainRate() {
+        int queueSize = commandQueueService.getQueueSize(taskId);
+        long now = System.nanoTime();
+        if (lastQueueSampleNanos != 0) {
+            prefetcher.recordDrain(lastQueueSize - queueSize, now - lastQueueSampleNanos, queueSize == 0);
+        }
+    }
+    
+    /**
+     * 任务元数据变更后，批次中尚未入队的指令按新的上下文重新编码
+     */
+    private void refreshBatchContext() {
+        ProducerTaskContext taskContext = currentContext();
+        if (taskContext == null || taskContext == currentBatch.getContext()) {
+            return;
+        }
+        List<DataPoolItem> items = new ArrayList<>(currentBatch.remainingItems());
+        currentBatch.releaseRemaining();
+        currentBatch = new PrefetchBatch(taskContext, items,
+                buildPrintCommands(items, taskContext.getCompiledTemplate()), 0L);
+        log.info("任务上下文已变更，批次剩余 {} 条指令重新编码，任务ID: {}", items.size(), taskId);
+    }
+    
+    /**
+     * 归还已认领但未入队的数据：释放协议帧、退回计划额度，并将数据项恢复为待打印
+     */
+    private void discardBatch(PrefetchBatch batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        int remaining = batch.remaining();
+        List<DataPoolItem> items = new ArrayList<>(batch.remainingItems());
+        batch.releaseRemaining();
+        planReservedCount.addAndGet(-remaining);
+        progress.recordReturned(remaining);
+        if (batch.getContext() != null && !batch.getContext().isFixedData()) {
+            try {
+                dataPoolItemService.updateItemsStatus(items, ItemStatus.PENDING.getCode());
+                log.info("已归还 {} 条预取数据，任务ID: {}", items.size(), taskId);
+            } catch (Exception e) {
+                log.error("归还预取数据失败，任务ID: {}", taskId, e);
+            }
+        }
+    }
+    
+    /**
+     * 获取任务上下文快照，未加载或已作废时从数据库重新加载
+     *
+     * @return 任务上下文，任务没有关联设备时返回null
+     */
+    private ProducerTaskContext currentContext() {
+        ProducerTaskContext taskContext = context;
+        if (taskContext == null) {
+            taskContext = loadContext();
+            context = taskContext;
+        }
+        return taskContext;
+    }
+
+    /**
+     * 从数据库加载任务上下文并预编译指令模板
+     */
+    private ProducerTaskContext loadContext() {
+        //查询数据池
+        DataPool dataPool = dataPoolService.selectDataPoolById(poolId);
+        if (ObjectUtils.isEmpty(dataPool)) {
+            throw new RuntimeException("数据池不存在，数据池ID: " + poolId);
+        }
+
+        // 获取任务关联的设备信息
+        TaskDeviceLink query = new TaskDeviceLink();
+        query.setTaskId(taskId);
+        List<TaskDeviceLink> deviceLinks = taskDeviceLinkService.list(query);
+        if (deviceLinks == null || deviceLinks.isEmpty()) {
+            log.warn("任务没有关联设备，任务ID: {}", taskId);
+            return null;
+        }
+        TaskDeviceLink deviceLink = deviceLinks.get(0);
+
+        //查询数据池模板
+        DataPoolTemplate template = iDataPoolTemplateService.selectDataPoolTemplateById(deviceLink.getPoolTemplateId());
+        if(ObjectUtils.isEmpty(template)){
+            logTemplateError("当前数据池模版为空!");
+            throw new RuntimeException("当前数据池模版为空!");
+        }
+
+        //查询设备模版
+        DeviceFileConfig fileConfig = iDeviceFileConfigService.selectDeviceFileConfigById(deviceLink.getDeviceFileConfigId());
+        if(ObjectUtils.isEmpty(fileConfig)) {
+            logTemplateError("当前设备模版为空!");
+            throw new RuntimeException("当前设备模版为空!");
+        }
+
+        // 使用设备的模版信息都相同，编译一次供整个任务复用
+        CompiledCommandTemplate commandTemplate = CompiledCommandTemplate.compile(template, fileConfig);
+        log.info("任务上下文已加载，打印指令模板已编译，任务ID: {}, 变量数量: {}", taskId, commandTemplate.getVariableCount());
+        return new ProducerTaskContext(taskId, dataPool, deviceLink, template, fileConfig, commandTemplate);
+    }
+
+    /**
+     * 元数据变更通知：涉及本任务时作废上下文快照，下一轮生产重新加载
+     */
+    public void onMetadataChanged(TaskMetadataChangedEvent event) {
+        ProducerTaskContext taskContext = context;
+        if (taskContext != null && taskContext.isAffectedBy(event)) {
+            context = null;
+            log.info("任务元数据已变更，上下文快照作废，任务ID: {}", taskId);
+        }
+    }
+
     /**
      * 初始化计划数管理器
      */
@@ -299,11 +519,9 @@ public class DataPoolProducerRunner implements Runnable {
     }
     
     /**
-     * 计算本次查询的批次大小
+     * 计算本次查询的批次大小（扣除已认领未入队的数量）
      */
-    private int calculateQueryBatchSize() {
-        int baseBatchSize = taskDispatchProperties.getBatchSize();
-        
+    private int calculateQueryBatchSize(int baseBatchSize) {
         if (!planInitialized.get()) {
             return baseBatchSize;
         }
@@ -313,30 +531,9 @@ public class DataPoolProducerRunner implements Runnable {
             return baseBatchSize;
         }
         
-        // 有计划数限制，取剩余数量和批次大小的较小值
-        int remaining = planRemainingCount.get();
-        return Math.min(remaining, baseBatchSize);
-    }
-    
-    /**
-     * 根据计划数限制实际处理的数据量
-     */
-    private List<DataPoolItem> limitItemsByPlan(List<DataPoolItem> items) {
-        if (!planInitialized.get() || planTargetCount.get() == Integer.MAX_VALUE) {
-            return items; // 无计划数限制，返回全部
-        }
-        
-        int remaining = planRemainingCount.get();
-        if (remaining <= 0) {
-            return new ArrayList<>(); // 已达到计划目标
-        }
-        
-        if (items.size() <= remaining) {
-            return items; // 数据量不超过剩余计划数
-        }
-        
-        // 截取到剩余计划数的数量
-        return items.subList(0, remaining);
+        // 有计划数限制，取剩余可认领数量和批次大小的较小值
+        int remaining = planRemainingCount.get() - planReservedCount.get();
+        return Math.max(0, Math.min(remaining, baseBatchSize));
     }
     
     /**
@@ -366,10 +563,21 @@ public class DataPoolProducerRunner implements Runnable {
         systemLogService.insert(systemLog);
     }
     
+    /**
+     * 为一批数据构建打印指令，构建失败的位置为null
+     */
+    private PrintCommand[] buildPrintCommands(List<DataPoolItem> items, CompiledCommandTemplate commandTemplate) {
+        PrintCommand[] commands = new PrintCommand[items.size()];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = buildPrintCommand(items.get(i), commandTemplate);
+        }
+        return commands;
+    }
+    
     /**
      * 构建打印指令（不指定设备，由调度器动态分配）
      */
-    private PrintCommand buildPrintCommand(DataPoolItem item, DataPoolTemplate template,DeviceFileConfig fileConfig) {
+    private PrintCommand buildPrintCommand(DataPoolItem item, CompiledCommandTemplate commandTemplate) {
         try {
             PrintCommand command = new PrintCommand();
             // 使用数据项ID作为指令ID，便于关联数据库项
@@ -381,11 +589,13 @@ public class DataPoolProducerRunner implements Runnable {
             command.setCreateTime(System.currentTimeMillis());
             command.setRetryCount(0);
             command.setMaxRetryCount(3);
-            command.setPriority(1);
+            command.setPriority(CommandPriority.NORMAL.getCode());
             
-            // 构建打印指令模板,使用设备的模版信息都相同
-            String printCommand = buildGenericCommand(item,template,fileConfig);
-            command.setCommand(printCommand);
+            // 将数据拼接进预编译模板,使用设备的模版信息都相同；指令文本不预先渲染，仅在日志或短连接回退时生成
+            String itemData = String.valueOf(item.getItemData());
+            command.setTemplate(commandTemplate);
+            // 一次性编码为协议帧（池化直接内存），发送与重试直接复用，不再逐次转换字节数组
+            command.setFrame(commandTemplate.encodeFrame(PooledByteBufAllocator.DEFAULT, itemData));
             
             return command;
             
@@ -396,29 +606,53 @@ public class DataPoolProducerRunner implements Runnable {
     }
     
     /**
-     * 构建打印指令模板（不包含设备）
-     */
-    private String buildGenericCommand(DataPoolItem item, DataPoolTemplate template,DeviceFileConfig fileConfig) {
-        // 构建的指令模板，设备特定信息由调度器在发送时添加
-        // 格式：seta:data#v1=text+size#width|height+pos#x|y|r|ng
-        Integer xAxis = template.getXAxis();// X轴坐标
-        Integer yAxis = template.getYAxis();// Y轴坐标
-        Integer angle = template.getAngle();// 旋转角度
-        Integer width = template.getWidth();// 宽度
-        Integer height = template.getHeight();// 高度
-        StringBuilder command = new StringBuilder();
-        command.append("seta:data#").append(fileConfig.getVariableName()).append("=").append(item.getItemData())
-                .append("+size#").append(height).append("|").append(width)
-                .append("+pos#").append(xAxis).append("|").append(yAxis).append("|").append(angle).append("|").append("0");
-        
-        return command.toString();
+     * 等待状态变化（恢复/停止），最长等待 IDLE_WAIT_MS
+     */
+    private void awaitStateChange() throws InterruptedException {
+        synchronized (stateLock) {
+            if (running && !paused) {
+                stateLock.wait(IDLE_WAIT_MS);
+            }
+        }
     }
-    
+
+    /**
+     * 暂停期间阻塞，直到恢复或停止，最长等待 IDLE_WAIT_MS
+     */
+    private void awaitResume() throws InterruptedException {
+        synchronized (stateLock) {
+            if (running && paused) {
+                stateLock.wait(IDLE_WAIT_MS);
+            }
+        }
+    }
+
+    private void signalStateChange() {
+        synchronized (stateLock) {
+            stateLock.notifyAll();
+        }
+    }
+
+    /**
+     * 提交插队数据项，由生产线程认领后按指定优先级入队
+     *
+     * @param itemIds 数据项ID集合
+     * @param priority 指令优先级
+     */
+    public void expedite(List<Long> itemIds, CommandPriority priority) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+        expediteRequests.offer(new ExpediteRequest(new ArrayList<>(itemIds), priority));
+        signalStateChange();
+    }
+
     /**
      * 停止生产
      */
     public void stop() {
         this.running = false;
+        signalStateChange();
         log.info("数据生成池停止请求，任务ID: {}", taskId);
     }
     
@@ -435,9 +669,14 @@ public class DataPoolProducerRunner implements Runnable {
      */
     public void resume() {
         this.paused = false;
+        signalStateChange();
         log.info("数据生成池恢复，任务ID: {}", taskId);
     }
     
+    public Long getPoolId() {
+        return poolId;
+    }
+
     /**
      * 获取已生产数量
      */
@@ -508,4 +747,17 @@ public class DataPoolProducerRunner implements Runnable {
         
         return (double) planGeneratedCount.get() / planTargetCount.get() * 100.0;
     }
+
+    /**
+     * 插队请求
+     */
+    private static final class ExpediteRequest {
+        final List<Long> itemIds;
+        final CommandPriority priority;
+
+        ExpediteRequest(List<Long> itemIds, CommandPriority priority) {
+            this.itemIds = itemIds;
+            this.priority = priority;
+        }
+    }
 }
@@ -0,0 +1,134 @@
+package com.ruoyi.business.service.TaskInfo.runner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * 待打印数据预取器（双缓冲）
+ * 生产线程把当前批次写入指令队列的同时，下一批已在预取线程中完成认领与指令编码，
+ * 队列降到低水位时直接换入，发送端不再感知数据库往返延迟；
+ * 预取批次大小按观测到的队列消耗速率自适应，保证一批能覆盖下一次认领的耗时。
+ * 除构造外的方法只由所属生产线程调用
+ */
+class PendingItemPrefetcher {
+
+    // 一批至少覆盖的消耗时长（毫秒），且不少于认领耗时的 FETCH_COVER_FACTOR 倍
+    private static final long PREFETCH_HORIZON_MS = 1000L;
+    private static final int FETCH_COVER_FACTOR = 4;
+    // 最小预取数量，避免消耗速率很低时频繁访问数据库
+    private static final int MIN_PREFETCH = 100;
+    // 速率估计的平滑系数
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final Executor executor;
+    private final IntFunction<PrefetchBatch> loader;
+
+    // 进行中或已完成但尚未取走的预取批次
+    private CompletableFuture<PrefetchBatch> pending;
+    // 队列消耗速率（条/毫秒），0 表示尚无观测
+    private double drainRatePerMs;
+    // 最近一次认领与编码耗时（毫秒）
+    private double fetchMillis;
+
+    PendingItemPrefetcher(Executor executor, IntFunction<PrefetchBatch> loader) {
+        this.executor = executor;
+        this.loader = loader;
+    }
+
+    /**
+     * 发起下一批预取，已有预取批次时忽略
+     *
+     * @param limit 本批最大数量，不大于0时不预取
+     */
+    void prefetch(int limit) {
+        if (pending != null || limit <= 0) {
+            return;
+        }
+        pending = CompletableFuture.supplyAsync(() -> loader.apply(limit), executor);
+    }
+
+    /**
+     * 是否有进行中或待取走的预取批次
+     */
+    boolean hasPending() {
+        return pending != null;
+    }
+
+    /**
+     * 取走预取批次，尚未完成时最多等待指定时间
+     *
+     * @return 预取批次，无预取或等待超时返回null
+     */
+    PrefetchBatch take(long timeout, TimeUnit unit) throws InterruptedException {
+        if (pending == null) {
+            return null;
+        }
+        PrefetchBatch batch;
+        try {
+            batch = pending.get(timeout, unit);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            pending = null;
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+        pending = null;
+        fetchMillis = batch.getFetchNanos() / 1_000_000.0;
+        return batch;
+    }
+
+    /**
+     * 放弃预取批次，完成后交由 discarder 归还（停止生产时调用，不阻塞）
+     */
+    void cancel(Consumer<PrefetchBatch> discarder) {
+        if (pending != null) {
+            pending.thenAccept(discarder);
+            pending = null;
+        }
+    }
+
+    /**
+     * 记录一段时间内队列被消耗的数量
+     *
+     * @param drained 消耗数量
+     * @param elapsedNanos 观测时长
+     * @param exhausted 观测期间队列是否已耗尽（耗尽时只能得到速率下限）
+     */
+    void recordDrain(int drained, long elapsedNanos, boolean exhausted) {
+        if (drained <= 0 || elapsedNanos <= 0) {
+            return;
+        }
+        double sample = drained / (elapsedNanos / 1_000_000.0);
+        if (drainRatePerMs == 0) {
+            drainRatePerMs = sample;
+        } else if (exhausted) {
+            drainRatePerMs = Math.max(drainRatePerMs, sample);
+        } else {
+            drainRatePerMs = EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * drainRatePerMs;
+        }
+    }
+
+    /**
+     * 下一批的预取数量
+     *
+     * @param maxBatchSize 上限（批处理大小与队列余量中的较小值）
+     */
+    int nextBatchSize(int maxBatchSize) {
+        if (drainRatePerMs == 0) {
+            return maxBatchSize;
+        }
+        double horizonMs = Math.max(PREFETCH_HORIZON_MS, fetchMillis * FETCH_COVER_FACTOR);
+        int size = (int) Math.ceil(drainRatePerMs * horizonMs);
+        return Math.max(Math.min(MIN_PREFETCH, maxBatchSize), Math.min(size, maxBatchSize));
+    }
+
+    double getDrainRatePerMs() {
+        return drainRatePerMs;
+    }
+}
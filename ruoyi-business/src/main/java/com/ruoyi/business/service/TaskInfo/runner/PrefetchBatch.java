@@ -0,0 +1,80 @@
+package com.ruoyi.business.service.TaskInfo.runner;
+
+import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 预取批次
+ * 已认领（PENDING -> PRINTING）的数据项及其编码好的打印指令，按顺序由生产线程逐条入队；
+ * 指令构建失败的位置为null，入队时跳过
+ */
+class PrefetchBatch {
+
+    private final ProducerTaskContext context;
+    private final List<DataPoolItem> items;
+    private final PrintCommand[] commands;
+    private final long fetchNanos;
+    // 下一条待入队的位置
+    private int position;
+
+    PrefetchBatch(ProducerTaskContext context, List<DataPoolItem> items, PrintCommand[] commands, long fetchNanos) {
+        this.context = context;
+        this.items = items;
+        this.commands = commands;
+        this.fetchNanos = fetchNanos;
+    }
+
+    static PrefetchBatch empty(ProducerTaskContext context, long fetchNanos) {
+        return new PrefetchBatch(context, Collections.emptyList(), new PrintCommand[0], fetchNanos);
+    }
+
+    ProducerTaskContext getContext() {
+        return context;
+    }
+
+    /**
+     * 认领与编码耗时（纳秒）
+     */
+    long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    boolean isEmpty() {
+        return position >= commands.length;
+    }
+
+    /**
+     * 剩余未入队的数量
+     */
+    int remaining() {
+        return commands.length - position;
+    }
+
+    /**
+     * 取出下一条指令，构建失败的位置返回null
+     */
+    PrintCommand poll() {
+        return commands[position++];
+    }
+
+    /**
+     * 剩余未入队的数据项
+     */
+    List<DataPoolItem> remainingItems() {
+        return items.subList(position, items.size());
+    }
+
+    /**
+     * 释放剩余未入队指令的协议帧
+     */
+    void releaseRemaining() {
+        for (int i = position; i < commands.length; i++) {
+            if (commands[i] != null) {
+                commands[i].releaseFrame();
+            }
+        }
+    }
+}
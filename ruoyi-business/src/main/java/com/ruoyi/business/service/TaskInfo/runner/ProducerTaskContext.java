@@ -0,0 +1,81 @@
+package com.ruoyi.business.service.TaskInfo.runner;
+
+import com.ruoyi.business.domain.DataPool.DataPool;
+import com.ruoyi.business.domain.DataPoolTemplate.DataPoolTemplate;
+import com.ruoyi.business.domain.DeviceFileConfig.DeviceFileConfig;
+import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import com.ruoyi.business.enums.SourceType;
+import com.ruoyi.business.events.TaskMetadataChangedEvent;
+import com.ruoyi.business.service.TaskInfo.template.CompiledCommandTemplate;
+
+import java.util.Objects;
+
+/**
+ * 生产端任务上下文快照（不可变）
+ * 任务启动后加载一次数据池、任务设备关联、数据池模板、设备文件配置及预编译模板，
+ * 每轮生产直接复用，仅在收到 TaskMetadataChangedEvent 后整体作废重建
+ */
+public final class ProducerTaskContext {
+
+    private final Long taskId;
+    private final DataPool dataPool;
+    private final TaskDeviceLink deviceLink;
+    private final DataPoolTemplate template;
+    private final DeviceFileConfig fileConfig;
+    private final CompiledCommandTemplate compiledTemplate;
+    private final boolean fixedData;
+
+    public ProducerTaskContext(Long taskId, DataPool dataPool, TaskDeviceLink deviceLink,
+                               DataPoolTemplate template, DeviceFileConfig fileConfig,
+                               CompiledCommandTemplate compiledTemplate) {
+        this.taskId = taskId;
+        this.dataPool = dataPool;
+        this.deviceLink = deviceLink;
+        this.template = template;
+        this.fileConfig = fileConfig;
+        this.compiledTemplate = compiledTemplate;
+        this.fixedData = SourceType.FIXED_DATA.getCode().equals(dataPool.getSourceType());
+    }
+
+    /**
+     * 变更事件是否涉及本快照
+     */
+    public boolean isAffectedBy(TaskMetadataChangedEvent event) {
+        return event.isGlobal()
+                || Objects.equals(event.getTaskId(), taskId)
+                || Objects.equals(event.getPoolId(), dataPool.getId())
+                || Objects.equals(event.getTemplateId(), template.getId())
+                || Objects.equals(event.getFileConfigId(), fileConfig.getId());
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public DataPool getDataPool() {
+        return dataPool;
+    }
+
+    public TaskDeviceLink getDeviceLink() {
+        return deviceLink;
+    }
+
+    public DataPoolTemplate getTemplate() {
+        return template;
+    }
+
+    public DeviceFileConfig getFileConfig() {
+        return fileConfig;
+    }
+
+    public CompiledCommandTemplate getCompiledTemplate() {
+        return compiledTemplate;
+    }
+
+    /**
+     * 数据池是否为固定数据
+     */
+    public boolean isFixedData() {
+        return fixedData;
+    }
+}
@@ -0,0 +1,175 @@
+package com.ruoyi.business.service.TaskInfo.template;
+
+import com.ruoyi.business.domain.DataPoolTemplate.DataPoolTemplate;
+import com.ruoyi.business.domain.DeviceFileConfig.DeviceFileConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 预编译的打印指令模板
+ * 将 DataPoolTemplate 与 DeviceFileConfig 编译为固定的字面量片段（含STX/0x05与ETX），
+ * 每条数据只需把变量值拼接到片段之间，不再逐条重复读取坐标尺寸并格式化整条指令。
+ * 格式：seta:data#v1=值1+v2=值2+size#height|width+pos#x|y|r|0
+ * 变量名称以逗号分隔即为多变量模板，数据内容按逗号依次拆分到各变量，最后一个变量取剩余全部内容；
+ * 单变量模板不拆分数据内容
+ */
+public final class CompiledCommandTemplate {
+
+    /** 多变量名称/数据内容分隔符 */
+    public static final char VALUE_SEPARATOR = ',';
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final byte SEND_MARKER = 0x05;
+
+    // 字面量片段：literals[i] 位于第 i 个变量之前，最后一个片段位于所有变量之后
+    private final String[] literals;
+    // 帧头（STX + 0x05 + 首个片段）、中间片段、帧尾（末个片段 + ETX）的字节形式
+    private final byte[] head;
+    private final byte[][] middles;
+    private final byte[] tail;
+    private final int fixedLength;
+
+    // 编译来源，用于判断模板或设备配置是否已变化
+    private final Long templateId;
+    private final Long fileConfigId;
+    private final Object[] signature;
+
+    private CompiledCommandTemplate(String[] literals, DataPoolTemplate template, DeviceFileConfig fileConfig) {
+        this.literals = literals;
+        int last = literals.length - 1;
+        this.head = concat(new byte[]{STX, SEND_MARKER}, utf8(literals[0]));
+        this.middles = new byte[Math.max(0, last - 1)][];
+        for (int i = 1; i < last; i++) {
+            middles[i - 1] = utf8(literals[i]);
+        }
+        this.tail = concat(utf8(literals[last]), new byte[]{ETX});
+        int length = head.length + tail.length;
+        for (byte[] middle : middles) {
+            length += middle.length;
+        }
+        this.fixedLength = length;
+        this.templateId = template.getId();
+        this.fileConfigId = fileConfig.getId();
+        this.signature = signatureOf(template, fileConfig);
+    }
+
+    /**
+     * 编译模板
+     *
+     * @param template 数据池模板（坐标、尺寸、角度）
+     * @param fileConfig 设备文件配置（变量名称）
+     */
+    public static CompiledCommandTemplate compile(DataPoolTemplate template, DeviceFileConfig fileConfig) {
+        String[] variables = splitVariables(fileConfig.getVariableName());
+        String[] literals = new String[variables.length + 1];
+        literals[0] = "seta:data#" + variables[0] + "=";
+        for (int i = 1; i < variables.length; i++) {
+            literals[i] = "+" + variables[i] + "=";
+        }
+        literals[variables.length] = "+size#" + template.getHeight() + "|" + template.getWidth()
+                + "+pos#" + template.getXAxis() + "|" + template.getYAxis() + "|" + template.getAngle() + "|" + "0";
+        return new CompiledCommandTemplate(literals, template, fileConfig);
+    }
+
+    /**
+     * 模板与设备配置是否仍与编译时一致
+     */
+    public boolean matches(DataPoolTemplate template, DeviceFileConfig fileConfig) {
+        return Objects.equals(templateId, template.getId())
+                && Objects.equals(fileConfigId, fileConfig.getId())
+                && Arrays.equals(signature, signatureOf(template, fileConfig));
+    }
+
+    /**
+     * 变量数量
+     */
+    public int getVariableCount() {
+        return literals.length - 1;
+    }
+
+    /**
+     * 渲染指令文本（用于日志与短连接回退）
+     */
+    public String render(CharSequence data) {
+        int variables = getVariableCount();
+        if (variables == 1) {
+            return literals[0] + data + literals[1];
+        }
+        StringBuilder sb = new StringBuilder(fixedLength + data.length());
+        int start = 0;
+        for (int i = 0; i < variables; i++) {
+            int end = valueEnd(data, start, i == variables - 1);
+            sb.append(literals[i]).append(data, start, end);
+            start = Math.min(data.length(), end + 1);
+        }
+        return sb.append(literals[variables]).toString();
+    }
+
+    /**
+     * 将数据拼接进模板，直接编码为协议帧（STX + 0x05 + 指令 + ETX）
+     *
+     * @return 协议帧，引用计数为1，由调用方负责释放
+     */
+    public ByteBuf encodeFrame(ByteBufAllocator allocator, CharSequence data) {
+        int variables = getVariableCount();
+        ByteBuf frame = allocator.directBuffer(fixedLength + ByteBufUtil.utf8Bytes(data));
+        frame.writeBytes(head);
+        int start = 0;
+        for (int i = 0; i < variables; i++) {
+            if (i > 0) {
+                frame.writeBytes(middles[i - 1]);
+            }
+            int end = valueEnd(data, start, i == variables - 1);
+            ByteBufUtil.writeUtf8(frame, data, start, end);
+            start = Math.min(data.length(), end + 1);
+        }
+        frame.writeBytes(tail);
+        return frame;
+    }
+
+    // 当前变量值的结束位置：最后一个变量取剩余全部内容
+    private static int valueEnd(CharSequence data, int start, boolean lastVariable) {
+        int length = data.length();
+        if (lastVariable) {
+            return length;
+        }
+        for (int i = start; i < length; i++) {
+            if (data.charAt(i) == VALUE_SEPARATOR) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static String[] splitVariables(String variableName) {
+        if (variableName == null || variableName.indexOf(VALUE_SEPARATOR) < 0) {
+            return new String[]{variableName};
+        }
+        String[] names = variableName.split(String.valueOf(VALUE_SEPARATOR));
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        return names;
+    }
+
+    private static Object[] signatureOf(DataPoolTemplate template, DeviceFileConfig fileConfig) {
+        return new Object[]{template.getXAxis(), template.getYAxis(), template.getAngle(),
+                template.getWidth(), template.getHeight(), fileConfig.getVariableName()};
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -1,5 +1,9 @@
 package com.ruoyi.business.utils;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -34,6 +38,21 @@ public class StxEtxProtocolUtil {
         return result;
     }
     
+    /**
+     * 构建发送命令帧，直接编码到分配器给出的缓冲区（池化分配器下为池化直接内存），不产生中间字节数组
+     * @param allocator 缓冲区分配器
+     * @param command 命令内容
+     * @return 协议帧，引用计数为1，由调用方负责释放
+     */
+    public static ByteBuf encodeCommand(ByteBufAllocator allocator, CharSequence command) {
+        ByteBuf frame = allocator.directBuffer(ByteBufUtil.utf8Bytes(command) + 3); // STX + 0x05 + command + ETX
+        frame.writeByte(STX);
+        frame.writeByte(SEND_MARKER);
+        ByteBufUtil.writeUtf8(frame, command);
+        frame.writeByte(ETX);
+        return frame;
+    }
+    
     /**
      * 解析返回数据
      * @param response 原始响应字节数组
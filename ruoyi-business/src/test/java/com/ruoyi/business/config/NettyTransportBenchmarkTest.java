@@ -0,0 +1,256 @@
+package com.ruoyi.business.config;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 20 个数据池（10 个 TCP 客户端、10 个 TCP 服务端）加 100 台设备连接时，
+ * 原先各组件各自创建线程组与共享传输线程组的线程数、CPU 时间对比；环境支持时附带 epoll 传输
+ * 建立上百条本地连接并统计进程线程数，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class NettyTransportBenchmarkTest {
+
+    private static final int DEVICES = 100;
+    private static final int CLIENT_POOLS = 10;
+    private static final int SERVER_POOLS = 10;
+    private static final int MESSAGES = 200;
+    private static final int MESSAGE_SIZE = 32;
+
+    @Test
+    void sharedGroupsUseFewerThreads() throws Exception {
+        EventLoopGroup peerGroup = new NioEventLoopGroup(2, new DefaultThreadFactory("test-peer"));
+        try {
+            Peers peers = new Peers(peerGroup);
+            // 预热一轮，避免首轮的类加载与编译计入对比
+            run(peers, Mode.SEPARATE);
+            run(peers, Mode.SHARED_NIO);
+
+            long[] separate = run(peers, Mode.SEPARATE);
+            long[] shared = run(peers, Mode.SHARED_NIO);
+            print("各自创建线程组", separate);
+            print("共享线程组(NIO)", shared);
+            if (Epoll.isAvailable()) {
+                run(peers, Mode.SHARED_EPOLL);
+                print("共享线程组(epoll)", run(peers, Mode.SHARED_EPOLL));
+            }
+            Assertions.assertTrue(shared[0] < separate[0], "共享线程组的线程数应少于各自创建");
+            Assertions.assertTrue(shared[0] <= Runtime.getRuntime().availableProcessors() + 3,
+                    "共享线程组的线程数不应随数据池数量增长");
+        } finally {
+            peerGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    private static void print(String name, long[] result) {
+        System.out.printf("%s：新增线程 %d，进程 CPU %.1f ms，耗时 %.1f ms%n",
+                name, result[0], result[1] / 1e6, result[2] / 1e6);
+    }
+
+    private enum Mode {
+        SEPARATE, SHARED_NIO, SHARED_EPOLL
+    }
+
+    /**
+     * 按指定方式建立上位机服务端、设备连接和数据池连接，每条连接往返 MESSAGES 条消息
+     *
+     * @return {新增线程数, 进程 CPU 纳秒, 耗时纳秒}
+     */
+    private static long[] run(Peers peers, Mode mode) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+
+        List<EventLoopGroup> ownedGroups = new ArrayList<>();
+        List<Channel> channels = new ArrayList<>();
+        NettyTransport transport = null;
+        int connections = DEVICES + CLIENT_POOLS + SERVER_POOLS;
+        Counter counter = new Counter((long) connections * MESSAGES * MESSAGE_SIZE);
+        try {
+            Class<? extends SocketChannel> socketClass = NioSocketChannel.class;
+            Class<? extends ServerSocketChannel> serverClass = NioServerSocketChannel.class;
+            EventLoopGroup serverBoss;
+            EventLoopGroup serverWorker;
+            EventLoopGroup deviceGroup;
+            EventExecutorGroup poolHandlerGroup = null;
+            if (mode == Mode.SEPARATE) {
+                // 原实现：上位机服务端 1+16，设备连接默认 2×核数
+                serverBoss = own(ownedGroups, new NioEventLoopGroup(1));
+                serverWorker = own(ownedGroups, new NioEventLoopGroup(16));
+                deviceGroup = own(ownedGroups, new NioEventLoopGroup());
+            } else {
+                transport = new NettyTransport(mode == Mode.SHARED_EPOLL, 1, 0, 2);
+                transport.init();
+                socketClass = transport.socketChannelClass();
+                serverClass = transport.serverSocketChannelClass();
+                serverBoss = transport.bossGroup();
+                serverWorker = transport.workerGroup();
+                deviceGroup = transport.workerGroup();
+                poolHandlerGroup = transport.blockingHandlerGroup();
+            }
+
+            channels.add(new ServerBootstrap().group(serverBoss, serverWorker).channel(serverClass)
+                    .childHandler(new EchoHandler())
+                    .bind("127.0.0.1", 0).sync().channel());
+
+            for (int i = 0; i < DEVICES; i++) {
+                channels.add(connect(deviceGroup, socketClass, peers.deviceAddress, counter, null));
+            }
+            for (int i = 0; i < CLIENT_POOLS; i++) {
+                // 原实现：每个 TCP 客户端数据池 1 个线程
+                EventLoopGroup group = mode == Mode.SEPARATE ? own(ownedGroups, new NioEventLoopGroup(1)) : deviceGroup;
+                channels.add(connect(group, socketClass, peers.poolAddress, counter, poolHandlerGroup));
+            }
+            List<Channel> poolPeers = new ArrayList<>();
+            for (int i = 0; i < SERVER_POOLS; i++) {
+                // 原实现：每个 TCP 服务端数据池 1 个 accept 线程 + 1 个 IO 线程
+                EventLoopGroup boss = mode == Mode.SEPARATE ? own(ownedGroups, new NioEventLoopGroup(1)) : serverBoss;
+                EventLoopGroup worker = mode == Mode.SEPARATE ? own(ownedGroups, new NioEventLoopGroup(1)) : serverWorker;
+                EventExecutorGroup handlerGroup = poolHandlerGroup;
+                Channel server = new ServerBootstrap().group(boss, worker).channel(serverClass)
+                        .childHandler(new ChannelInitializer<SocketChannel>() {
+                            @Override
+                            protected void initChannel(SocketChannel ch) {
+                                ch.pipeline().addLast(handlerGroup, new EchoHandler());
+                            }
+                        })
+                        .bind("127.0.0.1", 0).sync().channel();
+                channels.add(server);
+                poolPeers.add(connect(peers.group, NioSocketChannel.class, server.localAddress(), counter, null));
+            }
+            channels.addAll(poolPeers);
+
+            List<Channel> senders = new ArrayList<>(channels.subList(1, 1 + DEVICES + CLIENT_POOLS));
+            senders.addAll(poolPeers);
+            long cpuBefore = processCpuTime();
+            long start = System.nanoTime();
+            for (Channel channel : senders) {
+                for (int i = 0; i < MESSAGES; i++) {
+                    channel.write(channel.alloc().buffer(MESSAGE_SIZE).writeZero(MESSAGE_SIZE));
+                }
+                channel.flush();
+            }
+            Assertions.assertTrue(counter.done.await(30, TimeUnit.SECONDS), "消息未全部往返");
+            long elapsed = System.nanoTime() - start;
+            long cpu = processCpuTime() - cpuBefore;
+            return new long[]{threads.getThreadCount() - threadsBefore, cpu, elapsed};
+        } finally {
+            for (Channel channel : channels) {
+                channel.close().sync();
+            }
+            for (EventLoopGroup group : ownedGroups) {
+                group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+            }
+            if (transport != null) {
+                transport.shutdown();
+                transport.bossGroup().terminationFuture().sync();
+                transport.workerGroup().terminationFuture().sync();
+                transport.blockingHandlerGroup().terminationFuture().sync();
+            }
+        }
+    }
+
+    private static EventLoopGroup own(List<EventLoopGroup> owned, EventLoopGroup group) {
+        owned.add(group);
+        return group;
+    }
+
+    private static Channel connect(EventLoopGroup group, Class<? extends SocketChannel> channelClass,
+                                   SocketAddress address, Counter counter, EventExecutorGroup handlerGroup)
+            throws InterruptedException {
+        return new Bootstrap().group(group).channel(channelClass)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(handlerGroup, counter);
+                    }
+                })
+                .connect(address).sync().channel();
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /**
+     * 模拟打印设备与数据池对端，在整个测试期间保持，不计入各轮的线程数
+     */
+    private static final class Peers {
+        final EventLoopGroup group;
+        final InetSocketAddress deviceAddress;
+        final InetSocketAddress poolAddress;
+
+        Peers(EventLoopGroup group) throws InterruptedException {
+            this.group = group;
+            this.deviceAddress = bindEcho(group);
+            this.poolAddress = bindEcho(group);
+        }
+
+        private static InetSocketAddress bindEcho(EventLoopGroup group) throws InterruptedException {
+            Channel channel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                    .childHandler(new EchoHandler())
+                    .bind("127.0.0.1", 0).sync().channel();
+            return (InetSocketAddress) channel.localAddress();
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class Counter extends ChannelInboundHandlerAdapter {
+        final AtomicLong remaining;
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Counter(long expectedBytes) {
+            this.remaining = new AtomicLong(expectedBytes);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            int bytes = ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+            if (remaining.addAndGet(-bytes) == 0L) {
+                done.countDown();
+            }
+        }
+    }
+}
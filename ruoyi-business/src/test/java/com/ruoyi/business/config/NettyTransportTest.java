@@ -0,0 +1,115 @@
+package com.ruoyi.business.config;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.MultithreadEventExecutorGroup;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 共享 Netty 传输：线程数按配置创建，epoll 不可用时回退到 NIO，服务端与客户端连接共用线程组收发数据
+ */
+class NettyTransportTest {
+
+    @Test
+    void createsConfiguredNioGroups() {
+        NettyTransport transport = new NettyTransport(false, 1, 2, 3);
+        transport.init();
+        try {
+            Assertions.assertFalse(transport.isEpoll());
+            Assertions.assertEquals(NioSocketChannel.class, transport.socketChannelClass());
+            Assertions.assertEquals(NioServerSocketChannel.class, transport.serverSocketChannelClass());
+            Assertions.assertEquals(1, ((MultithreadEventExecutorGroup) transport.bossGroup()).executorCount());
+            Assertions.assertEquals(2, ((MultithreadEventExecutorGroup) transport.workerGroup()).executorCount());
+            Assertions.assertEquals(3, ((MultithreadEventExecutorGroup) transport.blockingHandlerGroup()).executorCount());
+        } finally {
+            shutdown(transport);
+        }
+    }
+
+    @Test
+    void nativeEpollOnlyWhenAvailable() {
+        NettyTransport transport = new NettyTransport(true, 1, 1, 1);
+        transport.init();
+        try {
+            // 不支持的平台上回退到 NIO，通道类型与线程组保持一致
+            Assertions.assertEquals(Epoll.isAvailable(), transport.isEpoll());
+            Assertions.assertEquals(transport.isEpoll() ? "EpollSocketChannel" : "NioSocketChannel",
+                    transport.socketChannelClass().getSimpleName());
+        } finally {
+            shutdown(transport);
+        }
+    }
+
+    @Test
+    void serverAndClientShareGroups() throws Exception {
+        NettyTransport transport = new NettyTransport(false, 1, 1, 1);
+        transport.init();
+        Channel server = null;
+        Channel client = null;
+        try {
+            server = new ServerBootstrap().group(transport.bossGroup(), transport.workerGroup())
+                    .channel(transport.serverSocketChannelClass())
+                    .childHandler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            // 数据池处理器在单独的处理线程组上执行
+                            ch.pipeline().addLast(transport.blockingHandlerGroup(), new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                        }
+                    })
+                    .bind("127.0.0.1", 0).sync().channel();
+
+            CompletableFuture<String> reply = new CompletableFuture<>();
+            client = new Bootstrap().group(transport.workerGroup()).channel(transport.socketChannelClass())
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            try {
+                                reply.complete(((ByteBuf) msg).toString(StandardCharsets.US_ASCII));
+                            } finally {
+                                ReferenceCountUtil.release(msg);
+                            }
+                        }
+                    })
+                    .connect(server.localAddress()).sync().channel();
+            client.writeAndFlush(Unpooled.copiedBuffer("geta:3", StandardCharsets.US_ASCII));
+
+            Assertions.assertEquals("geta:3", reply.get(10, TimeUnit.SECONDS));
+        } finally {
+            if (client != null) {
+                client.close().sync();
+            }
+            if (server != null) {
+                server.close().sync();
+            }
+            shutdown(transport);
+        }
+    }
+
+    private static void shutdown(NettyTransport transport) {
+        transport.shutdown();
+        transport.bossGroup().terminationFuture().syncUninterruptibly();
+        transport.workerGroup().terminationFuture().syncUninterruptibly();
+        transport.blockingHandlerGroup().terminationFuture().syncUninterruptibly();
+    }
+}
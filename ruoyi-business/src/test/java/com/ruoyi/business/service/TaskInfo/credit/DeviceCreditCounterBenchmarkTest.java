@@ -0,0 +1,150 @@
+package com.ruoyi.business.service.TaskInfo.credit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 设备在途额度计数器与原“设备锁 + AtomicInteger”实现的竞争对比基准
+ * 模拟 100 台设备、4 个完成回调线程，每次循环为 检查额度 -> 占用 -> 完成释放
+ * 只输出耗时对比，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class DeviceCreditCounterBenchmarkTest {
+
+    private static final int DEVICE_COUNT = 100;
+    private static final int COMPLETION_THREADS = 4;
+    private static final int CACHE_POOL_SIZE = 20;
+    private static final int OPS_PER_THREAD = 500_000;
+
+    /**
+     * 原实现：每台设备一个监视器锁，锁内更新 AtomicInteger 与心跳时间
+     */
+    private static class LegacyCounters {
+        private final ConcurrentHashMap<String, AtomicInteger> inFlightCounters = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Object> deviceLocks = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Long> heartbeatTimestamps = new ConcurrentHashMap<>();
+
+        boolean canReceive(String deviceId) {
+            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
+            synchronized (deviceLock) {
+                AtomicInteger counter = inFlightCounters.get(deviceId);
+                return counter == null || counter.get() < CACHE_POOL_SIZE;
+            }
+        }
+
+        void sent(String deviceId) {
+            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
+            synchronized (deviceLock) {
+                inFlightCounters.computeIfAbsent(deviceId, k -> new AtomicInteger(0)).incrementAndGet();
+                heartbeatTimestamps.put(deviceId, System.currentTimeMillis());
+            }
+        }
+
+        void completed(String deviceId) {
+            Object deviceLock = deviceLocks.computeIfAbsent(deviceId, k -> new Object());
+            synchronized (deviceLock) {
+                AtomicInteger counter = inFlightCounters.computeIfAbsent(deviceId, k -> new AtomicInteger(0));
+                if (counter.decrementAndGet() < 0) {
+                    counter.set(0);
+                }
+                heartbeatTimestamps.put(deviceId, System.currentTimeMillis());
+            }
+        }
+
+        int get(String deviceId) {
+            AtomicInteger counter = inFlightCounters.get(deviceId);
+            return counter != null ? counter.get() : 0;
+        }
+    }
+
+    private static String[] deviceIds(int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = String.valueOf(1000 + i);
+        }
+        return ids;
+    }
+
+    @org.junit.jupiter.api.Test
+    void compareWithLegacyAcross100Devices() throws InterruptedException {
+        compare(DEVICE_COUNT);
+    }
+
+    @org.junit.jupiter.api.Test
+    void compareWithLegacyOnHotDevice() throws InterruptedException {
+        compare(1);
+    }
+
+    private void compare(int deviceCount) throws InterruptedException {
+        String[] ids = deviceIds(deviceCount);
+
+        LegacyCounters legacy = new LegacyCounters();
+        long legacyNanos = runThreads(t -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                String deviceId = ids[(i + t * 31) % ids.length];
+                if (legacy.canReceive(deviceId)) {
+                    legacy.sent(deviceId);
+                    legacy.completed(deviceId);
+                }
+            }
+        });
+
+        ConcurrentHashMap<String, DeviceCreditCounter> credits = new ConcurrentHashMap<>();
+        for (String id : ids) {
+            credits.put(id, new DeviceCreditCounter());
+        }
+        ConcurrentHashMap<String, Long> heartbeatTimestamps = new ConcurrentHashMap<>();
+        long casNanos = runThreads(t -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                String deviceId = ids[(i + t * 31) % ids.length];
+                DeviceCreditCounter credit = credits.get(deviceId);
+                if (credit.tryAcquire(CACHE_POOL_SIZE)) {
+                    credit.release();
+                    heartbeatTimestamps.put(deviceId, System.currentTimeMillis());
+                }
+            }
+        });
+
+        for (String id : ids) {
+            Assertions.assertEquals(0, legacy.get(id));
+            Assertions.assertEquals(0, credits.get(id).get());
+        }
+        long totalOps = (long) OPS_PER_THREAD * COMPLETION_THREADS;
+        System.out.printf("设备数 %d，%d 个完成线程：原实现 %.1f ns/op，CAS 额度 %.1f ns/op%n",
+                deviceCount, COMPLETION_THREADS, (double) legacyNanos / totalOps, (double) casNanos / totalOps);
+    }
+
+    private interface Worker {
+        void run(int threadIndex);
+    }
+
+    private static long runThreads(Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < COMPLETION_THREADS; t++) {
+            int index = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                worker.run(index);
+            }));
+        }
+        threads.forEach(Thread::start);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
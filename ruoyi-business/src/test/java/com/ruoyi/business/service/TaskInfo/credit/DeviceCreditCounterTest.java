@@ -0,0 +1,82 @@
+package com.ruoyi.business.service.TaskInfo.credit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 设备在途额度计数器：并发占用不超过上限、释放唤醒等待方、按设备上报校准
+ */
+class DeviceCreditCounterTest {
+
+    private static final int CACHE_POOL_SIZE = 20;
+
+    @Test
+    void acquireNeverExceedsLimit() throws InterruptedException {
+        DeviceCreditCounter counter = new DeviceCreditCounter();
+        AtomicInteger maxSeen = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    if (counter.tryAcquire(CACHE_POOL_SIZE)) {
+                        maxSeen.accumulateAndGet(counter.get(), Math::max);
+                        counter.release();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertTrue(maxSeen.get() <= CACHE_POOL_SIZE, "在途数量超过额度上限: " + maxSeen.get());
+        Assertions.assertEquals(0, counter.get());
+        Assertions.assertEquals(0, counter.release(), "计数不应小于0");
+    }
+
+    @Test
+    void releaseWakesWaiter() throws InterruptedException {
+        DeviceCreditCounter counter = new DeviceCreditCounter();
+        for (int i = 0; i < CACHE_POOL_SIZE; i++) {
+            Assertions.assertTrue(counter.tryAcquire(CACHE_POOL_SIZE));
+        }
+        Assertions.assertFalse(counter.tryAcquire(CACHE_POOL_SIZE));
+        Assertions.assertFalse(counter.awaitCredit(CACHE_POOL_SIZE, 10, TimeUnit.MILLISECONDS));
+
+        AtomicBoolean woken = new AtomicBoolean();
+        CountDownLatch waiting = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                waiting.countDown();
+                woken.set(counter.awaitCredit(CACHE_POOL_SIZE, 30, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiting.await();
+        counter.release();
+        waiter.join();
+        Assertions.assertTrue(woken.get(), "释放后等待方应拿到额度");
+    }
+
+    @Test
+    void reconcileWithReportedCount() {
+        DeviceCreditCounter counter = new DeviceCreditCounter();
+        for (int i = 0; i < CACHE_POOL_SIZE - 1; i++) {
+            counter.tryAcquire(CACHE_POOL_SIZE);
+        }
+        // geta: 上报校准，返回校准前的数量
+        Assertions.assertEquals(CACHE_POOL_SIZE - 1, counter.reconcile(3));
+        Assertions.assertEquals(3, counter.get());
+        counter.reconcile(-5);
+        Assertions.assertEquals(0, counter.get());
+    }
+}
@@ -0,0 +1,94 @@
+package com.ruoyi.business.service.TaskInfo.impl;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import com.ruoyi.business.enums.CommandPriority;
+import com.ruoyi.business.service.TaskInfo.journal.DispatchJournal;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressCounter;
+import com.ruoyi.business.service.TaskInfo.progress.TaskProgressTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 补打指令：不对应数据项，不影响同任务数据项的去重追踪，也不改变任务进度的未发送数量
+ */
+class CommandQueueServiceImplTest {
+
+    private static final Long TASK_ID = 5L;
+    private static final Long ITEM_ID = 1L;
+
+    private CommandQueueServiceImpl service;
+    private TaskProgressCounter progress;
+
+    @BeforeEach
+    void createService() {
+        TaskProgressTracker tracker = new TaskProgressTracker();
+        progress = tracker.start(TASK_ID);
+        // 发送日志未初始化，保持未启用
+        service = new CommandQueueServiceImpl(new TaskDispatchProperties(), tracker, new DispatchJournal());
+        service.init();
+        // 生产端先创建队列，再认领数据项1
+        service.getQueueHeadroom(TASK_ID);
+        progress.recordClaimed(1, 1);
+    }
+
+    @AfterEach
+    void destroyService() {
+        service.destroy();
+    }
+
+    @Test
+    void reprintDoesNotTrackDataItem() {
+        service.requeueCommand(reprint());
+        service.addCommandToQueue(item(ITEM_ID));
+
+        // 数据项1不能被补打指令当作重复丢弃
+        Assertions.assertEquals(2, service.getQueueSize(TASK_ID));
+        Assertions.assertEquals(1, service.getTrackedItemCount(TASK_ID));
+        Assertions.assertEquals(1L, progress.outstanding());
+
+        // 补打通道先出队，结束补打指令不会结束数据项1的追踪
+        PrintCommand first = service.getNextCommand(TASK_ID);
+        Assertions.assertFalse(first.hasDataItem());
+        service.releaseCommand(first);
+        Assertions.assertEquals(1, service.getTrackedItemCount(TASK_ID));
+
+        // 补打指令没有已发送记录
+        service.addSentRecord(TASK_ID, first.getId(), "7");
+        Assertions.assertEquals(0, service.getSentRecordCount(TASK_ID));
+        Assertions.assertEquals(ITEM_ID, service.getNextCommand(TASK_ID).getId());
+    }
+
+    @Test
+    void droppedReprintKeepsOutstanding() {
+        service.addCommandToQueue(item(ITEM_ID));
+        service.clearQueue(TASK_ID);
+
+        // 任务停止后到期的补打指令被丢弃，不计入发送结束
+        service.requeueCommand(reprint());
+        Assertions.assertEquals(0L, progress.getFailed());
+        Assertions.assertEquals(1L, progress.outstanding());
+    }
+
+    private static PrintCommand item(Long id) {
+        PrintCommand command = new PrintCommand();
+        command.setId(id);
+        command.setTaskId(TASK_ID);
+        command.setCommand("seta:data=" + id + "+");
+        command.setRetryCount(0);
+        command.setMaxRetryCount(3);
+        return command;
+    }
+
+    private static PrintCommand reprint() {
+        PrintCommand command = new PrintCommand();
+        command.setTaskId(TASK_ID);
+        command.setCommand("seta:data=1+");
+        command.setRetryCount(0);
+        command.setMaxRetryCount(3);
+        command.setPriority(CommandPriority.REPRINT.getCode());
+        return command;
+    }
+}
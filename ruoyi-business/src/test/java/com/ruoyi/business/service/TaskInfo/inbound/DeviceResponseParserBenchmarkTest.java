@@ -0,0 +1,176 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import com.ruoyi.business.enums.DeviceEventType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字节解析器与原 handleDeviceData 解析路径（字节数组 -> 字符串 -> trim -> 四个正则依次匹配）的结果一致性与开销对比
+ * 依赖原实现副本与分配量统计，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class DeviceResponseParserBenchmarkTest {
+
+    // 原实现中的正则
+    private static final Pattern SYSTEM_PATTERN = Pattern.compile("system:(\\d+)");
+    private static final Pattern SETA_PATTERN = Pattern.compile("seta:(\\d+)(?::(.+))?");
+    private static final Pattern DATA_ERROR_PATTERN = Pattern.compile("data_error");
+    private static final Pattern BUFFER_COUNT_PATTERN = Pattern.compile("geta:(\\d+)");
+
+    // 线上消息构成：大部分为完成信号与缓冲区数量回复
+    private static final String[] TRAFFIC = {
+            "system:2", "system:2", "system:2", "geta:17", "geta:0", "system:2", "seta:1", "ping:ok"
+    };
+
+    private static final String[] EDGE_CASES = {
+            "system:2", " system:2\r\n", "system:02", "system:", "system:2x", "system:99999999999",
+            "seta:1", "seta:0", "seta:0:data#v1=SN001+size#20|80", "seta:0:", "seta:0:a\nb", "seta:x", "seta:1:中文数据",
+            "geta:123", "geta:", "geta:-1", "geta:2147483647", "geta:2147483648",
+            "data_error", "data_error ", "data_errorx", "ping:", "ping:abc", "", "   ", "unknown", "中文"
+    };
+
+    private static final int WARMUP = 200_000;
+    private static final int MEASURED = 2_000_000;
+
+    @Test
+    void parserMatchesRegexChain() {
+        for (String data : EDGE_CASES) {
+            DeviceEvent event = parseFrame(data);
+            Legacy legacy = Legacy.parse(data.getBytes(StandardCharsets.UTF_8));
+            Assertions.assertEquals(legacy.type, event.getType(), "消息类型不一致: [" + data + "]");
+            Assertions.assertEquals(legacy.code, event.getCode(), "数值代码不一致: [" + data + "]");
+            Assertions.assertEquals(legacy.detail, event.detail(), "seta 指令数据不一致: [" + data + "]");
+            Assertions.assertEquals(data.trim(), event.text());
+        }
+    }
+
+    @Test
+    void compareParsePath() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        ByteBuf[] frames = new ByteBuf[TRAFFIC.length];
+        byte[][] raw = new byte[TRAFFIC.length][];
+        for (int i = 0; i < TRAFFIC.length; i++) {
+            raw[i] = TRAFFIC[i].getBytes(StandardCharsets.UTF_8);
+            frames[i] = PooledByteBufAllocator.DEFAULT.directBuffer(raw[i].length).writeBytes(raw[i]);
+        }
+        long[] sink = new long[1];
+        try {
+            // 原路径：拆帧时拷贝字节并转字符串，处理时 trim 后依次匹配正则
+            IntOp legacy = i -> {
+                byte[] data = new byte[raw[i].length];
+                frames[i].getBytes(frames[i].readerIndex(), data);
+                Legacy result = Legacy.parse(data);
+                sink[0] += result.code;
+            };
+            // 新路径：直接在帧缓冲区上识别类型与代码
+            IntOp parser = i -> {
+                DeviceEvent event = DeviceResponseParser.parse(frames[i], frames[i].readerIndex(), frames[i].readableBytes());
+                sink[0] += event.getCode();
+            };
+
+            Result legacyResult = measure(threadBean, threadId, legacy, TRAFFIC.length);
+            Result parserResult = measure(threadBean, threadId, parser, TRAFFIC.length);
+            System.out.printf("设备消息解析：正则链 %.1f ns/op %.1f B/op，字节解析 %.1f ns/op %.1f B/op (%d)%n",
+                    legacyResult.nanosPerOp, legacyResult.bytesPerOp,
+                    parserResult.nanosPerOp, parserResult.bytesPerOp, sink[0]);
+            Assertions.assertTrue(parserResult.bytesPerOp < legacyResult.bytesPerOp, "字节解析分配量应低于正则链");
+        } finally {
+            for (ByteBuf frame : frames) {
+                frame.release();
+            }
+        }
+    }
+
+    private static DeviceEvent parseFrame(String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        // 帧前后带 STX/接收标记与 ETX，验证按下标解析不越界
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeByte(0x02).writeByte(0x06).writeBytes(bytes).writeByte(0x03);
+            return DeviceResponseParser.parse(buf, buf.readerIndex() + 2, bytes.length);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static Result measure(com.sun.management.ThreadMXBean threadBean, long threadId, IntOp op, int variants) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run(i % variants);
+        }
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED; i++) {
+            op.run(i % variants);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new Result((double) elapsed / MEASURED, (double) allocated / MEASURED);
+    }
+
+    private interface IntOp {
+        void run(int index);
+    }
+
+    private record Result(double nanosPerOp, double bytesPerOp) {
+    }
+
+    /**
+     * 原 handleDeviceData 的解析顺序：trim 后依次匹配 system、seta、data_error、geta
+     */
+    private static final class Legacy {
+        DeviceEventType type = DeviceEventType.OTHER;
+        int code = -1;
+        String detail;
+
+        static Legacy parse(byte[] frame) {
+            Legacy result = new Legacy();
+            String data = new String(frame, StandardCharsets.UTF_8).trim();
+            Matcher matcher = SYSTEM_PATTERN.matcher(data);
+            if (matcher.matches()) {
+                result.setCode(DeviceEventType.SYSTEM, matcher.group(1));
+                return result;
+            }
+            matcher = SETA_PATTERN.matcher(data);
+            if (matcher.matches()) {
+                result.setCode(DeviceEventType.SETA, matcher.group(1));
+                if (result.type == DeviceEventType.SETA) {
+                    result.detail = matcher.group(2);
+                }
+                return result;
+            }
+            if (DATA_ERROR_PATTERN.matcher(data).matches()) {
+                result.type = DeviceEventType.DATA_ERROR;
+                return result;
+            }
+            matcher = BUFFER_COUNT_PATTERN.matcher(data);
+            if (matcher.matches()) {
+                result.setCode(DeviceEventType.GETA, matcher.group(1));
+                return result;
+            }
+            if (data.startsWith("ping:")) {
+                result.type = DeviceEventType.PING;
+            }
+            return result;
+        }
+
+        private void setCode(DeviceEventType matched, String digits) {
+            try {
+                code = Integer.parseInt(digits);
+                type = matched;
+            } catch (NumberFormatException e) {
+                // 原实现中超出范围的数值按未识别处理
+                code = -1;
+            }
+        }
+    }
+}
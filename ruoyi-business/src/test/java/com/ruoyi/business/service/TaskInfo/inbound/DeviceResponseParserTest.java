@@ -0,0 +1,74 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import com.ruoyi.business.enums.DeviceEventType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 设备上报消息字节解析：消息类型、数值代码与 seta 指令数据，含前后空白、越界数值与非法格式
+ */
+class DeviceResponseParserTest {
+
+    @Test
+    void parsesCompletionSignals() {
+        assertParsed("system:2", DeviceEventType.SYSTEM, 2, null);
+        assertParsed(" system:2\r\n", DeviceEventType.SYSTEM, 2, null);
+        assertParsed("system:02", DeviceEventType.SYSTEM, 2, null);
+        assertParsed("system:", DeviceEventType.OTHER, -1, null);
+        assertParsed("system:2x", DeviceEventType.OTHER, -1, null);
+        assertParsed("system:99999999999", DeviceEventType.OTHER, -1, null);
+    }
+
+    @Test
+    void parsesSetaWithOptionalData() {
+        assertParsed("seta:1", DeviceEventType.SETA, 1, null);
+        assertParsed("seta:0", DeviceEventType.SETA, 0, null);
+        assertParsed("seta:0:data#v1=SN001+size#20|80", DeviceEventType.SETA, 0, "data#v1=SN001+size#20|80");
+        assertParsed("seta:1:中文数据", DeviceEventType.SETA, 1, "中文数据");
+        assertParsed("seta:0:", DeviceEventType.OTHER, -1, null);
+        assertParsed("seta:0:a\nb", DeviceEventType.OTHER, -1, null);
+        assertParsed("seta:x", DeviceEventType.OTHER, -1, null);
+    }
+
+    @Test
+    void parsesBufferCount() {
+        assertParsed("geta:123", DeviceEventType.GETA, 123, null);
+        assertParsed("geta:2147483647", DeviceEventType.GETA, Integer.MAX_VALUE, null);
+        assertParsed("geta:2147483648", DeviceEventType.OTHER, -1, null);
+        assertParsed("geta:", DeviceEventType.OTHER, -1, null);
+        assertParsed("geta:-1", DeviceEventType.OTHER, -1, null);
+    }
+
+    @Test
+    void parsesOtherMessages() {
+        assertParsed("data_error", DeviceEventType.DATA_ERROR, -1, null);
+        assertParsed("data_error ", DeviceEventType.DATA_ERROR, -1, null);
+        assertParsed("data_errorx", DeviceEventType.OTHER, -1, null);
+        assertParsed("ping:", DeviceEventType.PING, -1, null);
+        assertParsed("ping:abc", DeviceEventType.PING, -1, null);
+        assertParsed("", DeviceEventType.OTHER, -1, null);
+        assertParsed("   ", DeviceEventType.OTHER, -1, null);
+        assertParsed("unknown", DeviceEventType.OTHER, -1, null);
+        assertParsed("中文", DeviceEventType.OTHER, -1, null);
+    }
+
+    private static void assertParsed(String data, DeviceEventType type, int code, String detail) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        // 帧前后带 STX/接收标记与 ETX，验证按下标解析不越界
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            buf.writeByte(0x02).writeByte(0x06).writeBytes(bytes).writeByte(0x03);
+            DeviceEvent event = DeviceResponseParser.parse(buf, buf.readerIndex() + 2, bytes.length);
+            Assertions.assertEquals(type, event.getType(), "消息类型: [" + data + "]");
+            Assertions.assertEquals(code, event.getCode(), "数值代码: [" + data + "]");
+            Assertions.assertEquals(detail, event.detail(), "seta 指令数据: [" + data + "]");
+            Assertions.assertEquals(data.trim(), event.text());
+        } finally {
+            buf.release();
+        }
+    }
+}
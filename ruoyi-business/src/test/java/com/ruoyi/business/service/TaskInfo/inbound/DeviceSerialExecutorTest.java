@@ -0,0 +1,118 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单设备串行执行器：处理线程全部占满时，提交方（IO 线程）不执行处理任务，同一设备的消息仍按到达顺序处理
+ */
+class DeviceSerialExecutorTest {
+
+    private static final int DEVICES = 200;
+    private static final int MESSAGES = 50;
+
+    /**
+     * 与 deviceInboundExecutor 相同的配置：固定线程数、不限长度的队列、关闭后拒绝
+     */
+    private static ThreadPoolExecutor inboundPool(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Test
+    void saturatedPoolNeverRunsOnCaller() throws InterruptedException {
+        ThreadPoolExecutor pool = inboundPool(2);
+        try {
+            // 两个处理线程都被阻塞，模拟数据库写入缓慢
+            CountDownLatch blocked = new CountDownLatch(2);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 2; i++) {
+                new DeviceSerialExecutor("blocker-" + i, pool, 32).execute(() -> {
+                    blocked.countDown();
+                    await(release);
+                });
+            }
+            Assertions.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            Thread caller = Thread.currentThread();
+            AtomicInteger ranOnCaller = new AtomicInteger();
+            AtomicInteger processed = new AtomicInteger();
+            Map<String, List<Integer>> order = new ConcurrentHashMap<>();
+            List<DeviceSerialExecutor> executors = new ArrayList<>();
+            for (int d = 0; d < DEVICES; d++) {
+                String deviceId = String.valueOf(d);
+                order.put(deviceId, new CopyOnWriteArrayList<>());
+                executors.add(new DeviceSerialExecutor(deviceId, pool, 8));
+            }
+            // 线程池已满时由当前线程（IO 线程）持续提交，提交不应阻塞也不应在当前线程执行
+            for (int m = 0; m < MESSAGES; m++) {
+                for (DeviceSerialExecutor executor : executors) {
+                    int sequence = m;
+                    executor.execute(() -> {
+                        if (Thread.currentThread() == caller) {
+                            ranOnCaller.incrementAndGet();
+                        }
+                        order.get(executor.getDeviceId()).add(sequence);
+                        processed.incrementAndGet();
+                    });
+                }
+            }
+            Assertions.assertEquals(0, processed.get(), "处理线程占满期间消息不应被处理");
+            Assertions.assertTrue(pool.getQueue().size() <= DEVICES, "每台设备最多排队一个处理任务: " + pool.getQueue().size());
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (processed.get() < DEVICES * MESSAGES && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(DEVICES * MESSAGES, processed.get());
+            Assertions.assertEquals(0, ranOnCaller.get(), "处理任务不应在提交线程上执行");
+            for (Map.Entry<String, List<Integer>> e : order.entrySet()) {
+                List<Integer> sequence = e.getValue();
+                for (int i = 0; i < sequence.size(); i++) {
+                    Assertions.assertEquals(i, sequence.get(i).intValue(), "设备 " + e.getKey() + " 的消息乱序");
+                }
+            }
+            for (DeviceSerialExecutor executor : executors) {
+                Assertions.assertTrue(executor.isIdle());
+                Assertions.assertEquals(MESSAGES, executor.getPeakQueueDepth());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedAfterShutdownKeepsMessagesQueued() {
+        ThreadPoolExecutor pool = inboundPool(1);
+        pool.shutdown();
+        DeviceSerialExecutor executor = new DeviceSerialExecutor("1", pool, 8);
+        AtomicInteger processed = new AtomicInteger();
+
+        // 关闭后拒绝：不抛出到 IO 线程，也不在提交线程执行，消息保留在队列中
+        executor.execute(processed::incrementAndGet);
+        executor.execute(processed::incrementAndGet);
+        Assertions.assertEquals(0, processed.get());
+        Assertions.assertEquals(2, executor.getQueueDepth());
+        Assertions.assertFalse(executor.isIdle());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
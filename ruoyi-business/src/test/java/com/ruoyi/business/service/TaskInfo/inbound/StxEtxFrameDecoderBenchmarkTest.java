@@ -0,0 +1,196 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * STX/ETX 帧解码器与原逐字节扫描解码器的吞吐和分配对比
+ * 依赖原实现副本与分配量统计，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class StxEtxFrameDecoderBenchmarkTest {
+
+    private static final byte STX = StxEtxFrameDecoder.STX;
+    private static final byte ETX = StxEtxFrameDecoder.ETX;
+    private static final byte MARKER = StxEtxFrameDecoder.RECV_MARKER;
+
+    private static final int MAX_FRAME = 256;
+
+    @Test
+    void compareThroughputWithLegacyDecoder() {
+        Random random = new Random(11L);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        int frameCount = 4096;
+        for (int i = 0; i < frameCount; i++) {
+            writeFrame(stream, ascii(i % 4 == 3 ? "geta:" + random.nextInt(100) : "system:2"));
+        }
+        byte[] bytes = stream.toByteArray();
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // 原解码器在帧被拆开时会丢失数据，对比只使用整帧对齐的输入
+        int[] legacyCount = new int[1];
+        Runnable legacy = () -> legacyCount[0] = runAligned(new LegacyStxEtxFrameDecoder(), bytes);
+        int[] sliceCount = new int[1];
+        Runnable slices = () -> sliceCount[0] = runAligned(new StxEtxFrameDecoder(MAX_FRAME), bytes);
+
+        // 两条路径共用通道与解码器基类代码，先交替预热，避免先测的一方独占编译优化
+        for (int i = 0; i < 3; i++) {
+            measure(threadBean, threadId, legacy);
+            measure(threadBean, threadId, slices);
+        }
+        double[] legacyResult = measure(threadBean, threadId, legacy);
+        double[] sliceResult = measure(threadBean, threadId, slices);
+        Assertions.assertEquals(frameCount, legacyCount[0]);
+        Assertions.assertEquals(frameCount, sliceCount[0]);
+
+        // 新解码器在任意分片下的吞吐
+        Random chunks = new Random(5L);
+        long start = System.nanoTime();
+        int fragmented = 0;
+        for (int i = 0; i < 20; i++) {
+            fragmented += decodeCount(new StxEtxFrameDecoder(MAX_FRAME), bytes, chunks, 7);
+        }
+        double fragmentedNanos = (double) (System.nanoTime() - start) / fragmented;
+        Assertions.assertEquals(20 * frameCount, fragmented);
+
+        System.out.printf("帧解码：原实现 %.1f ns/帧 %.1f B/帧，切片输出 %.1f ns/帧 %.1f B/帧，7 字节分片 %.1f ns/帧%n",
+                legacyResult[0] / frameCount, legacyResult[1] / frameCount,
+                sliceResult[0] / frameCount, sliceResult[1] / frameCount, fragmentedNanos);
+        Assertions.assertTrue(sliceResult[1] < legacyResult[1], "切片输出的分配量应低于原实现");
+    }
+
+    // 每次写入 64 帧，输出逐个释放，返回帧数
+    private static int runAligned(ByteToMessageDecoder decoder, byte[] bytes) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        int frameSize = bytes.length / 4096 * 64;
+        int count = 0;
+        int offset = 0;
+        while (offset < bytes.length) {
+            int end = Math.min(bytes.length, offset + frameSize);
+            while (end < bytes.length && bytes[end - 1] != ETX) {
+                end++;
+            }
+            channel.writeInbound(channel.alloc().buffer(end - offset).writeBytes(bytes, offset, end - offset));
+            Object msg;
+            while ((msg = channel.readInbound()) != null) {
+                if (msg instanceof ByteBuf buf) {
+                    buf.release();
+                }
+                count++;
+            }
+            offset = end;
+        }
+        channel.finishAndReleaseAll();
+        return count;
+    }
+
+    private static double[] measure(com.sun.management.ThreadMXBean threadBean, long threadId, Runnable op) {
+        for (int i = 0; i < 50; i++) {
+            op.run();
+        }
+        int rounds = 200;
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new double[]{(double) elapsed / rounds, (double) allocated / rounds};
+    }
+
+    /**
+     * 按固定大小分片写入解码器，返回解出的帧数并释放切片
+     */
+    private static int decodeCount(StxEtxFrameDecoder decoder, byte[] stream, Random random, int maxChunk) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        int frames = 0;
+        int offset = 0;
+        while (offset < stream.length) {
+            int size = Math.min(stream.length - offset, 1 + random.nextInt(maxChunk));
+            channel.writeInbound(Unpooled.copiedBuffer(stream, offset, size));
+            offset += size;
+            ByteBuf frame;
+            while ((frame = channel.readInbound()) != null) {
+                frame.release();
+                frames++;
+            }
+        }
+        channel.finishAndReleaseAll();
+        return frames;
+    }
+
+    private static void writeFrame(ByteArrayOutputStream stream, byte[] payload) {
+        stream.write(STX);
+        stream.write(MARKER);
+        stream.writeBytes(payload);
+        stream.write(ETX);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 原 DeviceConnectionManager 中的解码器：逐字节查找帧头帧尾，数据拷贝为字节数组后转字符串
+     */
+    private static class LegacyStxEtxFrameDecoder extends ByteToMessageDecoder {
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            while (in.readableBytes() >= 4) {
+                int stxIndex = -1;
+                for (int i = 0; i < in.readableBytes(); i++) {
+                    if (in.getByte(in.readerIndex() + i) == STX) {
+                        stxIndex = i;
+                        break;
+                    }
+                }
+                if (stxIndex == -1) {
+                    in.skipBytes(in.readableBytes());
+                    break;
+                }
+                if (stxIndex > 0) {
+                    in.skipBytes(stxIndex);
+                }
+                if (in.readableBytes() < 4) {
+                    break;
+                }
+                if (in.readByte() != STX) {
+                    continue;
+                }
+                if (in.readByte() != MARKER) {
+                    continue;
+                }
+                int etxIndex = -1;
+                for (int i = 0; i < in.readableBytes(); i++) {
+                    if (in.getByte(in.readerIndex() + i) == ETX) {
+                        etxIndex = i;
+                        break;
+                    }
+                }
+                if (etxIndex == -1) {
+                    break;
+                }
+                byte[] data = new byte[etxIndex];
+                in.readBytes(data);
+                in.readByte();
+                out.add(new String(data, StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ruoyi.business.service.TaskInfo.inbound;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * STX/ETX 帧解码器：分片、带无效前缀、超长帧的随机流测试
+ */
+class StxEtxFrameDecoderTest {
+
+    private static final byte STX = StxEtxFrameDecoder.STX;
+    private static final byte ETX = StxEtxFrameDecoder.ETX;
+    private static final byte MARKER = StxEtxFrameDecoder.RECV_MARKER;
+
+    private static final int MAX_FRAME = 256;
+
+    @Test
+    void decodesFragmentedGarbagePrefixedStreams() {
+        Random random = new Random(20240601L);
+        for (int round = 0; round < 500; round++) {
+            List<byte[]> expected = new ArrayList<>();
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            int frames = 1 + random.nextInt(20);
+            for (int i = 0; i < frames; i++) {
+                writeGarbage(stream, random, random.nextInt(8));
+                byte[] payload = randomPayload(random, random.nextInt(MAX_FRAME + 1));
+                expected.add(payload);
+                writeFrame(stream, payload);
+            }
+            writeGarbage(stream, random, random.nextInt(8));
+
+            List<byte[]> decoded = decode(new StxEtxFrameDecoder(MAX_FRAME), stream.toByteArray(), random, 1 + random.nextInt(64));
+            assertFrames(expected, decoded, "round " + round);
+        }
+    }
+
+    @Test
+    void decodesOneByteAtATime() {
+        Random random = new Random(7L);
+        List<byte[]> expected = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 50; i++) {
+            byte[] payload = randomPayload(random, random.nextInt(MAX_FRAME + 1));
+            expected.add(payload);
+            writeFrame(stream, payload);
+        }
+        assertFrames(expected, decode(new StxEtxFrameDecoder(MAX_FRAME), stream.toByteArray(), null, 1), "逐字节");
+    }
+
+    @Test
+    void skipsFalseFrameHeaders() {
+        byte[] stream = {
+                'x', ETX, MARKER,            // 帧头之前的无效字节
+                STX, STX, MARKER, 'a', ETX,  // 第一个 STX 后不是接收标记
+                STX, 'y', STX, MARKER, 'b', 'c', ETX,
+                STX, MARKER, ETX,            // 空数据帧
+                STX                          // 末尾不完整
+        };
+        List<byte[]> decoded = decode(new StxEtxFrameDecoder(MAX_FRAME), stream, null, stream.length);
+        assertFrames(List.of(ascii("a"), ascii("bc"), new byte[0]), decoded, "无效帧头");
+    }
+
+    @Test
+    void discardsOversizedFrameAndResynchronizes() {
+        StxEtxFrameDecoder decoder = new StxEtxFrameDecoder(16);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        // 帧尾丢失的超长帧，后面紧跟正常帧
+        stream.write(STX);
+        stream.write(MARKER);
+        for (int i = 0; i < 40; i++) {
+            stream.write('z');
+        }
+        writeFrame(stream, ascii("system:2"));
+        // 恰好最大长度的帧仍然有效
+        writeFrame(stream, ascii("0123456789abcdef"));
+        writeFrame(stream, ascii("0123456789abcdefg"));
+        writeFrame(stream, ascii("geta:3"));
+
+        List<byte[]> decoded = decode(decoder, stream.toByteArray(), new Random(3L), 5);
+        assertFrames(List.of(ascii("system:2"), ascii("0123456789abcdef"), ascii("geta:3")), decoded, "超长帧");
+        Assertions.assertEquals(2, decoder.getDiscardedFrames());
+    }
+
+    @Test
+    void emitsRetainedSlicesOfCumulation() {
+        EmbeddedChannel channel = new EmbeddedChannel(new StxEtxFrameDecoder(MAX_FRAME));
+        ByteBuf input = Unpooled.directBuffer();
+        input.writeByte(STX).writeByte(MARKER).writeBytes(ascii("seta:1")).writeByte(ETX);
+        Assertions.assertTrue(channel.writeInbound(input));
+        ByteBuf frame = channel.readInbound();
+        try {
+            Assertions.assertEquals("seta:1", frame.toString(StandardCharsets.US_ASCII));
+            // 切片与输入共享内存，不是拷贝
+            Assertions.assertSame(input.unwrap() == null ? input : input.unwrap(), frame.unwrap());
+        } finally {
+            frame.release();
+        }
+        Assertions.assertFalse(channel.finish());
+    }
+
+    /**
+     * 按随机（random 为空时固定）分片写入解码器，返回解出的帧内容并释放切片
+     */
+    private static List<byte[]> decode(StxEtxFrameDecoder decoder, byte[] stream, Random random, int maxChunk) {
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        List<byte[]> frames = new ArrayList<>();
+        int offset = 0;
+        while (offset < stream.length) {
+            int size = Math.min(stream.length - offset, random == null ? maxChunk : 1 + random.nextInt(maxChunk));
+            channel.writeInbound(Unpooled.copiedBuffer(stream, offset, size));
+            offset += size;
+            ByteBuf frame;
+            while ((frame = channel.readInbound()) != null) {
+                frames.add(ByteBufUtil.getBytes(frame));
+                frame.release();
+            }
+        }
+        channel.finishAndReleaseAll();
+        return frames;
+    }
+
+    private static void assertFrames(List<byte[]> expected, List<byte[]> decoded, String message) {
+        Assertions.assertEquals(expected.size(), decoded.size(), message + " 帧数量");
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertArrayEquals(expected.get(i), decoded.get(i), message + " 第 " + i + " 帧");
+        }
+    }
+
+    private static void writeFrame(ByteArrayOutputStream stream, byte[] payload) {
+        stream.write(STX);
+        stream.write(MARKER);
+        stream.writeBytes(payload);
+        stream.write(ETX);
+    }
+
+    // 无效字节：不含 STX，可含 ETX 与接收标记
+    private static void writeGarbage(ByteArrayOutputStream stream, Random random, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b;
+            do {
+                b = (byte) random.nextInt(256);
+            } while (b == STX);
+            stream.write(b);
+        }
+    }
+
+    // 数据部分：不含 ETX，可含 STX 与接收标记
+    private static byte[] randomPayload(Random random, int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            byte b;
+            do {
+                b = (byte) random.nextInt(256);
+            } while (b == ETX);
+            payload[i] = b;
+        }
+        return payload;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
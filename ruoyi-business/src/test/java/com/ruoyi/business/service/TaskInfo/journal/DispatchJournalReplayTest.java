@@ -0,0 +1,216 @@
+package com.ruoyi.business.service.TaskInfo.journal;
+
+import com.ruoyi.business.config.TaskDispatchProperties;
+import com.ruoyi.business.domain.TaskInfo.TaskDeviceLink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 发送日志回放：正常退出、段内崩溃、跨段崩溃、缺少检查点与回放失败后再次启动时，只回放未落库的事件
+ */
+class DispatchJournalReplayTest {
+
+    private static final long TASK_ID = 11L;
+    private static final String DEVICE_ID = "7";
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("dispatch-journal");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void cleanShutdownLeavesNothingToReplay() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 100);
+        journal.markPersisted(journal.position());
+        journal.close();
+
+        Assertions.assertTrue(listFiles().isEmpty(), "事件已全部落库，退出后不应保留日志文件: " + listFiles());
+        Assertions.assertTrue(replay(open(8)).isEmpty());
+    }
+
+    @Test
+    void cleanShutdownKeepsUnpersistedEvents() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 10);
+        journal.markPersisted(journal.position());
+        appendSent(journal, 11, 12);
+        journal.close();
+
+        Assertions.assertEquals(List.of(11L, 12L), replay(open(8)));
+    }
+
+    @Test
+    void crashMidSegmentReplaysOnlyUnpersistedEvents() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 10);
+        journal.markPersisted(journal.position());
+        appendSent(journal, 11, 15);
+        journal.sync();
+        // 不调用 close，模拟进程崩溃
+
+        List<int[]> totals = new ArrayList<>();
+        DispatchJournal restarted = open(8);
+        List<Long> items = new ArrayList<>();
+        for (Path segment : restarted.takeRecoverableSegments()) {
+            restarted.read(segment, (type, total, taskId, itemId, deviceId, time) -> {
+                items.add(itemId);
+                totals.add(new int[]{total});
+            });
+        }
+        Assertions.assertEquals(List.of(11L, 12L, 13L, 14L, 15L), items);
+        // 设备累计数量接着已落库的部分继续
+        Assertions.assertEquals(11, totals.get(0)[0]);
+        Assertions.assertEquals(15, totals.get(4)[0]);
+    }
+
+    @Test
+    void crashAcrossSegmentsDropsPersistedSegments() throws IOException {
+        // 段大小取下限：每段 1024 条
+        DispatchJournal journal = open(0);
+        appendSent(journal, 1, 1500);
+        journal.markPersisted(journal.position());
+        Assertions.assertEquals(0, journal.getSealedSegmentCount(), "已落库的写满段应被删除");
+        appendSent(journal, 1501, 2600);
+        journal.sync();
+
+        DispatchJournal restarted = open(0);
+        List<Long> items = new ArrayList<>();
+        List<Path> segments = restarted.takeRecoverableSegments();
+        Assertions.assertEquals(2, segments.size());
+        for (Path segment : segments) {
+            restarted.read(segment, (type, total, taskId, itemId, deviceId, time) -> items.add(itemId));
+        }
+        Assertions.assertEquals(1100, items.size());
+        Assertions.assertEquals(1501L, items.get(0).longValue());
+        Assertions.assertEquals(2600L, items.get(items.size() - 1).longValue());
+    }
+
+    @Test
+    void missingOrCorruptCheckpointReplaysEverything() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 10);
+        journal.markPersisted(journal.position());
+        appendSent(journal, 11, 20);
+        journal.sync();
+
+        // 检查点撕裂：校验失败后按无检查点处理
+        try (FileChannel channel = FileChannel.open(directory.resolve(JournalCheckpoint.FILE_NAME), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 8);
+        }
+        Assertions.assertEquals(20, replay(open(8)).size());
+    }
+
+    @Test
+    void failedRecoveryDoesNotReplayPersistedPrefixLater() throws IOException {
+        DispatchJournal first = open(8);
+        appendSent(first, 1, 10);
+        first.markPersisted(first.position());
+        appendSent(first, 11, 15);
+        first.sync();
+
+        // 第二次启动：回放失败保留遗留段，本次运行写入并落库新的事件后崩溃
+        DispatchJournal second = open(8);
+        Assertions.assertEquals(1, second.takeRecoverableSegments().size());
+        second.seedDevice(TASK_ID, DEVICE_ID, 15, 0);
+        appendSent(second, 16, 18);
+        second.markPersisted(second.position());
+        second.sync();
+
+        // 第三次启动：遗留段仍只回放上次未落库的部分，第二次运行的段已全部落库
+        Assertions.assertEquals(List.of(11L, 12L, 13L, 14L, 15L), replay(open(8)));
+    }
+
+    @Test
+    void recoveryAppliesOnlyUnpersistedEvents() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 10);
+        journal.appendAcked(TASK_ID, DEVICE_ID);
+        journal.markPersisted(journal.position());
+        appendSent(journal, 11, 13);
+        // 同一数据项重试后再次发送，只按首次发送补记
+        journal.appendFailed(TASK_ID, DEVICE_ID, 12L);
+        journal.appendSent(TASK_ID, DEVICE_ID, 12L);
+        journal.appendAcked(TASK_ID, DEVICE_ID);
+        journal.sync();
+
+        DispatchJournal restarted = open(8);
+        DispatchJournalRecovery.SegmentChanges changes = new DispatchJournalRecovery.SegmentChanges();
+        for (Path segment : restarted.takeRecoverableSegments()) {
+            restarted.read(segment, changes::accept);
+        }
+        Assertions.assertEquals(List.of(11L, 12L, 13L), new ArrayList<>(changes.sent.keySet()));
+        Assertions.assertEquals(List.of(12L), new ArrayList<>(changes.failed));
+        Assertions.assertEquals(1, changes.links.size());
+        TaskDeviceLink link = changes.links.values().iterator().next();
+        Assertions.assertEquals(14, link.getCompletedQuantity().intValue());
+        Assertions.assertEquals(2, link.getReceivedQuantity().intValue());
+    }
+
+    @Test
+    void tornRecordIsSkipped() throws IOException {
+        DispatchJournal journal = open(8);
+        appendSent(journal, 1, 3);
+        journal.sync();
+
+        Path segment = listFiles().stream().filter(p -> p.toString().endsWith(".seg")).findFirst().orElseThrow();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // 第二条记录的数据项ID被撕裂，校验和不再匹配
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), JournalSegment.RECORD_SIZE + 16);
+        }
+        Assertions.assertEquals(List.of(1L, 3L), replay(open(8)));
+    }
+
+    private DispatchJournal open(int segmentSizeMb) {
+        TaskDispatchProperties properties = new TaskDispatchProperties();
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setSegmentSizeMb(segmentSizeMb);
+        DispatchJournal journal = new DispatchJournal(properties);
+        journal.init();
+        Assertions.assertTrue(journal.isEnabled());
+        journal.seedDevice(TASK_ID, DEVICE_ID, 0, 0);
+        return journal;
+    }
+
+    private static void appendSent(DispatchJournal journal, long fromItem, long toItem) {
+        for (long item = fromItem; item <= toItem; item++) {
+            journal.appendSent(TASK_ID, DEVICE_ID, item);
+        }
+    }
+
+    private static List<Long> replay(DispatchJournal journal) throws IOException {
+        List<Long> items = new ArrayList<>();
+        for (Path segment : journal.takeRecoverableSegments()) {
+            journal.read(segment, (type, total, taskId, itemId, deviceId, time) -> items.add(itemId));
+        }
+        return items;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * long 基本类型哈希集合：增删查、扩容、探测链跨越数组末尾时的删除前移
+ */
+class LongHashSetTest {
+
+    @Test
+    void addContainsRemove() {
+        LongHashSet set = new LongHashSet();
+        Assertions.assertTrue(set.add(42L));
+        Assertions.assertFalse(set.add(42L), "重复元素不应再次加入");
+        Assertions.assertTrue(set.contains(42L));
+        Assertions.assertEquals(1, set.size());
+
+        Assertions.assertTrue(set.remove(42L));
+        Assertions.assertFalse(set.remove(42L));
+        Assertions.assertFalse(set.contains(42L));
+        Assertions.assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void zeroAndNegativeValues() {
+        LongHashSet set = new LongHashSet();
+        // 0 是空槽标记，单独记录；负数为固定数据池的合成ID
+        long[] values = {0L, -1L, Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE};
+        for (long value : values) {
+            Assertions.assertTrue(set.add(value), "首次加入应成功: " + value);
+            Assertions.assertFalse(set.add(value), "重复加入应失败: " + value);
+        }
+        Assertions.assertEquals(values.length, set.size());
+        for (long value : values) {
+            Assertions.assertTrue(set.remove(value), "应能移除: " + value);
+            Assertions.assertFalse(set.contains(value));
+        }
+        Assertions.assertEquals(0, set.size());
+    }
+
+    @Test
+    void resizeKeepsAllElements() {
+        LongHashSet set = new LongHashSet(4);
+        long initialFootprint = set.footprintBytes();
+        int count = 10_000;
+        for (long i = 1; i <= count; i++) {
+            Assertions.assertTrue(set.add(i));
+        }
+        Assertions.assertEquals(count, set.size());
+        Assertions.assertTrue(set.footprintBytes() > initialFootprint, "超过负载阈值后应扩容");
+        for (long i = 1; i <= count; i++) {
+            Assertions.assertTrue(set.contains(i), "扩容后丢失元素: " + i);
+        }
+        for (long i = 1; i <= count; i += 2) {
+            Assertions.assertTrue(set.remove(i));
+        }
+        Assertions.assertEquals(count / 2, set.size());
+        for (long i = 1; i <= count; i++) {
+            Assertions.assertEquals(i % 2 == 0, set.contains(i), "删除后查找结果错误: " + i);
+        }
+    }
+
+    @Test
+    void presizedSetDoesNotResizeBeforeExpectedSize() {
+        LongHashSet set = new LongHashSet(1000);
+        long footprint = set.footprintBytes();
+        for (long i = 1; i <= 1000; i++) {
+            set.add(i);
+        }
+        Assertions.assertEquals(footprint, set.footprintBytes());
+    }
+
+    @Test
+    void removeAcrossWrapAround() {
+        LongHashSet set = new LongHashSet(1);
+        int capacity = (int) (set.footprintBytes() / Long.BYTES);
+        int mask = capacity - 1;
+        // 三个理想位置都在最后一个槽位的元素：依次占据末尾槽位和数组开头的两个槽位
+        List<Long> tail = valuesWithSlot(mask, mask, 3);
+        // 理想位置为 0 的元素，被挤到上面元素之后
+        long head = valuesWithSlot(0, mask, 1).get(0);
+        for (long value : tail) {
+            set.add(value);
+        }
+        set.add(head);
+
+        // 删除末尾槽位的元素后，跨越数组末尾的探测链必须整体前移，其余元素仍可查到
+        Assertions.assertTrue(set.remove(tail.get(0)));
+        Assertions.assertFalse(set.contains(tail.get(0)));
+        Assertions.assertTrue(set.contains(tail.get(1)));
+        Assertions.assertTrue(set.contains(tail.get(2)));
+        Assertions.assertTrue(set.contains(head));
+
+        Assertions.assertTrue(set.remove(tail.get(2)));
+        Assertions.assertTrue(set.contains(tail.get(1)));
+        Assertions.assertTrue(set.contains(head));
+        Assertions.assertTrue(set.remove(head));
+        Assertions.assertTrue(set.contains(tail.get(1)));
+        Assertions.assertEquals(1, set.size());
+    }
+
+    @Test
+    void randomChurnMatchesHashSet() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet(64);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // 取值范围较小，反复增删同一批元素，覆盖删除前移与扩容
+            long value = random.nextInt(512) - 256;
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(expected.add(value), set.add(value));
+            } else {
+                Assertions.assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        Assertions.assertEquals(expected.size(), set.size());
+        for (long value = -256; value < 256; value++) {
+            Assertions.assertEquals(expected.contains(value), set.contains(value), "元素不一致: " + value);
+        }
+    }
+
+    /**
+     * 查找理想槽位为指定位置的元素（与 LongHashSet 的散列方式一致）
+     */
+    private static List<Long> valuesWithSlot(int slot, int mask, int count) {
+        List<Long> values = new ArrayList<>();
+        for (long value = 1; values.size() < count; value++) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & mask) == slot) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,143 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务指令队列与原“插入即整体排序 / 取出即全量扫描”实现的对比基准
+ * 只输出耗时对比，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class TaskCommandQueueBenchmarkTest {
+
+    private static final long TASK_ID = 1L;
+
+    // 每个深度下计时的入队+出队次数
+    private static final int MEASURED_OPS = 200;
+
+    /**
+     * 原实现：单一 LinkedBlockingQueue，入队后 drain 全量排序再放回，取出时过滤排序
+     */
+    private static class LegacyQueue {
+        private final BlockingQueue<PrintCommand> commandQueue;
+
+        LegacyQueue(int capacity) {
+            commandQueue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        void add(PrintCommand command) {
+            commandQueue.offer(command);
+            List<PrintCommand> commands = new ArrayList<>();
+            commandQueue.drainTo(commands);
+            commands.sort(Comparator.comparingLong(PrintCommand::getId));
+            for (PrintCommand c : commands) {
+                commandQueue.offer(c);
+            }
+        }
+
+        // 预填充时只排序一次，避免预填充本身耗时过长
+        void prefill(List<PrintCommand> commands) {
+            List<PrintCommand> sorted = new ArrayList<>(commands);
+            sorted.sort(Comparator.comparingLong(PrintCommand::getId));
+            commandQueue.addAll(sorted);
+        }
+
+        PrintCommand take(Long taskId) {
+            PrintCommand command = commandQueue.stream()
+                    .filter(c -> c.getTaskId().equals(taskId))
+                    .sorted(Comparator.comparingLong(PrintCommand::getId))
+                    .findFirst()
+                    .orElse(null);
+            if (command != null) {
+                commandQueue.remove(command);
+            }
+            return command;
+        }
+
+        int size(Long taskId) {
+            return commandQueue.stream().filter(c -> c.getTaskId().equals(taskId)).toArray().length;
+        }
+    }
+
+    private static PrintCommand command(long id) {
+        PrintCommand command = new PrintCommand();
+        command.setId(id);
+        command.setTaskId(TASK_ID);
+        command.setData("SN" + id);
+        return command;
+    }
+
+    private static List<PrintCommand> shuffledCommands(int count, long seed) {
+        List<PrintCommand> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(command(i * 2L));
+        }
+        Collections.shuffle(list, new Random(seed));
+        return list;
+    }
+
+    @org.junit.jupiter.api.Test
+    void compareWithLegacyAt10k() throws InterruptedException {
+        compareAtDepth(10_000);
+    }
+
+    @org.junit.jupiter.api.Test
+    void compareWithLegacyAt50k() throws InterruptedException {
+        compareAtDepth(50_000);
+    }
+
+    private void compareAtDepth(int depth) throws InterruptedException {
+        List<PrintCommand> prefill = shuffledCommands(depth, 42L);
+        // 计时阶段插入的奇数ID会穿插在已有指令之间
+        List<PrintCommand> inserts = new ArrayList<>(MEASURED_OPS);
+        for (int i = 0; i < MEASURED_OPS; i++) {
+            inserts.add(command(i * 97L + 1));
+        }
+
+        LegacyQueue legacy = new LegacyQueue(depth + MEASURED_OPS);
+        legacy.prefill(prefill);
+        long legacyNanos = measure(() -> {
+            for (PrintCommand c : inserts) {
+                legacy.add(c);
+                legacy.size(TASK_ID);
+                legacy.take(TASK_ID);
+            }
+        });
+
+        TaskCommandQueue queue = new TaskCommandQueue(depth + MEASURED_OPS);
+        for (PrintCommand c : prefill) {
+            queue.offer(c, 0, TimeUnit.MILLISECONDS);
+        }
+        long indexedNanos = measure(() -> {
+            for (PrintCommand c : inserts) {
+                try {
+                    queue.offer(c, 0, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                queue.size();
+                queue.poll();
+            }
+        });
+
+        Assertions.assertEquals(legacy.size(TASK_ID), queue.size());
+        System.out.printf("队列深度 %d：原实现 %.1f us/op，任务索引队列 %.2f us/op%n", depth,
+                legacyNanos / 1000.0 / MEASURED_OPS, indexedNanos / 1000.0 / MEASURED_OPS);
+    }
+
+    private static long measure(Runnable body) {
+        long start = System.nanoTime();
+        body.run();
+        return System.nanoTime() - start;
+    }
+}
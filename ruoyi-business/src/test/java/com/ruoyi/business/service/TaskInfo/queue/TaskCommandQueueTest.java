@@ -0,0 +1,50 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import com.ruoyi.business.domain.TaskInfo.PrintCommand;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务指令队列：批量数据通道按ID从小到大出队，队列已满时拒绝入队
+ */
+class TaskCommandQueueTest {
+
+    private static final long TASK_ID = 1L;
+
+    @Test
+    void pollReturnsCommandsInIdOrder() throws InterruptedException {
+        TaskCommandQueue queue = new TaskCommandQueue(1000);
+        List<PrintCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            commands.add(command(i * 2L));
+        }
+        Collections.shuffle(commands, new Random(7L));
+        for (PrintCommand c : commands) {
+            Assertions.assertTrue(queue.offer(c, 0, TimeUnit.MILLISECONDS));
+        }
+        Assertions.assertEquals(1000, queue.size());
+        Assertions.assertFalse(queue.offer(command(-1L), 0, TimeUnit.MILLISECONDS), "队列已满时应拒绝入队");
+
+        long last = Long.MIN_VALUE;
+        PrintCommand c;
+        while ((c = queue.poll()) != null) {
+            Assertions.assertTrue(c.getId() >= last);
+            last = c.getId();
+        }
+        Assertions.assertEquals(0, queue.size());
+    }
+
+    private static PrintCommand command(long id) {
+        PrintCommand command = new PrintCommand();
+        command.setId(id);
+        command.setTaskId(TASK_ID);
+        command.setData("SN" + id);
+        return command;
+    }
+}
@@ -0,0 +1,64 @@
+package com.ruoyi.business.service.TaskInfo.queue;
+
+import com.ruoyi.business.domain.DataPoolItem.DataPoolItem;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 数据项追踪：重复入队、重试放回、落库后再次入队，以及固定数据池合成ID不会被当作重复
+ */
+class TaskItemTrackerTest {
+
+    @Test
+    void duplicateIsRejectedUntilReleased() {
+        TaskItemTracker tracker = new TaskItemTracker(16);
+        Assertions.assertTrue(tracker.track(100L));
+        Assertions.assertFalse(tracker.track(100L), "入队到落库期间同一数据项不能再次入队");
+        Assertions.assertEquals(1, tracker.size());
+
+        // 落库或最终失败后结束追踪，补打时可以再次入队
+        tracker.release(100L);
+        Assertions.assertFalse(tracker.isTracked(100L));
+        Assertions.assertTrue(tracker.track(100L));
+    }
+
+    @Test
+    void requeueOfTrackedCommandKeepsSingleEntry() {
+        TaskItemTracker tracker = new TaskItemTracker(16);
+        tracker.track(7L);
+        // 发送失败放回队列时重复登记，不产生第二份追踪
+        tracker.track(7L);
+        Assertions.assertTrue(tracker.isTracked(7L));
+        Assertions.assertEquals(1, tracker.size());
+
+        // 一次释放即结束追踪
+        tracker.release(7L);
+        Assertions.assertEquals(0, tracker.size());
+    }
+
+    @Test
+    void requeueAfterReleaseTracksAgain() {
+        TaskItemTracker tracker = new TaskItemTracker(16);
+        tracker.track(7L);
+        // 任务追踪被清理或已释放后，重试放回的指令重新登记
+        tracker.release(7L);
+        tracker.track(7L);
+        Assertions.assertTrue(tracker.isTracked(7L));
+        Assertions.assertEquals(1, tracker.size());
+    }
+
+    @Test
+    void fixedDataBatchesAreNotDuplicates() {
+        TaskItemTracker tracker = new TaskItemTracker(16);
+        long sequence = 0;
+        // 前一批尚未落库时生成下一批，合成ID持续递增，不会与仍在追踪的数据项冲突
+        for (int batch = 0; batch < 3; batch++) {
+            for (int i = 0; i < 100; i++) {
+                long itemId = DataPoolItem.FIXED_DATA_ID_BASE + sequence++;
+                Assertions.assertTrue(DataPoolItem.isFixedDataId(itemId));
+                Assertions.assertTrue(tracker.track(itemId), "固定数据被误判为重复: " + itemId);
+            }
+        }
+        Assertions.assertEquals(300, tracker.size());
+    }
+}
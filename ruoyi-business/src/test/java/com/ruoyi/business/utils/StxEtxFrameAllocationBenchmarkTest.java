@@ -0,0 +1,61 @@
+package com.ruoyi.business.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 预编码协议帧与原“字符串 -> 字节数组 -> 协议数组 -> 包装缓冲区”发送路径的分配量对比
+ * 依赖分配量统计，默认构建不执行（-Pbenchmark）
+ */
+@Tag("benchmark")
+class StxEtxFrameAllocationBenchmarkTest {
+
+    private static final String COMMAND = "seta:data#v1=SN20240601000123456789+size#20|80+pos#10|10|0|0";
+
+    private static final int WARMUP = 200_000;
+    private static final int MEASURED = 1_000_000;
+
+    @Test
+    void compareSendPathAllocation() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // 原路径：每次发送 getBytes + 协议数组拷贝 + 包装缓冲区
+        Runnable legacy = () -> {
+            ByteBuf buf = Unpooled.wrappedBuffer(StxEtxProtocolUtil.buildCommand(COMMAND));
+            buf.release();
+        };
+        // 新路径：生产端已编码好帧，发送时仅写出保留副本
+        ByteBuf frame = StxEtxProtocolUtil.encodeCommand(PooledByteBufAllocator.DEFAULT, COMMAND);
+        Runnable preEncoded = () -> {
+            ByteBuf written = frame.retainedDuplicate();
+            written.release();
+        };
+
+        try {
+            double legacyBytes = bytesPerOp(threadBean, threadId, legacy);
+            double preEncodedBytes = bytesPerOp(threadBean, threadId, preEncoded);
+            System.out.printf("发送路径分配量：原实现 %.1f B/op，预编码帧 %.1f B/op%n", legacyBytes, preEncodedBytes);
+            Assertions.assertTrue(preEncodedBytes < legacyBytes, "预编码帧发送路径分配量应低于原实现");
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static double bytesPerOp(com.sun.management.ThreadMXBean threadBean, long threadId, Runnable op) {
+        for (int i = 0; i < WARMUP; i++) {
+            op.run();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED; i++) {
+            op.run();
+        }
+        return (double) (threadBean.getThreadAllocatedBytes(threadId) - before) / MEASURED;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ruoyi.business.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 预编码协议帧：与原字节数组编码结果一致，重试时通过引用计数复用同一帧
+ */
+class StxEtxProtocolUtilTest {
+
+    private static final String COMMAND = "seta:data#v1=SN20240601000123456789+size#20|80+pos#10|10|0|0";
+
+    @Test
+    void encodedFrameMatchesBuiltCommand() {
+        for (String command : new String[]{COMMAND, "seta:data#v1=中文批次+size#1|1", ""}) {
+            ByteBuf frame = StxEtxProtocolUtil.encodeCommand(PooledByteBufAllocator.DEFAULT, command);
+            try {
+                Assertions.assertArrayEquals(StxEtxProtocolUtil.buildCommand(command), ByteBufUtil.getBytes(frame));
+                Assertions.assertTrue(frame.isDirect());
+            } finally {
+                frame.release();
+            }
+        }
+    }
+
+    @Test
+    void retriesReuseFrameThroughReferenceCount() {
+        ByteBuf frame = StxEtxProtocolUtil.encodeCommand(PooledByteBufAllocator.DEFAULT, COMMAND);
+        int readable = frame.readableBytes();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            // 模拟通道写出并释放副本
+            ByteBuf written = frame.retainedDuplicate();
+            written.skipBytes(written.readableBytes());
+            written.release();
+            Assertions.assertEquals(1, frame.refCnt());
+            Assertions.assertEquals(readable, frame.readableBytes(), "写出副本不应移动原帧读指针");
+        }
+        frame.release();
+        Assertions.assertEquals(0, frame.refCnt());
+    }
+}